@@ -1,31 +1,41 @@
-import context.ContextVisitor;
-import context.MJTypeCheckException;
 import context.TypecheckVisitor;
+import symbols.ContextVisitor;
+import symbols.SymbolTable;
 import syntaxtree.*;
 
+import java.io.InputStreamReader;
+
 /**
  * Typecheck runs the overall program by first building out a
- * context table for all the symbols and then running a type checker
- * with MiniJava Type rules in play with the global context.
+ * symbol table for all the classes, the same one J2V translates from,
+ * and then running a type checker with MiniJava Type rules in play
+ * with the global context.
  */
 public class Typecheck{
 
     private static final String ERROR = "Type error";
     private static final String SUCCESS = "Program type checked successfully";
+    // Classes parsed ahead of the context builder
+    private static final int PENDING_CLASSES = 16;
     
     public static void main (String [] args) {
         try {
-            // Parse
-            Goal goal = new MiniJavaParser(System.in).Goal();
+            // Parse, only brace matching method bodies
+            LazyParser parser = new LazyParser(new InputStreamReader(System.in));
             // Build context table
             ContextVisitor ctxVisitor = new ContextVisitor();
-            // Run context builder with DFS from Goal
-            goal.accept(ctxVisitor, null);
-            //ctxVisitor.context.printContextTable();
+            // Run context builder on each class as soon as it is parsed
+            Goal goal = parser.pipelinedDeclarations(PENDING_CLASSES,
+                    declaration -> ctxVisitor.traverse(declaration, null));
+            // Parse the method bodies now that they are needed
+            parser.parseBodies();
+            //ctxVisitor.printContext();
+            // Freeze the context, rejecting undeclared and cyclic classes
+            SymbolTable symbols = new SymbolTable(ctxVisitor.classes);
             // Create a type checker
             TypecheckVisitor typecheckVisitor = new TypecheckVisitor();
             // Run Type checking DFS from Goal
-            goal.accept(typecheckVisitor, ctxVisitor.context);
+            typecheckVisitor.traverse(goal, symbols);
         } catch (Exception e) {
             //e.printStackTrace();
             //System.out.println(e.getMessage());
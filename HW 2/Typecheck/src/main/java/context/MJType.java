@@ -30,7 +30,7 @@ public class MJType {
         }
     }
     private Type type;
-    // Used to store MJClass types as MJTypes
+    // Used to store class types as MJTypes
     private String subtype = null;
 
     public MJType(String name, Type type) {
@@ -46,6 +46,25 @@ public class MJType {
             this.subtype = subtype;
     }
 
+    /**
+     * Builds the type of a declared variable or return value
+     * @param name Name of the variable, or null for a return type
+     * @param declaredType Type as written in the declaration
+     * @return The corresponding type
+     */
+    public static MJType of(String name, String declaredType) {
+        switch (declaredType) {
+            case "int[]":
+                return new MJType(name, Type.ARRAY);
+            case "boolean":
+                return new MJType(name, Type.BOOLEAN);
+            case "int":
+                return new MJType(name, Type.INT);
+            default:
+                return new MJType(name, Type.IDENT, declaredType);
+        }
+    }
+
     public boolean hasSubtype() {
         return subtype != null;
     }
@@ -1,46 +1,158 @@
 package context;
 
+import symbols.SymbolTable;
+import symbols.VClass;
+import symbols.VMethod;
 import syntaxtree.*;
-import visitor.GJDepthFirst;
+import visitor.IterativeDepthFirst;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * TypecheckVisitor runs the second pass through the JTB generated Abstract
- * Syntax Tree. It utilizes the ContextTable built upon first pass to relate
+ * Syntax Tree. It utilizes the SymbolTable built upon first pass to relate
  * everything to scoped contexts. For speed of development, we throw
  * runtime exceptions for type errors (alternatively could be done using Optional<MJType>)
  *
- * In all instances, n represents the Node we are at in the AST and argu is our
- * global context table. We return MJType for being able to pass around expression types.
+ * In all instances, n represents the Node we are at in the AST and argu is the
+ * program's symbol table. We return MJType for being able to pass around expression types.
+ * The tree is walked iteratively, so each visit runs once its children have been
+ * checked and reads their types through result. Scopes are set up in enter.
  */
-public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
-
-  /**
-   * f0 -> MainClass()
-   * f1 -> ( TypeDeclaration() )*
-   * f2 -> <EOF>
-   *
-   * @param n
-   * @param argu
-   */
-  @Override
-  public MJType visit(Goal n, ContextTable argu) {
-      argu.resetDummyParents();
-      // Check for cycles
-      if (!argu.acyclic()) {
-          throw new MJTypeCheckException("Inheritance cycle found");
-      }
-      // Check Main Class
-      MJType ret = n.f0.accept(this, argu);
-      // Check through all classes
-      for(Node _class: n.f1.nodes) {
-          ret = _class.accept(this, argu);
-      }
-      return ret;
-  }
+public class TypecheckVisitor extends IterativeDepthFirst<MJType, SymbolTable> {
+
+    /**
+     * The types of a method's parameters, local variables and return value
+     */
+    private static final class MethodTypes {
+        // All the method parameters in an ordered set
+        final Set<MJType> params = new LinkedHashSet<>();
+        // All the method local variables in an ordered set
+        final Set<MJType> vars = new LinkedHashSet<>();
+        final MJType returnType;
+
+        MethodTypes(VMethod method) {
+            for (String param : method.params) {
+                params.add(MJType.of(param, method.paramTypes.get(param)));
+            }
+            for (String local : method.locals) {
+                vars.add(MJType.of(local, method.localTypes.get(local)));
+            }
+            // Only main has no return type
+            returnType = method.returnType == null ? new MJType(null, MJType.Type.OTHER)
+                    : MJType.of(null, method.returnType);
+        }
+    }
+
+    // Class whose methods are being checked
+    private VClass currentClass;
+    // Whether it is the main class, where there is no this
+    private boolean inMain = false;
+    // The method being checked, then the methods called by the expressions
+    // whose arguments are being checked
+    private final Stack<VMethod> callingMethodStack = new Stack<>();
+    // Types of every class' fields, inherited ones included
+    private final Map<VClass, Set<MJType>> fields = new HashMap<>();
+    // Types of every method's variables, methods being equal by name only
+    private final Map<VMethod, MethodTypes> methodTypes = new IdentityHashMap<>();
+
+    /**
+     * Returns a set of every field in the class, inclusive of
+     * its parents fields if not overriden.
+     * @param _class Class in question
+     * @return Set of field types
+     */
+    private Set<MJType> fields(VClass _class) {
+        Set<MJType> classFields = fields.get(_class);
+        if (classFields == null) {
+            classFields = new LinkedHashSet<>();
+            for (String member : _class.members) {
+                classFields.add(MJType.of(member, _class.types.get(member)));
+            }
+            // Add parent fields if not overridden in child
+            if (_class.hasParent())
+                classFields.addAll(fields(_class.getParent()));
+            fields.put(_class, classFields);
+        }
+        return classFields;
+    }
+
+    private MethodTypes types(VMethod method) {
+        return methodTypes.computeIfAbsent(method, MethodTypes::new);
+    }
+
+    /**
+     * General find function amongst sets - treating them as arrays
+     * @param var Variable we're looking for
+     * @param collection The set to search through
+     * @return The variable type if it exists
+     */
+    private static MJType find(MJType var, Set<MJType> collection) {
+        for (MJType variable : collection) {
+            if (var.equals(variable))
+                return variable;
+        }
+        return null;
+    }
+
+    /**
+     * Finds if a subclassing relationship exists between two classes,
+     * in either direction
+     * @param symbols The program's symbol table
+     * @param className1
+     * @param className2
+     * @return Whether one directly extends the other
+     */
+    private static boolean linkExists(SymbolTable symbols, String className1, String className2) {
+        return extendsClass(symbols.getClass(className1), className2)
+                || extendsClass(symbols.getClass(className2), className1);
+    }
+
+    private static boolean extendsClass(VClass child, String parentName) {
+        return child != null && child.hasParent() && child.getParent().className.equals(parentName);
+    }
+
+    /**
+     * Sets up the class and method scopes before their bodies are checked.
+     * Declarations carry no type to check, so their subtrees are skipped.
+     *
+     * @param n
+     * @param argu
+     */
+    @Override
+    protected boolean enter(Node n, SymbolTable argu) throws MJTypeCheckException {
+        if (n instanceof VarDeclaration || n instanceof Type || n instanceof FormalParameterList) {
+            return false;
+        }
+        if (n instanceof MainClass) {
+            enter((MainClass) n, argu);
+        } else if (n instanceof ClassDeclaration) {
+            enter((ClassDeclaration) n, argu);
+        } else if (n instanceof ClassExtendsDeclaration) {
+            enter((ClassExtendsDeclaration) n, argu);
+        } else if (n instanceof MethodDeclaration) {
+            enter((MethodDeclaration) n, argu);
+        } else if (n instanceof ExpressionList) {
+            // Arguments are only checked against methods with parameters
+            return !calledMethodParams().isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the called method onto the call stack once the instance it is
+     * called on has been checked, so its arguments can be matched.
+     *
+     * @param n
+     * @param index
+     * @param argu
+     */
+    @Override
+    protected void afterChild(Node n, int index, SymbolTable argu) throws MJTypeCheckException {
+        if (n instanceof MessageSend && index == 0) {
+            enterCall((MessageSend) n, argu);
+        }
+    }
 
     /**
      * f0 -> "class"
@@ -65,30 +177,11 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param n
      * @param argu
      */
-    @Override
-    public MJType visit(MainClass n, ContextTable argu) {
-        String mainClassName = n.f1.accept(this, argu).getName();
-        argu.getClass(mainClassName);
-        MJClass currentClass = argu.getCurrentClass();
-        argu.classStack.push(currentClass);
-        currentClass.isMain = true;
-        currentClass.callingMethodStack.push(currentClass.getClassMethod("main"));
-        for (Node statement: n.f15.nodes) {
-            statement.accept(this, argu);
-        }
-        return null;
-    }
-
-    /**
-     * f0 -> ClassDeclaration()
-     * | ClassExtendsDeclaration()
-     *
-     * @param n
-     * @param argu
-     */
-    @Override
-    public MJType visit(TypeDeclaration n, ContextTable argu) {
-        return n.f0.accept(this, argu);
+    private void enter(MainClass n, SymbolTable argu) {
+        currentClass = argu.getClass(n.f1.f0.toString());
+        inMain = true;
+        callingMethodStack.clear();
+        callingMethodStack.push(currentClass.getDeclaredMethod("main"));
     }
 
     /**
@@ -102,19 +195,14 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param n
      * @param argu
      */
-    @Override
-    public MJType visit(ClassDeclaration n, ContextTable argu) throws MJTypeCheckException {
-        MJClass currClass = argu.getClass(n.f1.accept(this, argu).getName());
+    private void enter(ClassDeclaration n, SymbolTable argu) throws MJTypeCheckException {
+        VClass currClass = argu.getClass(n.f1.f0.toString());
         if (currClass == null) {
             throw new MJTypeCheckException("Could not find requested class");
         }
-        argu.classStack.clear();
-        argu.classStack.push(currClass);
-        MJType ret = null;
-        // Check through methods
-        for (Node method : n.f4.nodes)
-            ret = method.accept(this, argu);
-        return ret;
+        currentClass = currClass;
+        inMain = false;
+        callingMethodStack.clear();
     }
 
     /**
@@ -130,27 +218,15 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param n
      * @param argu
      */
-    @Override
-    public MJType visit(ClassExtendsDeclaration n, ContextTable argu) throws MJTypeCheckException {
-        MJClass currClass = argu.getClass(n.f1.accept(this, argu).getName());
-        MJClass parentClass = argu.getClass(n.f3.accept(this, argu).getName());
+    private void enter(ClassExtendsDeclaration n, SymbolTable argu) throws MJTypeCheckException {
+        VClass currClass = argu.getClass(n.f1.f0.toString());
+        VClass parentClass = argu.getClass(n.f3.f0.toString());
         if (currClass == null || parentClass == null) {
             throw new MJTypeCheckException("Could not find requested class");
         }
-        argu.setCurrentClass(currClass);
-        argu.classStack.clear();
-        argu.classStack.push(currClass);
-        // Ensure no overloading
-        for (MJMethod method : currClass.getAllMethods()) {
-            if (!argu.noOverloading(currClass, parentClass, method.getMethodName()))
-                throw new MJTypeCheckException("Overloading found");
-        }
-        MJType ret = null;
-        // Check through methods
-        for (Node method : n.f6.nodes) {
-            ret = method.accept(this, argu);
-        }
-        return ret;
+        currentClass = currClass;
+        inMain = false;
+        callingMethodStack.clear();
     }
 
     /**
@@ -162,7 +238,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(VarDeclaration n, ContextTable argu) {
+    public MJType visit(VarDeclaration n, SymbolTable argu) {
         return null;
     }
 
@@ -184,48 +260,65 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param n
      * @param argu
      */
-    @Override
-    public MJType visit(MethodDeclaration n, ContextTable argu) throws MJTypeCheckException {
+    private void enter(MethodDeclaration n, SymbolTable argu) {
         // Get the name of the method
-        String currentMethodName = n.f2.accept(this, argu).getName();
+        String currentMethodName = n.f2.f0.toString();
         // Find the method in the context of the current class
-        MJClass currentClass = argu.getCurrentClass();
-        MJMethod currentMethod = currentClass.getClassMethod(currentMethodName);
+        VMethod currentMethod = currentClass.getDeclaredMethod(currentMethodName);
         // Declaration so start call stack
-        currentClass.callingMethodStack.clear();
-        currentClass.callingMethodStack.push(currentMethod);
+        callingMethodStack.clear();
+        callingMethodStack.push(currentMethod);
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( FormalParameterList() )?
+     * f5 -> ")"
+     * f6 -> "{"
+     * f7 -> ( VarDeclaration() )*
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     *
+     * @param n
+     * @param argu
+     */
+    @Override
+    public MJType visit(MethodDeclaration n, SymbolTable argu) throws MJTypeCheckException {
+        MethodTypes currentMethod = types(callingMethodStack.peek());
         // Get the return type of the method
-        MJType returnExpression = n.f10.accept(this, argu);
+        MJType returnExpression = result(10);
         boolean found = false;
         if (returnExpression.getType() == MJType.Type.IDENT) {
             // Check through class context
-            if (currentClass.findVarInFields(returnExpression) != null) {
+            if (find(returnExpression, fields(currentClass)) != null) {
                 found = true;
-                returnExpression = currentClass.findVarInFields(returnExpression);
+                returnExpression = find(returnExpression, fields(currentClass));
             }
             // Check through parameters
-            if (currentMethod.findInParams(returnExpression) != null) {
+            if (find(returnExpression, currentMethod.params) != null) {
                 found = true;
-                returnExpression = currentMethod.findInParams(returnExpression);
+                returnExpression = find(returnExpression, currentMethod.params);
             }
             // Check through local variables - most recent scope
-            if (currentMethod.findInLocals(returnExpression) != null) {
+            if (find(returnExpression, currentMethod.vars) != null) {
                 found = true;
-                returnExpression = currentMethod.findInLocals(returnExpression);
+                returnExpression = find(returnExpression, currentMethod.vars);
             }
             if (!found) {
                 throw new MJTypeCheckException("Could not find return identifier");
             }
         }
-        if (returnExpression.getType() != currentMethod.getReturnType().getType()) {
+        if (returnExpression.getType() != currentMethod.returnType.getType()) {
             throw new MJTypeCheckException("Invalid return type");
         }
-        // Complete all statements in method
-        for (Node statement : n.f8.nodes) {
-            statement.accept(this, argu);
-        }
         // We are done with the method, so clear the stack
-        currentClass.callingMethodStack.pop();
+        callingMethodStack.pop();
         return null;
     }
 
@@ -237,7 +330,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(FormalParameterList n, ContextTable argu) {
+    public MJType visit(FormalParameterList n, SymbolTable argu) {
         return null;
     }
 
@@ -249,7 +342,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(FormalParameter n, ContextTable argu) {
+    public MJType visit(FormalParameter n, SymbolTable argu) {
         return null;
     }
 
@@ -261,7 +354,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(FormalParameterRest n, ContextTable argu) {
+    public MJType visit(FormalParameterRest n, SymbolTable argu) {
         return null;
     }
 
@@ -275,7 +368,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(Type n, ContextTable argu) {
+    public MJType visit(Type n, SymbolTable argu) {
         return null;
     }
 
@@ -288,7 +381,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ArrayType n, ContextTable argu) {
+    public MJType visit(ArrayType n, SymbolTable argu) {
         return null;
     }
 
@@ -299,7 +392,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(BooleanType n, ContextTable argu) {
+    public MJType visit(BooleanType n, SymbolTable argu) {
         return null;
     }
 
@@ -310,7 +403,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(IntegerType n, ContextTable argu) {
+    public MJType visit(IntegerType n, SymbolTable argu) {
         return null;
     }
 
@@ -326,8 +419,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(Statement n, ContextTable argu) {
-        return n.f0.accept(this, argu);
+    public MJType visit(Statement n, SymbolTable argu) {
+        return result(0);
     }
 
     /**
@@ -339,11 +432,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(Block n, ContextTable argu) {
-        // Type check the statements in block
-        for(Node statement : n.f1.nodes) {
-            statement.accept(this, argu);
-        }
+    public MJType visit(Block n, SymbolTable argu) {
+        // Statements in block have been type checked
         return null;
     }
 
@@ -357,41 +447,40 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(AssignmentStatement n, ContextTable argu) {
-        //MJClass currentClass = argu.getCurrentClass();
-        MJClass currentClass = argu.classStack.get(0);
-        MJType identifier = n.f0.accept(this, argu);
+    public MJType visit(AssignmentStatement n, SymbolTable argu) {
+        Set<MJType> classFields = fields(currentClass);
+        MJType identifier = result(0);
         // Identifier must exist in the top level method or in class
-        MJMethod topMethod = currentClass.callingMethodStack.get(0);
+        MethodTypes topMethod = types(callingMethodStack.get(0));
         boolean foundRHS = false;
         boolean foundLHS = false;
-        MJType matchedIdentifier = n.f2.accept(this, argu);
+        MJType matchedIdentifier = result(2);
         // Look through class fields again for reassurance
-        if (currentClass.findVarInFields(matchedIdentifier) != null) {
+        if (find(matchedIdentifier, classFields) != null) {
             foundRHS = true;
-            matchedIdentifier = currentClass.findVarInFields(matchedIdentifier);
+            matchedIdentifier = find(matchedIdentifier, classFields);
         }
-        if (currentClass.findVarInFields(identifier) != null) {
+        if (find(identifier, classFields) != null) {
             foundLHS= true;
-            identifier = currentClass.findVarInFields(identifier);
+            identifier = find(identifier, classFields);
         }
         // Look through method params again for reassurance
-        if (topMethod.findInParams(matchedIdentifier) != null) {
+        if (find(matchedIdentifier, topMethod.params) != null) {
             foundRHS = true;
-            matchedIdentifier = topMethod.findInParams(matchedIdentifier);
+            matchedIdentifier = find(matchedIdentifier, topMethod.params);
         }
-        if (topMethod.findInParams(identifier) != null) {
+        if (find(identifier, topMethod.params) != null) {
             foundLHS = true;
-            identifier = topMethod.findInParams(identifier);
+            identifier = find(identifier, topMethod.params);
         }
         // Look through method local variables again for reassurance
-        if (topMethod.findInLocals(matchedIdentifier) != null) {
+        if (find(matchedIdentifier, topMethod.vars) != null) {
             foundRHS = true;
-            matchedIdentifier = topMethod.findInLocals(matchedIdentifier);
+            matchedIdentifier = find(matchedIdentifier, topMethod.vars);
         }
-        if (topMethod.findInLocals(identifier) != null) {
+        if (find(identifier, topMethod.vars) != null) {
             foundLHS = true;
-            identifier = topMethod.findInLocals(identifier);
+            identifier = find(identifier, topMethod.vars);
         }
         // Couldn't find a match
         if (foundRHS && foundLHS) {
@@ -400,12 +489,12 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
             }
             if(identifier.hasSubtype() && matchedIdentifier.hasSubtype()) {
                 if (!identifier.getSubtype().equals(matchedIdentifier.getSubtype())) {
-                    if(!argu.linkExists(identifier.getSubtype(), matchedIdentifier.getSubtype()))
+                    if(!linkExists(argu, identifier.getSubtype(), matchedIdentifier.getSubtype()))
                         throw new MJTypeCheckException("Incompatible subclass assignment");
                 }
             }
         } else {
-            if (!argu.linkExists(identifier.getSubtype(), matchedIdentifier.getSubtype()))
+            if (!linkExists(argu, identifier.getSubtype(), matchedIdentifier.getSubtype()))
                 throw new MJTypeCheckException("Invalid assignment: identifier not found");
         }
         return null;
@@ -424,10 +513,10 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ArrayAssignmentStatement n, ContextTable argu) throws MJTypeCheckException {
-        MJType array = n.f0.accept(this, argu);
-        MJType arrayIndex = n.f2.accept(this, argu);
-        MJType arrayValue = n.f5.accept(this, argu);
+    public MJType visit(ArrayAssignmentStatement n, SymbolTable argu) throws MJTypeCheckException {
+        MJType array = result(0);
+        MJType arrayIndex = result(2);
+        MJType arrayValue = result(5);
         // Has to be of type array with ints for the index and value
         if (array.getType() == MJType.Type.ARRAY
                 && arrayIndex.getType() == MJType.Type.INT
@@ -450,13 +539,10 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(IfStatement n, ContextTable argu) throws MJTypeCheckException {
-        MJType conditionalExpression = n.f2.accept(this, argu);
-        // Conditional has to be boolean
+    public MJType visit(IfStatement n, SymbolTable argu) throws MJTypeCheckException {
+        MJType conditionalExpression = result(2);
+        // Conditional has to be boolean, both statements are already checked
         if (conditionalExpression.getType() == MJType.Type.BOOLEAN) {
-            // Type check both statements
-            n.f4.accept(this, argu);
-            n.f6.accept(this, argu);
             return null;
         }
         throw new MJTypeCheckException("Need a boolean within if/else statement");
@@ -473,13 +559,13 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(WhileStatement n, ContextTable argu) throws MJTypeCheckException {
-        MJType conditionalExpression = n.f2.accept(this, argu);
+    public MJType visit(WhileStatement n, SymbolTable argu) throws MJTypeCheckException {
+        MJType conditionalExpression = result(2);
         // Conditional has to be boolean
         if (conditionalExpression.getType() != MJType.Type.BOOLEAN)
             throw new MJTypeCheckException("Need a boolean within while statement");
-        // Type check following statement
-        return n.f4.accept(this, argu);
+        // Following statement is already type checked
+        return result(4);
     }
 
     /**
@@ -493,8 +579,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(PrintStatement n, ContextTable argu) throws MJTypeCheckException {
-        MJType printExpression = n.f2.accept(this, argu);
+    public MJType visit(PrintStatement n, SymbolTable argu) throws MJTypeCheckException {
+        MJType printExpression = result(2);
         // Print expression must be of type int for successful printing
         if (printExpression.getType() != MJType.Type.INT)
             throw new MJTypeCheckException("Need an integer for printing");
@@ -516,8 +602,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(Expression n, ContextTable argu) {
-        return n.f0.accept(this, argu);
+    public MJType visit(Expression n, SymbolTable argu) {
+        return result(0);
     }
 
     /**
@@ -529,9 +615,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(AndExpression n, ContextTable argu) throws MJTypeCheckException {
-        MJType lvalue = n.f0.accept(this, argu);
-        MJType rvalue = n.f2.accept(this, argu);
+    public MJType visit(AndExpression n, SymbolTable argu) throws MJTypeCheckException {
+        MJType lvalue = result(0);
+        MJType rvalue = result(2);
         // Both sides of the binary expression must be boolean
         if (lvalue.getType() == MJType.Type.BOOLEAN && rvalue.getType() == MJType.Type.BOOLEAN) {
             return new MJType(null, MJType.Type.BOOLEAN);
@@ -548,9 +634,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(CompareExpression n, ContextTable argu) {
-        MJType lvalue = n.f0.accept(this, argu);
-        MJType rvalue = n.f2.accept(this, argu);
+    public MJType visit(CompareExpression n, SymbolTable argu) {
+        MJType lvalue = result(0);
+        MJType rvalue = result(2);
         // Both sides of the binary expression must be ints
         if (lvalue.getType() == MJType.Type.INT && rvalue.getType() == MJType.Type.INT) {
             return new MJType(null, MJType.Type.BOOLEAN);
@@ -567,9 +653,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(PlusExpression n, ContextTable argu) {
-        MJType lvalue = n.f0.accept(this, argu);
-        MJType rvalue = n.f2.accept(this, argu);
+    public MJType visit(PlusExpression n, SymbolTable argu) {
+        MJType lvalue = result(0);
+        MJType rvalue = result(2);
         // Both sides of the binary expression must be ints
         if (lvalue.getType() == MJType.Type.INT && rvalue.getType() == MJType.Type.INT) {
             return new MJType(null, MJType.Type.INT);
@@ -586,9 +672,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(MinusExpression n, ContextTable argu) {
-        MJType lvalue = n.f0.accept(this, argu);
-        MJType rvalue = n.f2.accept(this, argu);
+    public MJType visit(MinusExpression n, SymbolTable argu) {
+        MJType lvalue = result(0);
+        MJType rvalue = result(2);
         // Both sides of the binary expression must be ints
         if (lvalue.getType() == MJType.Type.INT && rvalue.getType() == MJType.Type.INT) {
             return new MJType(null, MJType.Type.INT);
@@ -605,9 +691,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(TimesExpression n, ContextTable argu) {
-        MJType lvalue = n.f0.accept(this, argu);
-        MJType rvalue = n.f2.accept(this, argu);
+    public MJType visit(TimesExpression n, SymbolTable argu) {
+        MJType lvalue = result(0);
+        MJType rvalue = result(2);
         // Both sides of the binary expression must be ints
         if (lvalue.getType() == MJType.Type.INT && rvalue.getType() == MJType.Type.INT) {
             return new MJType(null, MJType.Type.INT);
@@ -625,9 +711,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ArrayLookup n, ContextTable argu) throws MJTypeCheckException {
-        MJType array = n.f0.accept(this, argu);
-        MJType arrayValue = n.f2.accept(this, argu);
+    public MJType visit(ArrayLookup n, SymbolTable argu) throws MJTypeCheckException {
+        MJType array = result(0);
+        MJType arrayValue = result(2);
         // Array lookup must act on an array with an int based index
         if (array.getType() == MJType.Type.ARRAY && arrayValue.getType() == MJType.Type.INT) {
             return new MJType(null, MJType.Type.INT);
@@ -644,8 +730,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ArrayLength n, ContextTable argu) throws MJTypeCheckException {
-        MJType array = n.f0.accept(this, argu);
+    public MJType visit(ArrayLength n, SymbolTable argu) throws MJTypeCheckException {
+        MJType array = result(0);
         if (array.getType() == MJType.Type.ARRAY)
             return new MJType(null, MJType.Type.INT);
         throw new MJTypeCheckException("Invalid array length");
@@ -662,38 +748,43 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param n
      * @param argu
      */
-    @Override
-    public MJType visit(MessageSend n, ContextTable argu) throws MJTypeCheckException {
+    private void enterCall(MessageSend n, SymbolTable argu) throws MJTypeCheckException {
         // Can only work on defined class instances
-        MJType classInstance = n.f0.accept(this, argu);
+        MJType classInstance = result(0);
         if (!classInstance.hasSubtype()) {
             throw new MJTypeCheckException("Method can only be called on a valid class instance");
         }
-        MJClass currentClass = argu.getCurrentClass();
-        // This sets the most recent class to be the instantiated one
-        MJClass instanceClassType = argu.getClass(classInstance.getSubtype());
-        String methodName = n.f2.accept(this, argu).getName();
+        VClass instanceClassType = argu.getClass(classInstance.getSubtype());
+        if (instanceClassType == null) {
+            throw new MJTypeCheckException("Could not find requested class");
+        }
+        String methodName = n.f2.f0.toString();
         // Find the method based on this name in the instance class type
-        MJMethod calledMethod = instanceClassType.getClassMethod(methodName);
+        VMethod calledMethod = instanceClassType.getMethod(methodName);
         if (calledMethod == null) {
             throw new MJTypeCheckException("Invalid method call on given class");
         }
         // We are within a method declaration so push onto call stack
-        currentClass.callingMethodStack.push(calledMethod);
-        if (n.f4 == null) {
-            // No arguments supplied only valid if original method had no parameters
-            if (calledMethod.params.size() != 0) {
-                throw new MJTypeCheckException("Incorrect number of arguments supplied");
-            }
-        } else {
-            // Check each parameter with its matching type in the called method
-            n.f4.accept(this, argu);
-        }
-        // Reset the current class
-        argu.setCurrentClass(currentClass);
-        // Remove the method from the classes call stack
-        argu.getCurrentClass().callingMethodStack.pop();
-        return calledMethod.getReturnType();
+        callingMethodStack.push(calledMethod);
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( ExpressionList() )?
+     * f5 -> ")"
+     *
+     * @param n
+     * @param argu
+     */
+    @Override
+    public MJType visit(MessageSend n, SymbolTable argu) {
+        // Each argument has been checked against the called method, so
+        // remove it from the call stack
+        VMethod calledMethod = callingMethodStack.pop();
+        return types(calledMethod).returnType;
     }
 
     /**
@@ -704,35 +795,27 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ExpressionList n, ContextTable argu) throws MJTypeCheckException {
+    public MJType visit(ExpressionList n, SymbolTable argu) throws MJTypeCheckException {
         // Convert params to a List so as to preserve ordering and retrieve in O(1)
-        Set<MJType> params = null;
-        MJClass currentClass = argu.getCurrentClass();
-        if (!currentClass.callingMethodStack.empty()) {
-            params = currentClass.callingMethodStack.peek().params;
-        } else {
-            params = currentClass.getMRUMethod().params;
-        }
-        List<MJType> methodParams = new ArrayList<>(params);
+        List<MJType> methodParams = new ArrayList<>(calledMethodParams());
         if (!methodParams.isEmpty()) {
             if (methodParams.size() != 1 + n.f1.size()) {
                 throw new MJTypeCheckException("Incorrect number of arguments supplied");
             }
-            MJType firstArgument = n.f0.accept(this, argu);
+            MJType firstArgument = result(0);
             MJType firstParameter = methodParams.get(0);
             boolean isSubclass = (firstParameter.hasSubtype() && firstArgument.hasSubtype())
-                    && argu.linkExists(firstArgument.getSubtype(), firstParameter.getSubtype());
+                    && linkExists(argu, firstArgument.getSubtype(), firstParameter.getSubtype());
             boolean isSameClassType = (firstParameter.hasSubtype() && firstArgument.hasSubtype())
                     && firstArgument.getSubtype().equals(firstParameter.getSubtype());
             // Compare first argument
             if (firstParameter.equals(firstArgument) || (isSubclass || isSameClassType)) {
                 int i = 1;
                 // Compare rest if they exist
-                for(Node expression : n.f1.nodes) {
-                    MJType argument = expression.accept(this, argu);
+                for(MJType argument : results(1)) {
                     MJType parameter = methodParams.get(i);
                     isSubclass = (parameter.hasSubtype() && argument.hasSubtype())
-                            && argu.linkExists(argument.getSubtype(), parameter.getSubtype());
+                            && linkExists(argu, argument.getSubtype(), parameter.getSubtype());
                     isSameClassType = (parameter.hasSubtype() && argument.hasSubtype())
                             && parameter.getSubtype().equals(argument.getSubtype());
                     boolean equality = (parameter.equals(argument) || isSubclass || isSameClassType);
@@ -746,6 +829,15 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
         return null;
     }
 
+    /**
+     * Parameters of the method whose arguments are being checked
+     *
+     * @return Parameters of the called method
+     */
+    private Set<MJType> calledMethodParams() {
+        return types(callingMethodStack.peek()).params;
+    }
+
     /**
      * f0 -> ","
      * f1 -> Expression()
@@ -754,8 +846,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ExpressionRest n, ContextTable argu) {
-        return n.f1.accept(this, argu);
+    public MJType visit(ExpressionRest n, SymbolTable argu) {
+        return result(1);
     }
 
     /**
@@ -773,8 +865,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(PrimaryExpression n, ContextTable argu) {
-        return n.f0.accept(this, argu);
+    public MJType visit(PrimaryExpression n, SymbolTable argu) {
+        return result(0);
     }
 
     /**
@@ -784,7 +876,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(IntegerLiteral n, ContextTable argu) {
+    public MJType visit(IntegerLiteral n, SymbolTable argu) {
         return new MJType(n.f0.toString(), MJType.Type.INT);
     }
 
@@ -795,7 +887,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(TrueLiteral n, ContextTable argu) {
+    public MJType visit(TrueLiteral n, SymbolTable argu) {
         return new MJType(n.f0.toString(), MJType.Type.BOOLEAN);
     }
 
@@ -806,7 +898,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(FalseLiteral n, ContextTable argu) {
+    public MJType visit(FalseLiteral n, SymbolTable argu) {
         return new MJType(n.f0.toString(), MJType.Type.BOOLEAN);
     }
 
@@ -817,19 +909,18 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(Identifier n, ContextTable argu) {
+    public MJType visit(Identifier n, SymbolTable argu) {
         String identifierName = n.f0.toString();
-        MJClass currentClass = argu.getCurrentClass();
         MJType newIdentifier = null;
         // The identifier already exists
         // in the current class' field set
-        for(MJType field : currentClass.getFields()) {
+        for(MJType field : fields(currentClass)) {
             if(field.getName().equals(identifierName)) {
                 newIdentifier = field;
             }
         }
-        if(!currentClass.callingMethodStack.empty()) {
-            MJMethod currMethod = currentClass.callingMethodStack.get(0);
+        if(!callingMethodStack.empty()) {
+            MethodTypes currMethod = types(callingMethodStack.get(0));
             // in the current called method's parameters
             for (MJType var : currMethod.vars) {
                 if (var.getName().equals(identifierName)) {
@@ -857,10 +948,9 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ThisExpression n, ContextTable argu) throws MJTypeCheckException {
-        MJClass currentClass = argu.getCurrentClass();
-        String className = currentClass.getClassName();
-        if (currentClass.isMain) {
+    public MJType visit(ThisExpression n, SymbolTable argu) throws MJTypeCheckException {
+        String className = currentClass.className;
+        if (inMain) {
             throw new MJTypeCheckException("Cannot reference this from static context");
         }
         return new MJType(n.f0.toString(), MJType.Type.IDENT, className);
@@ -877,8 +967,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(ArrayAllocationExpression n, ContextTable argu) throws MJTypeCheckException {
-        MJType arrayIndex = n.f3.accept(this, argu);
+    public MJType visit(ArrayAllocationExpression n, SymbolTable argu) throws MJTypeCheckException {
+        MJType arrayIndex = result(3);
         // The array index must be of type int
         if (arrayIndex.getType() != MJType.Type.INT)
             throw new MJTypeCheckException("Cannot allocate a non integer amount");
@@ -895,8 +985,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(AllocationExpression n, ContextTable argu) {
-        MJType newIdentifier = n.f1.accept(this, argu);
+    public MJType visit(AllocationExpression n, SymbolTable argu) {
+        MJType newIdentifier = result(1);
         // For a new class the subtype is the same as the class name
         newIdentifier.setSubtype(newIdentifier.getName());
         return newIdentifier;
@@ -910,8 +1000,8 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(NotExpression n, ContextTable argu) throws MJTypeCheckException {
-        MJType expression = n.f1.accept(this, argu);
+    public MJType visit(NotExpression n, SymbolTable argu) throws MJTypeCheckException {
+        MJType expression = result(1);
         // Logical NOT must be applied on a boolean
         if (expression.getType() != MJType.Type.BOOLEAN)
             throw new MJTypeCheckException("Logical NOT can only apply on booleans");
@@ -927,7 +1017,7 @@ public class TypecheckVisitor extends GJDepthFirst<MJType, ContextTable> {
      * @param argu
      */
     @Override
-    public MJType visit(BracketExpression n, ContextTable argu) {
-        return n.f1.accept(this, argu);
+    public MJType visit(BracketExpression n, SymbolTable argu) {
+        return result(1);
     }
 }
@@ -1,39 +1,167 @@
+import ir.ConstantPropagation;
+import ir.CopyPropagation;
+import ir.DeadCodeElimination;
+import ir.Function;
+import ir.Inliner;
+import ir.LocalValueNumbering;
+import ir.LoopInvariantCodeMotion;
+import ir.NullCheckElimination;
+import ir.Pass;
+import ir.Program;
+import ir.ScalarReplacement;
+import ir.StrengthReduction;
+import ir.TailCallElimination;
+import ir.TempRecycling;
+import ir.VaporEmitter;
+import symbols.ContextVisitor;
+import symbols.SymbolTable;
 import syntaxtree.Goal;
 
-import java.util.LinkedList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class J2V {
 
     private static final String PARSE_ERROR = "Parse error";
+    // Classes parsed ahead of the context builder
+    private static final int PENDING_CLASSES = 16;
+    // Prints translation statistics to stderr
+    private static final String STATS_FLAG = "--stats";
+    // Sets the largest function inlined, in instructions
+    private static final String INLINE_FLAG = "--inline-budget=";
+    private static final int INLINE_BUDGET = 12;
+    // What inlineBudget gives for a value that is not a budget
+    private static final int NO_BUDGET = -1;
+    // Translates the classes one after the other on the main thread
+    private static final String SEQUENTIAL_FLAG = "--sequential";
+    // Optimizations run over every function, in order
+    private static final List<Pass> PASSES = Arrays.asList(
+            // Loops out of self tail calls first, so the loop passes see them
+            new TailCallElimination(),
+            new CopyPropagation(),
+            new ConstantPropagation(),
+            new LocalValueNumbering(),
+            new LoopInvariantCodeMotion(),
+            new StrengthReduction(),
+            new NullCheckElimination(),
+            new DeadCodeElimination(),
+            // Split objects that stay in the function into their fields,
+            // which then fold like any other variable
+            new ScalarReplacement(),
+            new CopyPropagation(),
+            new ConstantPropagation(),
+            new DeadCodeElimination());
 
     /**
-     * Pretty prints the vapor AST
-     * @param vapor The vapor AST built as a linked list of vapor code strings
+     * Runs the optimization passes over the translated program, inlines
+     * the small functions once they are as small as they get, and runs
+     * the passes again over the functions they were inlined into. Temps
+     * are then renamed to as few names as possible
+     * @param program The vapor program built by the translator
+     * @param inliner Inliner to use
      */
-    public static void printVapor(LinkedList<String> vapor) {
-        for(String line : vapor) {
-            System.out.println(line);
+    public static void optimize(Program program, Inliner inliner) {
+        for (Function function : program.functions) {
+            optimize(function);
         }
+        for (Function function : inliner.run(program)) {
+            optimize(function);
+        }
+        // Last, once no pass makes new temps
+        for (Function function : program.functions) {
+            new TempRecycling().run(function);
+        }
+    }
+
+    private static void optimize(Function function) {
+        for (Pass pass : PASSES) {
+            pass.run(function);
+        }
+    }
+
+    /**
+     * Streams the vapor program out
+     * @param program The vapor program built by the translator
+     */
+    public static void printVapor(Program program) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        new VaporEmitter(out).emit(program);
+    }
+
+    /**
+     * @param value The value given to the inline budget flag
+     * @return The budget, or NO_BUDGET if the value is not one
+     */
+    private static int inlineBudget(String value) {
+        int budget;
+        try {
+            budget = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return NO_BUDGET;
+        }
+        return budget < 0 ? NO_BUDGET : budget;
     }
 
     public static void main (String [] args) {
+        boolean stats = false;
+        int inlineBudget = INLINE_BUDGET;
+        boolean sequential = false;
+        for (String arg : args) {
+            if (arg.equals(STATS_FLAG))
+                stats = true;
+            else if (arg.equals(SEQUENTIAL_FLAG))
+                sequential = true;
+            else if (arg.startsWith(INLINE_FLAG)) {
+                inlineBudget = inlineBudget(arg.substring(INLINE_FLAG.length()));
+                if (inlineBudget == NO_BUDGET) {
+                    System.err.println("Usage: " + INLINE_FLAG + "<n>, where n is a whole number"
+                            + " of instructions, 0 or more, not \"" + arg.substring(INLINE_FLAG.length()) + "\"");
+                    System.exit(1);
+                }
+            }
+        }
         try {
-            // Start parse
-            Goal goal = new MiniJavaParser(System.in).Goal();
+            // Start parse, only brace matching method bodies
+            LazyParser parser = new LazyParser(new InputStreamReader(System.in));
             ContextVisitor contextVisitor = new ContextVisitor();
-            // Build Context Table
-            goal.accept(contextVisitor);
-            // Print out the VMT
-            contextVisitor.printVMTs();
-            TranslatorVisitor translatorVisitor = new TranslatorVisitor();
-            // Generate Vapor AST
-            LinkedList<String> vaporCode = goal.accept(translatorVisitor, contextVisitor.classes);
+            // Build Context Table class by class while the parse goes on
+            Goal goal = parser.pipelinedDeclarations(PENDING_CLASSES,
+                    declaration -> contextVisitor.traverse(declaration, null));
+            // Parse the method bodies now that they are needed
+            parser.parseBodies();
+            // Find what main can reach, only that gets translated
+            RapidTypeAnalysis reachable = RapidTypeAnalysis.of(goal, contextVisitor.classes);
+            // Freeze the context, every later pass only reads it
+            SymbolTable symbols = new SymbolTable(contextVisitor.classes, reachable);
+            // Classes are translated in parallel unless asked otherwise, the
+            // output is the same either way
+            TranslatorVisitor translatorVisitor = sequential ? new TranslatorVisitor()
+                    : new TranslatorVisitor(ForkJoinPool.commonPool());
+            // Generate Vapor program, VMTs included
+            Program vapor = translatorVisitor.translate(goal, symbols);
+            Inliner inliner = new Inliner(inlineBudget);
+            optimize(vapor, inliner);
+            if (stats) {
+                System.err.println("Devirtualized " + translatorVisitor.directCalls() + " of "
+                        + translatorVisitor.callSites() + " call sites");
+                System.err.println("Kept " + reachable.reachableCount() + " of "
+                        + reachable.methodCount() + " methods");
+                System.err.println("Inlined " + inliner.inlined() + " call sites");
+            }
             // Print out vapor
-            printVapor(vaporCode);
+            printVapor(vapor);
         } catch (ParseException e) {
             e.printStackTrace();
             System.out.println(PARSE_ERROR);
             return;
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
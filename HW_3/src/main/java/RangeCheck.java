@@ -0,0 +1,271 @@
+import symbols.*;
+import syntaxtree.*;
+import visitor.DepthFirstVisitor;
+
+import java.util.*;
+
+/**
+ * RangeCheck is a single check that can stand in for the bounds checks of
+ * a while loop counting an index up to a bound, as in
+ *
+ *     while (i < size) { ... a[i] ... a[(i+1)] ... i = i + 1; }
+ *
+ * At every access the index lies between its value when the loop starts
+ * and the bound minus one, plus the offset it is used with. So when the
+ * start is at least minus the smallest offset, and the bound plus the
+ * largest offset is at most the array's length, none of the accesses can
+ * be out of bounds. This only holds while nothing else in the loop changes
+ * the index, the bound or the array, which is what the analysis checks.
+ *
+ * The bound may be an integer literal, a variable or the length of an
+ * array. MiniJava only parses a length on the right of a comparison in
+ * brackets, as in while (i < (a.length)).
+ *
+ * Only innermost loops get a check. The translator copies a checked loop
+ * whole, so checking an outer loop would copy every loop inside it as
+ * well, and code size would double with each level of nesting.
+ */
+public final class RangeCheck {
+    // Larger offsets are left to the per access checks
+    private static final int MAX_OFFSET = 1 << 16;
+
+    public final String index;
+    // Integer literal, Identifier or ArrayLength the index is compared to, unwrapped
+    public final Node bound;
+    // Smallest and largest offset each array is indexed with, in source order
+    public final Map<String, int[]> offsets = new LinkedHashMap<>();
+    // Array lookups and assignments the check covers
+    private final Set<Node> accesses = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+
+    private RangeCheck(String index, Node bound) {
+        this.index = index;
+        this.bound = bound;
+    }
+
+    /**
+     * @return The ArrayLookup and ArrayAssignmentStatement nodes that need
+     * no bounds check once this check passed
+     */
+    public Set<Node> accesses() {
+        return accesses;
+    }
+
+    /**
+     * Looks for a range check for a loop
+     * @param loop The loop in question
+     * @param method Method the loop is in
+     * @return The check, or null if the loop does not have the right shape
+     * or no access can be covered
+     */
+    public static RangeCheck of(WhileStatement loop, VMethod method) {
+        Node cond = unwrap(loop.f2);
+        if(!(cond instanceof CompareExpression))
+            return null;
+        Node index = unwrap(((CompareExpression) cond).f0);
+        Node bound = unwrap(((CompareExpression) cond).f2);
+        if(!(index instanceof Identifier) || !isVariable((Identifier) index, method, false))
+            return null;
+        if(!(bound instanceof IntegerLiteral || bound instanceof Identifier || bound instanceof ArrayLength))
+            return null;
+        Node body = loop.f4.f0.choice;
+        if(!(body instanceof Block))
+            return null;
+        RangeCheck range = new RangeCheck(name(index), bound);
+        Scan loopScan = new Scan(range.index, 0);
+        body.accept(loopScan);
+        if(loopScan.indexAssignments != 1 || loopScan.hasLoop)
+            return null;
+        // The only change to the index is a single top level step up, anywhere in the body
+        NodeListOptional statements = ((Block) body).f1;
+        int stepAt = -1;
+        int step = 0;
+        for(int i = 0; i < statements.size(); i++) {
+            int stepBy = step((Statement) statements.elementAt(i), range.index);
+            if(stepBy > 0) {
+                stepAt = i;
+                step = stepBy;
+            }
+        }
+        if(stepAt < 0)
+            return null;
+        if(!range.isInvariant(bound, loopScan, method))
+            return null;
+        // Accesses after the step see the index one step further
+        for(int i = 0; i < statements.size(); i++) {
+            Scan scan = new Scan(range.index, i > stepAt ? step : 0);
+            statements.elementAt(i).accept(scan);
+            for(Map.Entry<Node, Integer> access : scan.accesses.entrySet()) {
+                Node array = arrayOf(access.getKey());
+                if(!range.isInvariant(array, loopScan, method))
+                    continue;
+                int offset = access.getValue();
+                int[] seen = range.offsets.get(name(array));
+                if(seen == null)
+                    range.offsets.put(name(array), new int[] {offset, offset});
+                else
+                    range.offsets.put(name(array), new int[] {Math.min(seen[0], offset), Math.max(seen[1], offset)});
+                range.accesses.add(access.getKey());
+            }
+        }
+        return range.accesses.isEmpty() ? null : range;
+    }
+
+    /**
+     * @return The smallest offset the index is used with, over all arrays
+     */
+    public int lowestOffset() {
+        int lowest = Integer.MAX_VALUE;
+        for(int[] offset : offsets.values()) {
+            lowest = Math.min(lowest, offset[0]);
+        }
+        return lowest;
+    }
+
+    // Whether a bound or an array keeps its value for the whole loop
+    private boolean isInvariant(Node node, Scan loopScan, VMethod method) {
+        if(node instanceof IntegerLiteral)
+            return true;
+        if(node instanceof ArrayLength)
+            node = unwrap(((ArrayLength) node).f0);
+        if(!(node instanceof Identifier) || name(node).equals(index) || loopScan.assigned.contains(name(node)))
+            return false;
+        // A call may store to any field
+        return isVariable((Identifier) node, method, !loopScan.hasCall);
+    }
+
+    private static boolean isVariable(Identifier id, VMethod method, boolean fieldsAllowed) {
+        Location location = method.locate(name(id));
+        return location != null && (fieldsAllowed || !location.isField());
+    }
+
+    /**
+     * @param statement Statement in question
+     * @param index Name of the index
+     * @return The step if the statement is index = index + step, otherwise 0
+     */
+    private static int step(Statement statement, String index) {
+        if(!(statement.f0.choice instanceof AssignmentStatement))
+            return 0;
+        AssignmentStatement assign = (AssignmentStatement) statement.f0.choice;
+        Node value = unwrap(assign.f2);
+        if(!name(assign.f0).equals(index) || !(value instanceof PlusExpression))
+            return 0;
+        PlusExpression plus = (PlusExpression) value;
+        Node left = unwrap(plus.f0);
+        Node right = unwrap(plus.f2);
+        if(!(left instanceof Identifier) || !name(left).equals(index) || !(right instanceof IntegerLiteral))
+            return 0;
+        int step = literal(right);
+        return step > 0 && step <= MAX_OFFSET ? step : 0;
+    }
+
+    private static Node arrayOf(Node access) {
+        if(access instanceof ArrayAssignmentStatement)
+            return ((ArrayAssignmentStatement) access).f0;
+        return unwrap(((ArrayLookup) access).f0);
+    }
+
+    /**
+     * Strips the wrappers JTB puts around an expression
+     * @param node Expression, PrimaryExpression or BracketExpression
+     * @return The node doing the actual work
+     */
+    static Node unwrap(Node node) {
+        while(true) {
+            if(node instanceof Expression)
+                node = ((Expression) node).f0.choice;
+            else if(node instanceof PrimaryExpression)
+                node = ((PrimaryExpression) node).f0.choice;
+            else if(node instanceof BracketExpression)
+                node = ((BracketExpression) node).f1;
+            else
+                return node;
+        }
+    }
+
+    private static String name(Node id) {
+        return ((Identifier) id).f0.toString();
+    }
+
+    private static int literal(Node literal) {
+        try {
+            return Integer.parseInt(((IntegerLiteral) literal).f0.toString());
+        } catch(NumberFormatException e) {
+            return MAX_OFFSET + 1;
+        }
+    }
+
+    /**
+     * Collects what a loop body assigns and calls, whether it has loops of
+     * its own, and the offset from the index of every array access indexed
+     * by it
+     */
+    private static final class Scan extends DepthFirstVisitor {
+        final String index;
+        // Added to the offsets, for accesses after the index steps up
+        final int shift;
+        final Set<String> assigned = new HashSet<>();
+        int indexAssignments = 0;
+        boolean hasCall = false;
+        boolean hasLoop = false;
+        final Map<Node, Integer> accesses = new LinkedHashMap<>();
+
+        Scan(String index, int shift) {
+            this.index = index;
+            this.shift = shift;
+        }
+
+        private void access(Node access, Node indexExpr) {
+            Node value = unwrap(indexExpr);
+            int offset;
+            if(value instanceof Identifier && name(value).equals(index)) {
+                offset = 0;
+            } else if(value instanceof PlusExpression || value instanceof MinusExpression) {
+                Node left = unwrap(value instanceof PlusExpression ? ((PlusExpression) value).f0 : ((MinusExpression) value).f0);
+                Node right = unwrap(value instanceof PlusExpression ? ((PlusExpression) value).f2 : ((MinusExpression) value).f2);
+                if(!(left instanceof Identifier) || !name(left).equals(index) || !(right instanceof IntegerLiteral))
+                    return;
+                offset = literal(right);
+                if(offset > MAX_OFFSET)
+                    return;
+                if(value instanceof MinusExpression)
+                    offset = -offset;
+            } else {
+                return;
+            }
+            accesses.put(access, offset + shift);
+        }
+
+        @Override
+        public void visit(AssignmentStatement n) {
+            assigned.add(name(n.f0));
+            if(name(n.f0).equals(index))
+                indexAssignments++;
+            super.visit(n);
+        }
+
+        @Override
+        public void visit(ArrayAssignmentStatement n) {
+            access(n, n.f2);
+            super.visit(n);
+        }
+
+        @Override
+        public void visit(ArrayLookup n) {
+            access(n, n.f2);
+            super.visit(n);
+        }
+
+        @Override
+        public void visit(WhileStatement n) {
+            hasLoop = true;
+            super.visit(n);
+        }
+
+        @Override
+        public void visit(MessageSend n) {
+            hasCall = true;
+            super.visit(n);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import symbols.*;
+import syntaxtree.*;
+import visitor.DepthFirstVisitor;
+
+import java.util.*;
+
+/**
+ * RapidTypeAnalysis finds the methods a program can run, starting from
+ * main. A call can only run what its method name resolves to in a class
+ * some reachable code allocates, so a method is reached once its name is
+ * called and a class inheriting it is allocated, both by code already
+ * reached. Whatever is left is never translated, method names nobody calls
+ * get no slot in the virtual method tables, and classes nobody allocates
+ * get no table at all.
+ */
+public final class RapidTypeAnalysis implements Reachability {
+    // Classes allocated by reachable code
+    private final Set<VClass> allocated = new HashSet<>();
+    // Method names called by reachable code
+    private final Set<String> called = new HashSet<>();
+    // Labels of the methods that can run
+    private final Set<String> reachable = new HashSet<>();
+    // Method declarations by label
+    private final Map<String, MethodDeclaration> bodies = new HashMap<>();
+    private final Map<String, VClass> classes;
+    private final Deque<Node> pending = new ArrayDeque<>();
+
+    private RapidTypeAnalysis(Map<String, VClass> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * Runs the analysis over a whole program
+     * @param goal Root of the AST, method bodies parsed
+     * @param classes Every class of the program, by name
+     * @return The analysis
+     */
+    public static RapidTypeAnalysis of(Goal goal, Map<String, VClass> classes) {
+        RapidTypeAnalysis analysis = new RapidTypeAnalysis(classes);
+        for(Node _class : goal.f1.nodes) {
+            Node declaration = ((TypeDeclaration) _class).f0.choice;
+            String className;
+            NodeListOptional methods;
+            if(declaration instanceof ClassDeclaration) {
+                className = ((ClassDeclaration) declaration).f1.f0.toString();
+                methods = ((ClassDeclaration) declaration).f4;
+            } else {
+                className = ((ClassExtendsDeclaration) declaration).f1.f0.toString();
+                methods = ((ClassExtendsDeclaration) declaration).f6;
+            }
+            for(Node _method : methods.nodes) {
+                MethodDeclaration method = (MethodDeclaration) _method;
+                analysis.bodies.put(className + "." + method.f2.f0.toString(), method);
+            }
+        }
+        analysis.pending.add(goal.f0);
+        Scan scan = analysis.new Scan();
+        while(!analysis.pending.isEmpty()) {
+            analysis.pending.poll().accept(scan);
+        }
+        return analysis;
+    }
+
+    /**
+     * @param methodName Name of method in question
+     * @return Whether reachable code calls a method of that name
+     */
+    @Override
+    public boolean isCalled(String methodName) {
+        return called.contains(methodName);
+    }
+
+    /**
+     * @param _class Class in question
+     * @return Whether reachable code allocates objects of exactly that class
+     */
+    @Override
+    public boolean isAllocated(VClass _class) {
+        return allocated.contains(_class);
+    }
+
+    /**
+     * @param label Function label of a method
+     * @return Whether the method can run
+     */
+    @Override
+    public boolean isReachable(String label) {
+        return reachable.contains(label);
+    }
+
+    /**
+     * @return Number of methods that can run
+     */
+    public int reachableCount() {
+        return reachable.size();
+    }
+
+    /**
+     * @return Number of methods in the program, main left out
+     */
+    public int methodCount() {
+        return bodies.size();
+    }
+
+    private void allocate(VClass _class) {
+        if(!allocated.add(_class))
+            return;
+        for(String methodName : called) {
+            reach(_class, methodName);
+        }
+    }
+
+    private void call(String methodName) {
+        if(!called.add(methodName))
+            return;
+        for(VClass _class : allocated) {
+            reach(_class, methodName);
+        }
+    }
+
+    /**
+     * Marks the method a call runs on an object of the class, looking
+     * through inherited methods
+     * @param _class Class of the object
+     * @param methodName Name of method called
+     */
+    private void reach(VClass _class, String methodName) {
+        for(VClass owner = _class; owner != null; owner = owner.getParent()) {
+            VMethod method = owner.getDeclaredMethod(methodName);
+            if(method == null || method.isStatic)
+                continue;
+            String label = owner.className + "." + methodName;
+            if(reachable.add(label))
+                pending.add(bodies.get(label));
+            return;
+        }
+    }
+
+    /**
+     * Collects the allocations and calls of one method body
+     */
+    private final class Scan extends DepthFirstVisitor {
+        @Override
+        public void visit(AllocationExpression n) {
+            allocate(classes.get(n.f1.f0.toString()));
+        }
+
+        @Override
+        public void visit(MessageSend n) {
+            call(n.f2.f0.toString());
+            super.visit(n);
+        }
+    }
+}
@@ -1,185 +1,240 @@
+import ir.*;
+import symbols.*;
 import syntaxtree.*;
 import visitor.GJDepthFirst;
+import visitor.GJParallelDepthFirst;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * TranslatorVisitor is a DFS based visitor that runs through the MiniJava Parsed
  * AST, assuming typechecking is already taken care of. It takes in the context
- * as a map of class names to classes, using it to find relevant methods and members,
- * while returning a list of strings, where each element in the list represents a
- * single line of vapor code.
+ * as the program's symbol table, using it to find relevant methods and members,
+ * and builds the Vapor program as typed instructions. Statements append their
+ * instructions to the function being translated, while expressions also return
+ * the operand holding their value.
+ *
+ * All translation state belongs to one visitor, and labels are numbered per
+ * function and prefixed with its name, so each class can be translated by
+ * its own visitor. GJParallelDepthFirst runs those visitors, as tasks on
+ * the pool when there is one, and puts their functions together in source
+ * order, the same as translating the classes one after the other.
  */
-public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<String, VClass>> {
+public class TranslatorVisitor extends GJDepthFirst<Operand, SymbolTable> {
 
-    // Counters for vapor label generation
-    private int indentLevel = 0;
+    // Counters for vapor label generation, restarted for every function
     private int varCounter = 0;
     private int nullCounter = 1;
     private int elseCounter = 1;
     private int whileCounter = 1;
     private int boundsCounter = 1;
-    // If an array assignment is made, it should be allocated
-    private boolean shouldPrintAlloc = false;
-    // Maintains the most recently seen class
-    private Stack<String> classStack = new Stack<>();
-    // Maintains the most recently used method
-    private String currentMethod;
-    // Final Vapor AST
-    private LinkedList<String> vapor = new LinkedList<>();
-    // Reset for each function
-    private LinkedList<String> arguments = new LinkedList<>();
+    private int rangeCounter = 1;
+    private int condCounter = 1;
+    // Call sites seen, and those calling a single known function
+    private int callSites = 0;
+    private int directCalls = 0;
+    // Maintains the class and method being translated
+    private VClass currentClass;
+    private VMethod currentMethod;
+    // Class of every object typed variable of the current function. Locals,
+    // params and temps each have a single static type within a function
+    private Map<Var, VClass> varClasses = new HashMap<>();
+    // Functions translated by this visitor, in source order
+    private final List<Function> functions = new ArrayList<>();
+    // Pool classes are translated on, or null to translate them here
+    private final ForkJoinPool pool;
+    // Function instructions are appended to
+    private Function function;
+    // Array accesses whose range was checked before their loop
+    private final Set<Node> uncheckedAccesses = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+
+    public TranslatorVisitor() {
+        this(null);
+    }
+
+    public TranslatorVisitor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 
     /**
-     * Checks to ensure that the expression in question is a valid integer literal
-     * @param expr The set of vapor code in question
-     * @return boolean representing the check
+     * Translates a whole program
+     * @param goal Root of the AST
+     * @param symbols Context of the program
+     * @return The Vapor program
      */
-    private boolean isLiteral(LinkedList<String> expr) {
-        try{
-            Integer.parseInt(expr.getLast());
-        } catch (Exception e) {
-            return false;
+    public Program translate(Goal goal, SymbolTable symbols) {
+        Program program = new Program();
+        for(VClass _class : symbols.tabledClasses()) {
+            program.data.add(new DataSegment("vmt_" + _class.className, _class.vmt()));
         }
-        return true;
+        goal.accept(this, symbols);
+        program.functions.addAll(functions);
+        return program;
     }
 
     /**
-     * Determines if a variable is a class type
-     * @param type The type of the variable
-     * @return boolean representing the check
+     * @return Number of method calls translated
      */
-    private boolean isClassType(String type) {
-        return type != null && !(type.equals("int") || type.equals("int[]") || type.equals("boolean"));
+    public int callSites() {
+        return callSites;
     }
 
     /**
-     * Determines if the expression is a single variable, which should not be
-     * put in the vapor AST
-     * @param expr The set of vapor code in question
-     * @return boolean representing the check
+     * @return Number of method calls translated to a direct call
      */
-    private boolean isSingleVar(LinkedList<String> expr) {
-        return expr.size() == 1 &&
-                expr.getLast().split("=").length == 1 &&
-                !expr.getLast().contains("while") &&
-                !expr.getLast().contains("Print");
+    public int directCalls() {
+        return directCalls;
     }
 
     /**
-     * If the expression is a single word, then don't put it into the AST (unless while or Print)
-     * @param expr The set of vapor code in question
-     * @return boolean representing the check
+     * Starts a new function, restarting the temp and label counters
+     * @param name Label of the function
+     * @param params Parameters of the function
      */
-    private boolean isSingle(LinkedList<String> expr) {
-        return expr.size() == 1 && (expr.getLast().length() == 1 || isLiteral(expr) || isSingleVar(expr));
+    private void startFunction(String name, List<Var> params) {
+        varCounter = 0;
+        nullCounter = 1;
+        elseCounter = 1;
+        whileCounter = 1;
+        boundsCounter = 1;
+        rangeCounter = 1;
+        condCounter = 1;
+        varClasses.clear();
+        function = new Function(name, params);
+        functions.add(function);
     }
 
     /**
-     * Given vapor code, retrieve the last used variable from that block of code
-     * @param expr The set of vapor code we wish to extract from
-     * @return String representing the last variable
+     * Code labels share one namespace across the program, so each is
+     * prefixed with the function it is in
+     * @param name Name of the label within the function
+     * @return The label
      */
-    private String extractLastVar(LinkedList<String> expr) {
-        String lhs = expr.getLast().split("=")[0].trim();
-        lhs = lhs.replaceAll("[\\[\\]]", "");
-        return lhs;
+    private String label(String name) {
+        return function.name + "." + name;
     }
 
     /**
-     * Because identifier code blocks can contain member variable assignments as well,
-     * this method ensures correct retrieval of the identifier name
-     * @param identifier The identifier code block
-     * @return name of the identifier as a String
+     * Appends an instruction to the current function
+     * @param instr Instruction to append
      */
-    private String idToString(LinkedList<String> identifier) {
-        if(isSingle(identifier)) {
-            return identifier.getLast();
-        } else {
-            return identifier.get(0);
-        }
+    private void emit(Instr instr) {
+        function.add(instr);
     }
 
     /**
-     * Removes the first line of code from the vapor code. Used primarily for removing
-     * the identifier name
-     * @param expr The vapor code block to sanitize
+     * Creates a new temp variable, and auto increments the counter
+     * @return the temp variable
      */
-    private void sanitize(LinkedList<String> expr) {
-        if(expr.size() > 0 && expr.getFirst().split(" ").length == 1 &&
-                !expr.getFirst().contains("while") &&
-                !expr.getFirst().contains("Print")) {
-            expr.removeFirst();
-        }
+    private Var createTemp() {
+        return new Var("t." + varCounter++);
     }
 
     /**
-     * Respectively extract the value name from block of vapor code into curr
-     * @param expr Vapor code to extract from
-     * @param curr Vapor code to add expression into if need be
-     * @return The value extracted
+     * Moves an operand into a variable if it is not one already, for
+     * instructions that only take variables
+     * @param value Operand in question
+     * @return A variable holding the value
      */
-    private String getVal(LinkedList<String> expr, LinkedList<String> curr) {
-        if(!isSingle(expr)) {
-            sanitize(expr);
-            curr.addAll(expr);
-            return extractLastVar(curr);
-        }
-        return expr.getLast();
+    private Var toVar(Operand value) {
+        if(value instanceof Var)
+            return (Var) value;
+        Var temp = createTemp();
+        emit(new Assign(temp, value));
+        return temp;
     }
 
     /**
-     * Static function for array allocation put at the bottom of the vapor code
-     * @return Vapor block representing the allocation
+     * Records the class of an object typed variable
+     * @param var Variable in question
+     * @param type Its class, or null if it is not an object
+     * @return The variable
      */
-    private LinkedList<String> arrayAlloc() {
-        clearCounter();
-        LinkedList<String> allocFunc = new LinkedList<>();
-        allocFunc.add("func AllocArray(size)");
-        indentLevel++;
-        allocFunc.add(indent() + "bytes = MulS(size 4)");
-        allocFunc.add(indent() + "bytes = Add(bytes 4)");
-        allocFunc.add(indent() + "v = HeapAllocZ(bytes)");
-        allocFunc.add(indent() + "[v] = size");
-        allocFunc.add(indent() + "ret v");
-        indentLevel--;
-        return allocFunc;
+    private Var typed(Var var, VClass type) {
+        if(type != null)
+            varClasses.put(var, type);
+        return var;
     }
 
     /**
-     * Adds the respective amount of indentation for pretty printing
-     * @return indentation string using tabs
+     * Reads a variable, loading it from the object if it is a member
+     * @param id Name of variable
+     * @return Variable holding its value, typed with its class
      */
-    private String indent() {
-        String indent = "";
-        for(int i = 0; i < indentLevel; i++)
-            indent += "\t";
-        return indent;
+    private Var readVariable(String id) {
+        Location location = currentMethod.locate(id);
+        if(!location.isField())
+            return typed(new Var(id), location.type);
+        Var temp = createTemp();
+        emit(new MemRead(temp, Var.THIS, location.offset));
+        return typed(temp, location.type);
     }
 
     /**
-     * Clears the temp variable counter. Used at the start of every new function
+     * Generates a check that jumps over an error when the condition holds
+     * @param cond Value that must not be zero
+     * @param label Label to continue at
+     * @param message Error message
      */
-    private void clearCounter() {
-        varCounter = 0;
+    private void check(Operand cond, String label, String message) {
+        emit(new Branch(false, cond, label));
+        emit(new BuiltIn(null, BuiltIn.ERROR, new StringLiteral(message)));
+        emit(new Label(label));
     }
 
     /**
-     * Creates a new temp variable, and auto increments the counter
-     * @return the temp variable string
+     * Generates vapor code for null pointer checks
+     * @param var Variable to check
+     */
+    private void nullPtrCheck(Var var) {
+        check(var, label("null" + nullCounter++), "null pointer");
+    }
+
+    /**
+     * Generates vapor code for array out of bounds checks
+     * @param var Variable holding the check result
+     */
+    private void oobCheck(Var var) {
+        check(var, label("bounds" + boundsCounter++), "array index out of bounds");
+    }
+
+    /**
+     * Vapor can only branch on variables, so immediates go through a temp
+     * @param cond Branch condition
+     * @return Operand that can be branched on
      */
-    private String createTemp() {
-        return "t." + varCounter++;
+    private Operand branchable(Operand cond) {
+        return cond instanceof Imm ? toVar(cond) : cond;
     }
 
     /**
-     * Determines the type of error to put out
-     * @param oob Out of bounds or null pointer
-     * @return error string
+     * Generates the vapor code for any array operation, lookup or assignment
+     * @param access The array lookup or assignment
+     * @param array Variable holding the array
+     * @param idx The index of the array operation
+     * @return Variable holding the address of the element, minus the length word
      */
-    private String error(boolean oob) {
-        String base = indent() + "Error(";
-        return oob ? base + "\"array index out of bounds\")" : base + "\"null pointer\")";
+    private Var arrayOp(Node access, Var array, Operand idx) {
+        // Each step gets its own temp, so the length and offset stay
+        // around for later accesses to reuse
+        if(!uncheckedAccesses.contains(access)) {
+            // Null pointer check
+            nullPtrCheck(array);
+            // Get size
+            Var length = createTemp();
+            emit(new MemRead(length, array, 0));
+            Var inBounds = createTemp();
+            emit(new BuiltIn(inBounds, BuiltIn.LT, idx, length));
+            // Out of bounds check
+            oobCheck(inBounds);
+        }
+        // Get to index position
+        Var offset = createTemp();
+        emit(new BuiltIn(offset, BuiltIn.MUL, idx, new Imm(4)));
+        Var element = createTemp();
+        emit(new BuiltIn(element, BuiltIn.ADD, offset, array));
+        return element;
     }
 
     /**
@@ -191,18 +246,41 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(Goal n, Map<String, VClass> argu) {
-        vapor.addAll(n.f0.accept(this, argu));
-        // Add all classes
-        for(Node _class : n.f1.nodes){
-            vapor.addAll(_class.accept(this, argu));
-        }
-        // Add allocation if needed
-        if(shouldPrintAlloc) {
-            vapor.add("\n");
-            vapor.addAll(arrayAlloc());
+    public Operand visit(Goal n, SymbolTable argu) {
+        n.f0.accept(this, argu);
+        // Each class gets a visitor of its own
+        List<TranslatorVisitor> classes = n.accept(new GJParallelDepthFirst<List<TranslatorVisitor>, SymbolTable>(
+                symbols -> symbols, TranslatorVisitor::concat, pool) {
+            @Override
+            public List<TranslatorVisitor> visit(MainClass n, SymbolTable argu) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            protected List<TranslatorVisitor> visitClass(Node _class, SymbolTable argu) {
+                TranslatorVisitor visitor = new TranslatorVisitor();
+                _class.accept(visitor, argu);
+                return Collections.singletonList(visitor);
+            }
+        }, argu);
+        // Add all classes, in source order
+        for(TranslatorVisitor visitor : classes) {
+            functions.addAll(visitor.functions);
+            callSites += visitor.callSites;
+            directCalls += visitor.directCalls;
         }
-        return vapor;
+        return null;
+    }
+
+    /**
+     * @param left Visitors of the earlier classes
+     * @param right Visitors of the later classes
+     * @return All of the visitors, in source order
+     */
+    private static List<TranslatorVisitor> concat(List<TranslatorVisitor> left, List<TranslatorVisitor> right) {
+        List<TranslatorVisitor> all = new ArrayList<>(left);
+        all.addAll(right);
+        return all;
     }
 
     /**
@@ -229,20 +307,17 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(MainClass n, Map<String, VClass> argu) {
-        LinkedList<String> main = new LinkedList<>(Arrays.asList("func Main()"));
-        String className = n.f1.f0.toString();
-        indentLevel++;
-        classStack.push(className);
-        currentMethod = "main";
+    public Operand visit(MainClass n, SymbolTable argu) {
+        currentClass = argu.getClass(n.f1.f0.toString());
+        currentMethod = currentClass.getDeclaredMethod("main");
+        startFunction("Main", Collections.<Var>emptyList());
         // Grab all statements for main function
         for(Node _stmt : n.f15.nodes) {
-            main.addAll(_stmt.accept(this, argu));
+            _stmt.accept(this, argu);
         }
         // Naked return
-        main.add(indent() + "ret");
-        indentLevel--;
-        return main;
+        emit(new Return(null));
+        return null;
     }
 
     /**
@@ -253,7 +328,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(TypeDeclaration n, Map<String, VClass> argu) {
+    public Operand visit(TypeDeclaration n, SymbolTable argu) {
         return n.f0.accept(this, argu);
     }
 
@@ -269,17 +344,13 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ClassDeclaration n, Map<String, VClass> argu) {
-        LinkedList<String> _class = new LinkedList<>();
-        String className = idToString(n.f1.accept(this, argu));
-        // Reset class stack on every new class
-        classStack.clear();
-        classStack.push(className);
+    public Operand visit(ClassDeclaration n, SymbolTable argu) {
+        currentClass = argu.getClass(n.f1.f0.toString());
         // Go through class' methods
         for(Node _method : n.f4.nodes) {
-            _class.addAll(_method.accept(this, argu));
+            _method.accept(this, argu);
         }
-        return _class;
+        return null;
     }
 
     /**
@@ -296,17 +367,13 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ClassExtendsDeclaration n, Map<String, VClass> argu) {
-        LinkedList<String> _class = new LinkedList<>();
-        String className = idToString(n.f1.accept(this, argu));
-        // Reset class stack on every new class
-        classStack.clear();
-        classStack.push(className);
+    public Operand visit(ClassExtendsDeclaration n, SymbolTable argu) {
+        currentClass = argu.getClass(n.f1.f0.toString());
         // Go through class' methods
         for(Node _method : n.f6.nodes) {
-            _class.addAll(_method.accept(this, argu));
+            _method.accept(this, argu);
         }
-        return _class;
+        return null;
     }
 
     /**
@@ -328,33 +395,25 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(MethodDeclaration n, Map<String, VClass> argu) {
-        clearCounter();
-        LinkedList<String> _method = new LinkedList<>();
-        currentMethod = idToString(n.f2.accept(this, argu));
-        String callingClass = classStack.get(0);
-        // Find the current method from current class
-        VMethod curr = argu.get(callingClass).getMethod(currentMethod);
-        String declaration = "func " + callingClass + "." + currentMethod + "(this";
-        int paramSize = curr.params.size();
-        // Put down params
-        for(int i = 0; i < paramSize; i++) {
-            declaration += " " + curr.params.get(i);
+    public Operand visit(MethodDeclaration n, SymbolTable argu) {
+        // Find the current method as declared in the current class
+        currentMethod = currentClass.getDeclaredMethod(n.f2.f0.toString());
+        // Methods the program never runs are left out
+        if(!argu.isReachable(currentClass.className + "." + currentMethod.methodName))
+            return null;
+        List<Var> params = new ArrayList<>();
+        params.add(Var.THIS);
+        for(String param : currentMethod.params) {
+            params.add(new Var(param));
         }
-        declaration += ")";
-        _method.add(declaration);
-        indentLevel++;
+        startFunction(currentClass.className + "." + currentMethod.methodName, params);
         // Grab all statements
         for(Node _stmt : n.f8.nodes) {
-            LinkedList<String> currStmt = _stmt.accept(this, argu);
-            _method.addAll(currStmt);
+            _stmt.accept(this, argu);
         }
         // Add return statement
-        LinkedList<String> retExpr = n.f10.accept(this, argu);
-        String retVal = getVal(retExpr, _method);
-        _method.add(indent() + "ret " + retVal);
-        indentLevel--;
-        return _method;
+        emit(new Return(n.f10.accept(this, argu)));
+        return null;
     }
 
     /**
@@ -369,7 +428,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(Statement n, Map<String, VClass> argu) {
+    public Operand visit(Statement n, SymbolTable argu) {
         return n.f0.accept(this, argu);
     }
 
@@ -382,29 +441,12 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(Block n, Map<String, VClass> argu) {
-        LinkedList<String> block = new LinkedList<>();
-        indentLevel++;
+    public Operand visit(Block n, SymbolTable argu) {
         // Add all statements in the block
         for(Node _stmt : n.f1.nodes) {
-            LinkedList<String> currStmt = _stmt.accept(this, argu);
-            if (!isSingle(currStmt))
-                block.addAll(currStmt);
+            _stmt.accept(this, argu);
         }
-        indentLevel--;
-        return block;
-    }
-
-    /**
-     * Determines whether a variable is member scoped or not
-     * @param id Name of variable in question
-     * @param argu Context
-     * @return boolean representing the check
-     */
-    private boolean isLocal(String id, Map<String, VClass> argu) {
-        String currentClass = classStack.get(0);
-        VMethod _method = argu.get(currentClass).getMethod(currentMethod);
-        return (_method.locals.indexOf(id) != -1) || (_method.params.indexOf(id) != -1);
+        return null;
     }
 
     /**
@@ -417,104 +459,15 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(AssignmentStatement n, Map<String, VClass> argu) {
-        LinkedList<String> assignment = new LinkedList<>();
-        String id = idToString(n.f0.accept(this, argu));
-        LinkedList<String> expression = n.f2.accept(this, argu);
-        String val = getVal(expression, assignment);
-        String currentClass = classStack.get(0);
-        // If its not local it must be instance - guaranteed typecheck
-        if(!isLocal(id, argu)) {
-            int idx = argu.get(currentClass).getMembers().indexOf(id);
-            int offset = 4 + 4*idx;
-            id = "[this+" + offset + "]";
-        }
-        assignment.add(indent() + id + " = " + val);
-        return assignment;
-    }
-
-
-    /**
-     * Generates vapor code for array dereferencing
-     * @param id Name of variable to get scope of
-     * @param var Name of variable to assign to
-     * @param argu Context
-     * @return The vapor code representing dereferencing
-     */
-    private LinkedList<String> arrDeref(String id, String var, Map<String, VClass> argu) {
-        LinkedList<String> arr = new LinkedList<>();
-        String currentClass = classStack.get(0);
-        if (!isLocal(id, argu)) {
-            // Ensure the variable is a member variable
-            if (argu.get(currentClass).getMembers().indexOf(id) != -1) {
-                int instanceIdx = argu.get(currentClass).getMembers().indexOf(id);
-                int offset = 4 + 4 * instanceIdx;
-                arr.add(indent() + var + " = [this+" + offset + "]");
-            } else {
-                arr.add(indent() + var + " = " + id);
-            }
+    public Operand visit(AssignmentStatement n, SymbolTable argu) {
+        Location location = currentMethod.locate(n.f0.f0.toString());
+        Operand val = n.f2.accept(this, argu);
+        if(location.isField()) {
+            emit(new MemWrite(Var.THIS, location.offset, val));
         } else {
-            arr.add(indent() + var + " = " + id);
+            emit(new Assign(new Var(location.name), val));
         }
-        return arr;
-    }
-
-    /**
-     * Generates vapor code for null pointer checks
-     * @param var Name of variable to check
-     * @return The vapor code representing the check
-     */
-    private LinkedList<String> nullPtrCheck(String var) {
-        LinkedList<String> nullptr = new LinkedList<>();
-        int currentNullCount = nullCounter++;
-        nullptr.add(indent() + "if " + var + " goto :null" + currentNullCount);
-        indentLevel++;
-        nullptr.add(error(false));
-        indentLevel--;
-        nullptr.add(indent() + "null" + currentNullCount + ":");
-        return nullptr;
-    }
-
-    /**
-     * Generates vapor code for array out of bounds checks
-     * @param var Name of variable to check
-     * @return The vapor code representing the check
-     */
-    private LinkedList<String> oobCheck(String var) {
-        LinkedList<String> oob = new LinkedList<>();
-        int currentBoundsCount = boundsCounter++;
-        oob.add(indent() + "if " + var + " goto :bounds" + currentBoundsCount);
-        indentLevel++;
-        oob.add(error(true));
-        indentLevel--;
-        oob.add(indent() + "bounds" + currentBoundsCount + ":");
-        return oob;
-    }
-
-    /**
-     * Generates the vapor code for any array operation, lookup or assignment
-     * @param id Name of variable that needs to be checked for scope
-     * @param idx The index of the array operation
-     * @param argu Context
-     * @return The vapor code representing the operation
-     */
-    private LinkedList<String> arrayOp(String id, String idx, Map<String, VClass> argu) {
-        LinkedList<String> arr = new LinkedList<>();
-        String temp1 = createTemp();
-        // Assign heap pointer to temp var
-        arr.addAll(arrDeref(id, temp1, argu));
-        // Null pointer check
-        arr.addAll(nullPtrCheck(temp1));
-        // Get size
-        String temp2 = createTemp();
-        arr.add(indent() + temp2 + " = [" + temp1 + "]");
-        arr.add(indent() + temp2 + " = Lt(" + idx + " " + temp2 + ")");
-        // Out of bounds check
-        arr.addAll(oobCheck(temp2));
-        // Get to index position
-        arr.add(indent() + temp2 + " = MulS(" + idx + " 4)");
-        arr.add(indent() + temp2 + " = Add(" + temp2 + " " + temp1 + ")");
-        return arr;
+        return null;
     }
 
     /**
@@ -530,20 +483,15 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ArrayAssignmentStatement n, Map<String, VClass> argu) {
-        LinkedList<String> arrAssignment = new LinkedList<>();
-        String id = idToString(n.f0.accept(this, argu));
-        LinkedList<String> arrIdx = n.f2.accept(this, argu);
-        String idx = getVal(arrIdx, arrAssignment);
+    public Operand visit(ArrayAssignmentStatement n, SymbolTable argu) {
+        Var array = readVariable(n.f0.f0.toString());
+        Operand idx = n.f2.accept(this, argu);
         // Perform null check and oob check
-        arrAssignment.addAll(arrayOp(id, idx, argu));
-        int currentVarCount = varCounter;
-        LinkedList<String> arrVal = n.f5.accept(this, argu);
-        String val = getVal(arrVal, arrAssignment);
+        Var element = arrayOp(n, array, idx);
+        Operand val = n.f5.accept(this, argu);
         // Actual assignment
-        arrAssignment.add(indent() + "[t." + (currentVarCount - 1) + " + 4] = " + val);
-
-        return arrAssignment;
+        emit(new MemWrite(element, 4, val));
+        return null;
     }
 
     /**
@@ -559,33 +507,18 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(IfStatement n, Map<String, VClass> argu) {
-        int currentElseCount = elseCounter++;
-        LinkedList<String> expression = n.f2.accept(this, argu);
-        LinkedList<String> ifelse = new LinkedList<>();
-        // Get the condition variable
-        String cond = getVal(expression, ifelse);
-        ifelse.add(indent() + "if0 " + cond + " goto " + ":if" + currentElseCount + "_else");
-        LinkedList<String> ifstmt = n.f4.accept(this, argu);
-        indentLevel++;
+    public Operand visit(IfStatement n, SymbolTable argu) {
+        String currentIf = label("if" + elseCounter++);
+        // Jump to the else block when the condition does not hold
+        branchIfFalse(n.f2, currentIf + "_else", argu);
         // Add the if statement block
-        if(!isSingle(ifstmt)) {
-            sanitize(ifstmt);
-            ifelse.addAll(ifstmt);
-        }
-        ifelse.add(indent() + "goto :if" + currentElseCount + "_end");
-        indentLevel--;
-        ifelse.add(indent() + "if" + currentElseCount + "_else:");
-        LinkedList<String> elsestmt = n.f6.accept(this, argu);
-        indentLevel++;
+        n.f4.accept(this, argu);
+        emit(new Goto(currentIf + "_end"));
+        emit(new Label(currentIf + "_else"));
         // Else statement block
-        if(!isSingle(elsestmt)) {
-            sanitize(elsestmt);
-            ifelse.addAll(elsestmt);
-        }
-        indentLevel--;
-        ifelse.add(indent() + "if" + currentElseCount + "_end:");
-        return ifelse;
+        n.f6.accept(this, argu);
+        emit(new Label(currentIf + "_end"));
+        return null;
     }
 
     /**
@@ -599,27 +532,120 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(WhileStatement n, Map<String, VClass> argu) {
-        int currentWhileCount = whileCounter++;
-        LinkedList<String> _while = new LinkedList<>();
-        _while.add(indent() + "while" + currentWhileCount + "_top:");
-        LinkedList<String> expression = n.f2.accept(this, argu);
-        indentLevel++;
-        // Get the condition variable
-        String cond = getVal(expression, _while);
-        indentLevel--;
-        _while.add(indent() + "if0 " + cond + " goto :while" + currentWhileCount + "_end");
-        LinkedList<String> _whilestmt = n.f4.accept(this, argu);
+    public Operand visit(WhileStatement n, SymbolTable argu) {
+        RangeCheck range = RangeCheck.of(n, currentMethod);
+        if(range == null) {
+            translateWhile(n, argu);
+            return null;
+        }
+        // One check up front picks between a copy of the loop without
+        // bounds checks and the loop as written
+        int currentRangeCount = rangeCounter++;
+        String checked = label("range" + currentRangeCount + "_checked");
+        String end = label("range" + currentRangeCount + "_end");
+        rangeCheck(range, checked, argu);
+        uncheckedAccesses.addAll(range.accesses());
+        translateWhile(n, argu);
+        uncheckedAccesses.removeAll(range.accesses());
+        emit(new Goto(end));
+        emit(new Label(checked));
+        translateWhile(n, argu);
+        emit(new Label(end));
+        return null;
+    }
+
+    /**
+     * Generates the check standing in for the bounds checks of a loop,
+     * jumping to the checked loop if the index may leave the array
+     * @param range Range of the loop's index
+     * @param checked Label of the checked loop
+     * @param argu Context of the program
+     */
+    private void rangeCheck(RangeCheck range, String checked, SymbolTable argu) {
+        // The loop reads the bound first, so it can fail here as it would there
+        Operand bound = range.bound.accept(this, argu);
+        Var test = createTemp();
+        emit(new BuiltIn(test, BuiltIn.LTS, readVariable(range.index), new Imm(-range.lowestOffset())));
+        emit(new Branch(false, test, checked));
+        for(Map.Entry<String, int[]> array : range.offsets.entrySet()) {
+            // A null array fails in the checked loop, where it should
+            Var pointer = readVariable(array.getKey());
+            emit(new Branch(true, pointer, checked));
+            Var length = createTemp();
+            emit(new MemRead(length, pointer, 0));
+            if(array.getValue()[1] != 0)
+                emit(new BuiltIn(length, BuiltIn.SUB, length, new Imm(array.getValue()[1])));
+            emit(new BuiltIn(test, BuiltIn.LTS, length, bound));
+            emit(new Branch(false, test, checked));
+        }
+    }
+
+    /**
+     * Translates a while loop as written
+     * @param n The loop
+     * @param argu Context of the program
+     */
+    private void translateWhile(WhileStatement n, SymbolTable argu) {
+        String currentWhile = label("while" + whileCounter++);
+        // The condition is tested once to enter the loop, and then at the
+        // bottom, so an iteration takes a single jump
+        branchIfFalse(n.f2, currentWhile + "_end", argu);
+        emit(new Label(currentWhile + "_top"));
         // While statement block
-        if(!isSingle(_whilestmt)) {
-            sanitize(_whilestmt);
-            _while.addAll(_whilestmt);
+        n.f4.accept(this, argu);
+        branchIfTrue(n.f2, currentWhile + "_top", argu);
+        emit(new Label(currentWhile + "_end"));
+    }
+
+    /**
+     * Translates a condition into jumps, without computing its value when
+     * it is made of literals, ! and &&
+     * @param cond The condition
+     * @param onFalse Label to jump to when it does not hold, otherwise the
+     *                code falls through
+     * @param argu Context of the program
+     */
+    private void branchIfFalse(Node cond, String onFalse, SymbolTable argu) {
+        Node expr = RangeCheck.unwrap(cond);
+        if(expr instanceof TrueLiteral)
+            return;
+        if(expr instanceof FalseLiteral) {
+            emit(new Goto(onFalse));
+        } else if(expr instanceof NotExpression) {
+            branchIfTrue(((NotExpression) expr).f1, onFalse, argu);
+        } else if(expr instanceof AndExpression) {
+            // Either side failing fails the whole
+            branchIfFalse(((AndExpression) expr).f0, onFalse, argu);
+            branchIfFalse(((AndExpression) expr).f2, onFalse, argu);
+        } else {
+            emit(new Branch(true, branchable(expr.accept(this, argu)), onFalse));
+        }
+    }
+
+    /**
+     * Translates a condition into jumps, the opposite of branchIfFalse
+     * @param cond The condition
+     * @param onTrue Label to jump to when it holds, otherwise the code
+     *               falls through
+     * @param argu Context of the program
+     */
+    private void branchIfTrue(Node cond, String onTrue, SymbolTable argu) {
+        Node expr = RangeCheck.unwrap(cond);
+        if(expr instanceof FalseLiteral)
+            return;
+        if(expr instanceof TrueLiteral) {
+            emit(new Goto(onTrue));
+        } else if(expr instanceof NotExpression) {
+            branchIfFalse(((NotExpression) expr).f1, onTrue, argu);
+        } else if(expr instanceof AndExpression) {
+            // The right side decides, unless the left side already failed
+            String skip = label("cond" + condCounter++);
+            branchIfFalse(((AndExpression) expr).f0, skip, argu);
+            branchIfTrue(((AndExpression) expr).f2, onTrue, argu);
+            emit(new Label(skip));
+        } else {
+            emit(new Branch(false, branchable(expr.accept(this, argu)), onTrue));
         }
-        indentLevel++;
-        _while.add(indent() + "goto :while" + currentWhileCount + "_top");
-        indentLevel--;
-        _while.add(indent() + "while" + currentWhileCount + "_end:");
-        return _while;
     }
 
     /**
@@ -633,12 +659,9 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(PrintStatement n, Map<String, VClass> argu) {
-        LinkedList<String> expression = n.f2.accept(this, argu);
-        LinkedList<String> print = new LinkedList<>();
-        String toPrint = getVal(expression, print);
-        print.add(indent() + "PrintIntS(" + toPrint + ")");
-        return print;
+    public Operand visit(PrintStatement n, SymbolTable argu) {
+        emit(new BuiltIn(null, BuiltIn.PRINT, n.f2.accept(this, argu)));
+        return null;
     }
 
     /**
@@ -656,7 +679,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(Expression n, Map<String, VClass> argu) {
+    public Operand visit(Expression n, SymbolTable argu) {
         return n.f0.accept(this, argu);
     }
 
@@ -665,18 +688,15 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param l The left hand side expression node
      * @param r The right hand side expression node
      * @param argu Context
-     * @param type The type of binary operation
-     * @return The vapor code representing the binary operation
+     * @param op The builtin performing the operation
+     * @return Variable holding the result
      */
-    private LinkedList<String> binaryOp(Node l, Node r, Map<String, VClass> argu, String type) {
-        LinkedList<String> current = new LinkedList<>();
-        LinkedList<String> lhs = l.accept(this, argu);
-        String val1 = getVal(lhs, current);
-        LinkedList<String> rhs = r.accept(this, argu);
-        String val2 = getVal(rhs, current);
-        current.add(indent() + createTemp() + " = " + type + "(" + val1 + " " + val2 + ")");
-        return current;
-
+    private Operand binaryOp(Node l, Node r, SymbolTable argu, String op) {
+        Operand val1 = l.accept(this, argu);
+        Operand val2 = r.accept(this, argu);
+        Var result = createTemp();
+        emit(new BuiltIn(result, op, val1, val2));
+        return result;
     }
 
     /**
@@ -688,28 +708,18 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(AndExpression n, Map<String, VClass> argu) {
-        LinkedList<String> and = new LinkedList<>();
-        LinkedList<String> lhs = n.f0.accept(this, argu);
-        String val1 = getVal(lhs, and);
-        int currentElseCount = elseCounter++;
-        and.add(indent() + "if0 " + val1 + " goto :if" + currentElseCount + "_else");
-        indentLevel++;
-        LinkedList<String> rhs = n.f2.accept(this, argu);
-        String val2 = getVal(rhs, and);
-        int currVarCount = varCounter;
-        // Just multiply to get the result of an AND
-        and.add(indent() + createTemp() + " = MulS(" + val1 + " " + val2 + ")");
-        and.add(indent() + "goto :if" + currentElseCount + "_end");
-        indentLevel--;
-        and.add(indent() + "if" + currentElseCount + "_else:");
-        indentLevel++;
-        and.add(indent() + "t." + currVarCount + " = 0");
-        indentLevel--;
-        and.add(indent() + "if" + currentElseCount + "_end:");
-        // If its 1 then its true
-        and.add(indent() + createTemp() + " = Eq(1 t." + currVarCount + ")");
-        return and;
+    public Operand visit(AndExpression n, SymbolTable argu) {
+        Operand val1 = branchable(n.f0.accept(this, argu));
+        String currentIf = label("if" + elseCounter++);
+        Var result = createTemp();
+        emit(new Branch(true, val1, currentIf + "_else"));
+        // Left side is true, so the right side is the result
+        emit(new Assign(result, n.f2.accept(this, argu)));
+        emit(new Goto(currentIf + "_end"));
+        emit(new Label(currentIf + "_else"));
+        emit(new Assign(result, Imm.ZERO));
+        emit(new Label(currentIf + "_end"));
+        return result;
     }
 
     /**
@@ -721,8 +731,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(CompareExpression n, Map<String, VClass> argu) {
-        return binaryOp(n.f0, n.f2, argu, "LtS");
+    public Operand visit(CompareExpression n, SymbolTable argu) {
+        return binaryOp(n.f0, n.f2, argu, BuiltIn.LTS);
     }
 
     /**
@@ -734,8 +744,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(PlusExpression n, Map<String, VClass> argu) {
-        return binaryOp(n.f0, n.f2, argu, "Add");
+    public Operand visit(PlusExpression n, SymbolTable argu) {
+        return binaryOp(n.f0, n.f2, argu, BuiltIn.ADD);
     }
 
     /**
@@ -747,8 +757,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(MinusExpression n, Map<String, VClass> argu) {
-        return binaryOp(n.f0, n.f2, argu, "Sub");
+    public Operand visit(MinusExpression n, SymbolTable argu) {
+        return binaryOp(n.f0, n.f2, argu, BuiltIn.SUB);
     }
 
     /**
@@ -760,8 +770,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(TimesExpression n, Map<String, VClass> argu) {
-        return binaryOp(n.f0, n.f2, argu, "MulS");
+    public Operand visit(TimesExpression n, SymbolTable argu) {
+        return binaryOp(n.f0, n.f2, argu, BuiltIn.MUL);
     }
 
     /**
@@ -774,26 +784,13 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ArrayLookup n, Map<String, VClass> argu) {
-        LinkedList<String> arrLookup = new LinkedList<>();
-        LinkedList<String> arrIdx = n.f2.accept(this, argu);
-        LinkedList<String> identifier = n.f0.accept(this, argu);
-        String idx = getVal(arrIdx, arrLookup);
-        String id;
-        if(!isSingle(identifier)) {
-            if(identifier.getFirst().split(" ").length == 1) {
-                varCounter--;
-                identifier.removeFirst();
-            }
-            arrLookup.addAll(identifier);
-            id = extractLastVar(arrLookup);
-        } else {
-            id = identifier.getLast();
-        }
-        arrLookup.addAll(arrayOp(id, idx, argu));
-        int currentVarCount = varCounter;
-        arrLookup.add(indent() + createTemp() + " = [t." + (currentVarCount-1) + " + 4]");
-        return arrLookup;
+    public Operand visit(ArrayLookup n, SymbolTable argu) {
+        Var array = toVar(n.f0.accept(this, argu));
+        Operand idx = n.f2.accept(this, argu);
+        Var element = arrayOp(n, array, idx);
+        Var result = createTemp();
+        emit(new MemRead(result, element, 4));
+        return result;
     }
 
     /**
@@ -805,19 +802,14 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ArrayLength n, Map<String, VClass> argu) {
-        LinkedList<String> arrLength = new LinkedList<>();
-        LinkedList<String> identifier = n.f0.accept(this, argu);
-        String id = getVal(identifier, arrLength);
-        String temp = createTemp();
-        // Dereference the array
-        arrLength.addAll(arrDeref(id, temp, argu));
+    public Operand visit(ArrayLength n, SymbolTable argu) {
+        Var array = toVar(n.f0.accept(this, argu));
         // Null pointer check
-        arrLength.addAll(nullPtrCheck(temp));
-        int currentVarCount = varCounter;
-        // Assign length value
-        arrLength.add(indent() + createTemp() + " = [t." + (currentVarCount-1) + "]");
-        return arrLength;
+        nullPtrCheck(array);
+        // Length is stored before the elements
+        Var result = createTemp();
+        emit(new MemRead(result, array, 0));
+        return result;
     }
 
     /**
@@ -832,70 +824,48 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(MessageSend n, Map<String, VClass> argu) {
-        LinkedList<String> msgSend = new LinkedList<>();
-        LinkedList<String> _class = n.f0.accept(this, argu);
-        String classPtr = extractLastVar(_class);
-        if (!isSingle(_class)) {
-            msgSend.addAll(_class);
-        }
+    public Operand visit(MessageSend n, SymbolTable argu) {
+        Var classPtr = toVar(n.f0.accept(this, argu));
         // Nullptr check for class pointer
-        if (!classPtr.equals("this")) {
-            msgSend.addAll(nullPtrCheck(classPtr));
+        if (!classPtr.equals(Var.THIS)) {
+            nullPtrCheck(classPtr);
         }
-        String methodName = idToString(n.f2.accept(this, argu));
-        String currentClass = classStack.peek();
-        // Find the method for the calling class
-        VMethod currentMethod = argu.get(currentClass).getMethod(methodName);
-        // Push on class return type for methods
-        if(isClassType(currentMethod.returnType)) {
-            classStack.push(currentMethod.returnType);
-        }
-        int methodIdx = 4 * argu.get(currentClass).getMethods().indexOf(currentMethod);
-        int currentVarCount = varCounter;
-        // Dereference class pointer
-        msgSend.add(indent() + createTemp() + " = [" + classPtr + "]");
-        // Get method pointer for class method
-        msgSend.add(indent() + createTemp() + " = [t." + currentVarCount + "+" + methodIdx + "]");
-        String methodPtr = "t." + ++currentVarCount;
-        // Call method
-        String methodCall = "call " + methodPtr + "(" + classPtr;
+        // Find the method for the static class of the receiver
+        VClass receiverClass = varClasses.get(classPtr);
+        VMethod method = receiverClass.getMethod(n.f2.f0.toString());
+        String target = argu.uniqueTarget(receiverClass, method.methodName);
+        // No object the call could run on is ever made, so the receiver is
+        // null and its check fails first, but the call still goes through
+        // the table since the function it names is left out
+        if(target != null && !argu.isReachable(target))
+            target = null;
         // Add in arguments
-        arguments.clear();
-        LinkedList<String> exprList = n.f4.accept(this, argu);
-        if (exprList != null)
-            msgSend.addAll(exprList);
-        int arguSize = arguments.size();
-        for(int i = 0; i < arguSize; i++) {
-            methodCall += " " + arguments.get(i);
+        List<Operand> arguments = new ArrayList<>();
+        arguments.add(classPtr);
+        if (n.f4.present()) {
+            ExpressionList exprList = (ExpressionList) n.f4.node;
+            arguments.add(exprList.f0.accept(this, argu));
+            for(Node _expr : exprList.f1.nodes) {
+                arguments.add(_expr.accept(this, argu));
+            }
         }
-        methodCall += ")";
-        // Set result of method call
-        msgSend.add(indent() + createTemp() + " = " + methodCall);
-        return msgSend;
-    }
-
-    /**
-     * f0 -> Expression()
-     * f1 -> ( ExpressionRest() )*
-     *
-     * @param n
-     * @param argu
-     */
-    @Override
-    public LinkedList<String> visit(ExpressionList n, Map<String, VClass> argu) {
-        LinkedList<String> firstExpr = n.f0.accept(this, argu);
-        LinkedList<String> exprList = new LinkedList<>();
-        String firstArgu = getVal(firstExpr, exprList);
-        LinkedList<String> currArguments = new LinkedList<>(arguments);
-        currArguments.add(firstArgu);
-        for(Node _expr : n.f1.nodes) {
-            LinkedList<String> currExpr = _expr.accept(this, argu);
-            String currArgu = getVal(currExpr, exprList);
-            currArguments.add(currArgu);
+        callSites++;
+        Operand function;
+        if(target != null) {
+            // No subclass overrides it, so call the function directly
+            directCalls++;
+            function = new LabelRef(target);
+        } else {
+            // Get method pointer for class method
+            Var methodPtr = createTemp();
+            emit(new MemRead(methodPtr, classPtr, 0));
+            emit(new MemRead(methodPtr, methodPtr, receiverClass.methodOffset(method.methodName)));
+            function = methodPtr;
         }
-        arguments = currArguments;
-        return exprList;
+        // Set result of method call
+        Var result = createTemp();
+        emit(new Call(result, function, arguments));
+        return typed(result, method.returnClass());
     }
 
     /**
@@ -906,7 +876,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ExpressionRest n, Map<String, VClass> argu) {
+    public Operand visit(ExpressionRest n, SymbolTable argu) {
         return n.f1.accept(this, argu);
     }
 
@@ -925,7 +895,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(PrimaryExpression n, Map<String, VClass> argu) {
+    public Operand visit(PrimaryExpression n, SymbolTable argu) {
         return n.f0.accept(this, argu);
     }
 
@@ -936,8 +906,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(IntegerLiteral n, Map<String, VClass> argu) {
-        return new LinkedList<>(Arrays.asList(n.f0.toString()));
+    public Operand visit(IntegerLiteral n, SymbolTable argu) {
+        return new Imm(Integer.parseInt(n.f0.toString()));
     }
 
     /**
@@ -947,8 +917,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(TrueLiteral n, Map<String, VClass> argu) {
-        return new LinkedList<>(Arrays.asList("1"));
+    public Operand visit(TrueLiteral n, SymbolTable argu) {
+        return Imm.ONE;
     }
 
     /**
@@ -958,48 +928,20 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(FalseLiteral n, Map<String, VClass> argu) {
-        return new LinkedList<>(Arrays.asList("0"));
+    public Operand visit(FalseLiteral n, SymbolTable argu) {
+        return Imm.ZERO;
     }
 
     /**
+     * Only reached for identifiers used as values
      * f0 -> <IDENTIFIER>
      *
      * @param n
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(Identifier n, Map<String, VClass> argu) {
-        String id = n.f0.toString();
-        LinkedList<String> identifier = new LinkedList<>();
-        identifier.add(id);
-        if (!classStack.isEmpty()) {
-            String currentClass = classStack.get(0);
-            VMethod callingMethod = argu.get(currentClass).getMethod(currentMethod);
-            if (callingMethod != null) {
-                // Check local variables, then params then instance variables
-                // If the type is not a primitive, pass it up
-                if (callingMethod.locals.indexOf(id) != -1) {
-                    if (isClassType(callingMethod.localTypes.get(id))) {
-                        classStack.push(callingMethod.localTypes.get(id));
-                    }
-                } else if (callingMethod.params.indexOf(id) != -1) {
-                    if (isClassType(callingMethod.paramTypes.get(id))) {
-                        classStack.push(callingMethod.paramTypes.get(id));
-                    }
-                } else {
-                    if (isClassType(argu.get(currentClass).types.get(id))) {
-                        classStack.push(argu.get(currentClass).types.get(id));
-                    }
-                    if (argu.get(currentClass).getMembers().indexOf(id) != -1) {
-                        int idx = argu.get(currentClass).getMembers().indexOf(id);
-                        int offset = 4 + 4*idx;
-                        identifier.add(indent() + createTemp() + " = [this+" + offset + "]");
-                    }
-                }
-            }
-        }
-        return identifier;
+    public Operand visit(Identifier n, SymbolTable argu) {
+        return readVariable(n.f0.toString());
     }
 
     /**
@@ -1009,9 +951,8 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ThisExpression n, Map<String, VClass> argu) {
-        classStack.push(classStack.get(0));
-        return new LinkedList<>(Arrays.asList("this"));
+    public Operand visit(ThisExpression n, SymbolTable argu) {
+        return typed(Var.THIS, currentClass);
     }
 
     /**
@@ -1025,14 +966,23 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(ArrayAllocationExpression n, Map<String, VClass> argu) {
-        shouldPrintAlloc = true;
-        LinkedList<String> expression = n.f3.accept(this,argu);
-        LinkedList<String> arrAlloc = new LinkedList<>();
-        String allocAmt = getVal(expression, arrAlloc);
-        // Rely on calling the array allocation function
-        arrAlloc.add(indent() + createTemp() + " = call :AllocArray(" + allocAmt + ")");
-        return arrAlloc;
+    public Operand visit(ArrayAllocationExpression n, SymbolTable argu) {
+        Operand allocAmt = n.f3.accept(this, argu);
+        // Room for the length and then the elements, the size in bytes
+        // known right away for a constant length
+        Operand bytes;
+        if(allocAmt instanceof Imm) {
+            bytes = new Imm(((Imm) allocAmt).value * 4 + 4);
+        } else {
+            Var scaled = createTemp();
+            emit(new BuiltIn(scaled, BuiltIn.MUL, allocAmt, new Imm(4)));
+            emit(new BuiltIn(scaled, BuiltIn.ADD, scaled, new Imm(4)));
+            bytes = scaled;
+        }
+        Var result = createTemp();
+        emit(new BuiltIn(result, BuiltIn.ALLOC, bytes));
+        emit(new MemWrite(result, 0, allocAmt));
+        return result;
     }
 
     /**
@@ -1045,18 +995,14 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(AllocationExpression n, Map<String, VClass> argu) {
-        String className = n.f1.accept(this, argu).getLast();
-        classStack.push(className);
-        String currentClass = classStack.peek();
-        VClass curr = argu.get(currentClass);
-        LinkedList<String> newClass = new LinkedList<>();
-        String currVar = createTemp();
+    public Operand visit(AllocationExpression n, SymbolTable argu) {
+        VClass curr = argu.getClass(n.f1.f0.toString());
+        Var currVar = typed(createTemp(), curr);
         // Allocate heap space
-        newClass.add(indent() + currVar + " = HeapAllocZ(" + curr.size() + ")");
+        emit(new BuiltIn(currVar, BuiltIn.ALLOC, new Imm(curr.size())));
         // Set to class pointer
-        newClass.add(indent() + "[" + currVar + "] = :vmt_" + currentClass);
-        return newClass;
+        emit(new MemWrite(currVar, 0, new LabelRef("vmt_" + curr.className)));
+        return currVar;
     }
 
     /**
@@ -1067,13 +1013,12 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(NotExpression n, Map<String, VClass> argu) {
-        LinkedList<String> not = new LinkedList<>();
-        LinkedList<String> expr = n.f1.accept(this, argu);
-        String exprVal = getVal(expr, not);
+    public Operand visit(NotExpression n, SymbolTable argu) {
+        Operand exprVal = n.f1.accept(this, argu);
         // Subtraction will negate the boolean expression
-        not.add(indent() + createTemp() + " = Sub(1 " + exprVal + ")");
-        return not;
+        Var result = createTemp();
+        emit(new BuiltIn(result, BuiltIn.SUB, Imm.ONE, exprVal));
+        return result;
     }
 
     /**
@@ -1085,7 +1030,7 @@ public class TranslatorVisitor extends GJDepthFirst<LinkedList<String>, Map<Stri
      * @param argu
      */
     @Override
-    public LinkedList<String> visit(BracketExpression n, Map<String, VClass> argu) {
+    public Operand visit(BracketExpression n, SymbolTable argu) {
         return n.f1.accept(this, argu);
     }
 }
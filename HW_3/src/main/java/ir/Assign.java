@@ -0,0 +1,32 @@
+package ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * dst = src
+ */
+public final class Assign extends Instr {
+    public final Var dst;
+    public final Operand src;
+
+    public Assign(Var dst, Operand src) {
+        this.dst = dst;
+        this.src = src;
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.singletonList(src);
+    }
+
+    @Override
+    public String toString() {
+        return dst + " = " + src;
+    }
+}
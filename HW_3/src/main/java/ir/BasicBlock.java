@@ -0,0 +1,32 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A BasicBlock is a run of instructions entered only at the top, through
+ * its label, and left only at the bottom.
+ */
+public final class BasicBlock {
+    // Position of the block in the function
+    public final int index;
+    public final List<Instr> instrs = new ArrayList<>();
+    public final List<BasicBlock> successors = new ArrayList<>();
+    public final List<BasicBlock> predecessors = new ArrayList<>();
+
+    BasicBlock(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return The last instruction of the block, or null if it is empty
+     */
+    public Instr last() {
+        return instrs.isEmpty() ? null : instrs.get(instrs.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "B" + index;
+    }
+}
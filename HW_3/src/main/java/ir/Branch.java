@@ -0,0 +1,29 @@
+package ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * if cond goto :target, or if0 when the branch is taken on zero
+ */
+public final class Branch extends Instr {
+    public final boolean ifZero;
+    public final Operand cond;
+    public final String target;
+
+    public Branch(boolean ifZero, Operand cond, String target) {
+        this.ifZero = ifZero;
+        this.cond = cond;
+        this.target = target;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.singletonList(cond);
+    }
+
+    @Override
+    public String toString() {
+        return (ifZero ? "if0 " : "if ") + cond + " goto :" + target;
+    }
+}
@@ -0,0 +1,51 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * [dst =] Op(args), a call to one of the Vapor builtins
+ */
+public final class BuiltIn extends Instr {
+    public static final String ADD = "Add";
+    public static final String SUB = "Sub";
+    public static final String MUL = "MulS";
+    public static final String EQ = "Eq";
+    public static final String LT = "Lt";
+    public static final String LTS = "LtS";
+    public static final String PRINT = "PrintIntS";
+    public static final String ALLOC = "HeapAllocZ";
+    public static final String ERROR = "Error";
+
+    // Null for builtins whose result is not used
+    public final Var dst;
+    public final String op;
+    public final List<Operand> args;
+
+    public BuiltIn(Var dst, String op, List<Operand> args) {
+        this.dst = dst;
+        this.op = op;
+        this.args = Collections.unmodifiableList(args);
+    }
+
+    public BuiltIn(Var dst, String op, Operand... args) {
+        this(dst, op, Arrays.asList(args));
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        String call = op + "(" + join(args) + ")";
+        return dst == null ? call : dst + " = " + call;
+    }
+}
@@ -0,0 +1,39 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * dst = call target(args), a call to a function label or a function
+ * pointer
+ */
+public final class Call extends Instr {
+    public final Var dst;
+    public final Operand target;
+    public final List<Operand> args;
+
+    public Call(Var dst, Operand target, List<Operand> args) {
+        this.dst = dst;
+        this.target = target;
+        this.args = Collections.unmodifiableList(args);
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        List<Operand> uses = new ArrayList<>(args.size() + 1);
+        uses.add(target);
+        uses.addAll(args);
+        return uses;
+    }
+
+    @Override
+    public String toString() {
+        return dst + " = call " + target + "(" + join(args) + ")";
+    }
+}
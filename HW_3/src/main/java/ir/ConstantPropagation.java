@@ -0,0 +1,227 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * ConstantPropagation finds the variables that hold a known integer at
+ * each point of a function, following the jumps so loops and the two arms
+ * of an if meet correctly. Uses of those variables become immediates,
+ * arithmetic on immediates is done here, and branches on a known value
+ * become a goto or go away, taking code that can no longer run with them.
+ *
+ * A variable missing from a state is not constant. A block whose state is
+ * still null has not been reached by the analysis.
+ */
+public final class ConstantPropagation implements Pass {
+
+    @Override
+    public void run(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        List<Map<Var, Integer>> in = analyze(cfg);
+        for (BasicBlock block : cfg.blocks) {
+            Map<Var, Integer> state = in.get(block.index);
+            if (state == null) {
+                // Never reached, simplify drops it with its label
+                continue;
+            }
+            List<Instr> rewritten = new ArrayList<>();
+            for (Instr instr : block.instrs) {
+                Instr replacement = rewrite(instr, state);
+                transfer(instr, state);
+                if (replacement != null)
+                    rewritten.add(replacement);
+            }
+            block.instrs.clear();
+            block.instrs.addAll(rewritten);
+        }
+        cfg.flatten();
+        ControlFlowGraph.simplify(function);
+    }
+
+    /**
+     * Runs the analysis to a fixed point
+     * @param cfg Graph of the function
+     * @return The state at the top of every block, by block index
+     */
+    private static List<Map<Var, Integer>> analyze(ControlFlowGraph cfg) {
+        List<Map<Var, Integer>> in = new ArrayList<>();
+        for (int i = 0; i < cfg.blocks.size(); i++) {
+            in.add(null);
+        }
+        // Parameters and uninitialized locals are not constant at the entry
+        in.set(0, new HashMap<Var, Integer>());
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> queued = new HashSet<>();
+        worklist.add(cfg.entry());
+        queued.add(cfg.entry());
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.poll();
+            queued.remove(block);
+            Map<Var, Integer> state = new HashMap<>(in.get(block.index));
+            for (Instr instr : block.instrs) {
+                transfer(instr, state);
+            }
+            for (BasicBlock successor : reachedSuccessors(cfg, block, state)) {
+                Map<Var, Integer> before = in.get(successor.index);
+                Map<Var, Integer> after = before == null ? new HashMap<>(state) : meet(before, state);
+                if (before == null || !after.equals(before)) {
+                    in.set(successor.index, after);
+                    if (queued.add(successor))
+                        worklist.add(successor);
+                }
+            }
+        }
+        return in;
+    }
+
+    // Successors a block can actually go to, given its state at the end
+    private static List<BasicBlock> reachedSuccessors(ControlFlowGraph cfg, BasicBlock block, Map<Var, Integer> state) {
+        Instr last = block.last();
+        if (last instanceof Branch) {
+            Branch branch = (Branch) last;
+            Integer cond = value(branch.cond, state);
+            if (cond != null) {
+                boolean taken = (cond == 0) == branch.ifZero;
+                BasicBlock target = cfg.blockOf(branch.target);
+                if (taken)
+                    return Collections.singletonList(target);
+                List<BasicBlock> fallthrough = new ArrayList<>(block.successors);
+                // The target may also be the next block
+                if (!(block.index + 1 < cfg.blocks.size() && cfg.blocks.get(block.index + 1) == target))
+                    fallthrough.remove(target);
+                return fallthrough;
+            }
+        }
+        return block.successors;
+    }
+
+    private static Map<Var, Integer> meet(Map<Var, Integer> a, Map<Var, Integer> b) {
+        Map<Var, Integer> met = new HashMap<>();
+        for (Map.Entry<Var, Integer> entry : a.entrySet()) {
+            if (entry.getValue().equals(b.get(entry.getKey())))
+                met.put(entry.getKey(), entry.getValue());
+        }
+        return met;
+    }
+
+    /**
+     * Moves the state past an instruction
+     * @param instr Instruction in question
+     * @param state Known constants before it, updated in place
+     */
+    private static void transfer(Instr instr, Map<Var, Integer> state) {
+        Var def = instr.def();
+        if (def == null)
+            return;
+        Integer result = null;
+        if (instr instanceof Assign) {
+            result = value(((Assign) instr).src, state);
+        } else if (instr instanceof BuiltIn) {
+            result = evaluate((BuiltIn) instr, state);
+        }
+        if (result == null)
+            state.remove(def);
+        else
+            state.put(def, result);
+    }
+
+    private static Integer value(Operand operand, Map<Var, Integer> state) {
+        if (operand instanceof Imm)
+            return ((Imm) operand).value;
+        if (operand instanceof Var)
+            return state.get(operand);
+        return null;
+    }
+
+    private static Integer evaluate(BuiltIn builtIn, Map<Var, Integer> state) {
+        if (!foldable(builtIn.op))
+            return null;
+        Integer a = value(builtIn.args.get(0), state);
+        Integer b = value(builtIn.args.get(1), state);
+        if (a == null || b == null)
+            return null;
+        return fold(builtIn.op, a, b);
+    }
+
+    /**
+     * @param op Name of a builtin
+     * @return Whether it is arithmetic or a comparison on two integers
+     */
+    public static boolean foldable(String op) {
+        return op.equals(BuiltIn.ADD) || op.equals(BuiltIn.SUB) || op.equals(BuiltIn.MUL)
+                || op.equals(BuiltIn.EQ) || op.equals(BuiltIn.LT) || op.equals(BuiltIn.LTS);
+    }
+
+    /**
+     * Computes a foldable builtin the way Vapor would
+     * @param op Name of the builtin
+     * @param a First argument
+     * @param b Second argument
+     * @return The result
+     */
+    public static int fold(String op, int a, int b) {
+        switch (op) {
+            case BuiltIn.ADD: return a + b;
+            case BuiltIn.SUB: return a - b;
+            case BuiltIn.MUL: return a * b;
+            case BuiltIn.EQ: return a == b ? 1 : 0;
+            // Lt compares unsigned, it is what the bounds checks rely on
+            case BuiltIn.LT: return Integer.compareUnsigned(a, b) < 0 ? 1 : 0;
+            case BuiltIn.LTS: return a < b ? 1 : 0;
+            default: throw new IllegalArgumentException(op);
+        }
+    }
+
+    /**
+     * Puts known constants in place of variable uses
+     * @param instr Instruction to rewrite
+     * @param state Known constants before it
+     * @return The rewritten instruction, or null if it is not needed
+     */
+    private static Instr rewrite(Instr instr, Map<Var, Integer> state) {
+        if (instr instanceof Assign) {
+            Assign assign = (Assign) instr;
+            return new Assign(assign.dst, constant(assign.src, state));
+        }
+        if (instr instanceof BuiltIn) {
+            BuiltIn builtIn = (BuiltIn) instr;
+            Integer result = evaluate(builtIn, state);
+            if (result != null)
+                return new Assign(builtIn.dst, new Imm(result));
+            return new BuiltIn(builtIn.dst, builtIn.op, constants(builtIn.args, state));
+        }
+        if (instr instanceof Call) {
+            Call call = (Call) instr;
+            return new Call(call.dst, call.target, constants(call.args, state));
+        }
+        if (instr instanceof MemWrite) {
+            MemWrite write = (MemWrite) instr;
+            return new MemWrite(write.base, write.offset, constant(write.src, state));
+        }
+        if (instr instanceof Return) {
+            Return ret = (Return) instr;
+            return ret.value == null ? ret : new Return(constant(ret.value, state));
+        }
+        if (instr instanceof Branch) {
+            Branch branch = (Branch) instr;
+            Integer cond = value(branch.cond, state);
+            if (cond == null)
+                return branch;
+            return (cond == 0) == branch.ifZero ? new Goto(branch.target) : null;
+        }
+        return instr;
+    }
+
+    private static Operand constant(Operand operand, Map<Var, Integer> state) {
+        Integer known = operand instanceof Var ? state.get(operand) : null;
+        return known == null ? operand : new Imm(known);
+    }
+
+    private static List<Operand> constants(List<Operand> operands, Map<Var, Integer> state) {
+        List<Operand> replaced = new ArrayList<>(operands.size());
+        for (Operand operand : operands) {
+            replaced.add(constant(operand, state));
+        }
+        return replaced;
+    }
+}
@@ -0,0 +1,235 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * ControlFlowGraph splits a function into basic blocks and links them by
+ * the jumps between them. Blocks keep source order, so putting them back
+ * together in order gives the function again.
+ */
+public final class ControlFlowGraph {
+    public final Function function;
+    public final List<BasicBlock> blocks = new ArrayList<>();
+    private final Map<String, BasicBlock> labels = new HashMap<>();
+
+    public ControlFlowGraph(Function function) {
+        this.function = function;
+        BasicBlock block = null;
+        for (Instr instr : function.body) {
+            // Every label starts a block of its own, so code can be put
+            // between a label jumped to from outside a loop and its header
+            if (block == null || instr instanceof Label) {
+                block = new BasicBlock(blocks.size());
+                blocks.add(block);
+            }
+            block.instrs.add(instr);
+            if (instr instanceof Label)
+                labels.put(((Label) instr).name, block);
+            if (isTerminator(instr))
+                block = null;
+        }
+        if (blocks.isEmpty())
+            blocks.add(new BasicBlock(0));
+        for (BasicBlock from : blocks) {
+            Instr last = from.last();
+            if (last instanceof Branch)
+                link(from, labels.get(((Branch) last).target));
+            else if (last instanceof Goto)
+                link(from, labels.get(((Goto) last).target));
+            if (!isTerminator(last) || last instanceof Branch) {
+                if (from.index + 1 < blocks.size())
+                    link(from, blocks.get(from.index + 1));
+            }
+        }
+    }
+
+    private static void link(BasicBlock from, BasicBlock to) {
+        if (!from.successors.contains(to)) {
+            from.successors.add(to);
+            to.predecessors.add(from);
+        }
+    }
+
+    /**
+     * Instructions that end a basic block: jumps, returns and Error,
+     * which stops the program
+     * @param instr Instruction in question
+     * @return Whether nothing after it in the block could run
+     */
+    public static boolean isTerminator(Instr instr) {
+        return instr instanceof Branch || instr instanceof Goto || instr instanceof Return
+                || (instr instanceof BuiltIn && ((BuiltIn) instr).op.equals(BuiltIn.ERROR));
+    }
+
+    public BasicBlock entry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * @param label Name of a label in the function
+     * @return The block the label starts
+     */
+    public BasicBlock blockOf(String label) {
+        return labels.get(label);
+    }
+
+    /**
+     * @return Blocks in reverse post order from the entry, unreachable
+     * blocks left out
+     */
+    public List<BasicBlock> reversePostOrder() {
+        List<BasicBlock> order = new ArrayList<>();
+        boolean[] seen = new boolean[blocks.size()];
+        // Explicit stack of blocks and how many of their successors are done
+        Deque<BasicBlock> stack = new ArrayDeque<>();
+        Deque<Integer> next = new ArrayDeque<>();
+        stack.push(entry());
+        next.push(0);
+        seen[0] = true;
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.peek();
+            int i = next.pop();
+            if (i < block.successors.size()) {
+                next.push(i + 1);
+                BasicBlock successor = block.successors.get(i);
+                if (!seen[successor.index]) {
+                    seen[successor.index] = true;
+                    stack.push(successor);
+                    next.push(0);
+                }
+            } else {
+                stack.pop();
+                order.add(block);
+            }
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * Finds the immediate dominator of every block, the closest block every
+     * path from the entry goes through, by iterating over the blocks in
+     * reverse post order until nothing changes
+     * @return Immediate dominators by block index, the entry being its own
+     * and unreachable blocks having none
+     */
+    public BasicBlock[] immediateDominators() {
+        List<BasicBlock> order = reversePostOrder();
+        int[] position = new int[blocks.size()];
+        for (int i = 0; i < order.size(); i++) {
+            position[order.get(i).index] = i;
+        }
+        BasicBlock[] idom = new BasicBlock[blocks.size()];
+        idom[0] = entry();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : order.subList(1, order.size())) {
+                BasicBlock dominator = null;
+                for (BasicBlock predecessor : block.predecessors) {
+                    if (idom[predecessor.index] == null)
+                        continue;
+                    dominator = dominator == null ? predecessor
+                            : intersect(dominator, predecessor, idom, position);
+                }
+                if (idom[block.index] != dominator) {
+                    idom[block.index] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        return idom;
+    }
+
+    // Closest common dominator of two blocks, walking up the tree
+    private static BasicBlock intersect(BasicBlock a, BasicBlock b, BasicBlock[] idom, int[] position) {
+        while (a != b) {
+            while (position[a.index] > position[b.index])
+                a = idom[a.index];
+            while (position[b.index] > position[a.index])
+                b = idom[b.index];
+        }
+        return a;
+    }
+
+    /**
+     * @param idom Immediate dominators, as found by immediateDominators
+     * @param a A reachable block
+     * @param b A reachable block
+     * @return Whether every path from the entry to b goes through a
+     */
+    public static boolean dominates(BasicBlock[] idom, BasicBlock a, BasicBlock b) {
+        while (b != a && idom[b.index] != b) {
+            b = idom[b.index];
+        }
+        return b == a;
+    }
+
+    /**
+     * Tidies a function after branches were folded: drops blocks that can
+     * no longer be reached, jumps to the very next instruction, and labels
+     * nothing jumps to.
+     * @param function Function to tidy
+     */
+    public static void simplify(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        boolean[] reachable = new boolean[cfg.blocks.size()];
+        for (BasicBlock block : cfg.reversePostOrder()) {
+            reachable[block.index] = true;
+        }
+        List<Instr> body = new ArrayList<>();
+        for (BasicBlock block : cfg.blocks) {
+            if (reachable[block.index])
+                body.addAll(block.instrs);
+        }
+        // Jumps to a label right below them fall through instead
+        List<Instr> jumps = new ArrayList<>();
+        for (int i = 0; i < body.size(); i++) {
+            Instr instr = body.get(i);
+            String target = jumpTarget(instr);
+            if (target != null && fallsInto(body, i + 1, target))
+                continue;
+            jumps.add(instr);
+        }
+        Set<String> used = new HashSet<>();
+        for (Instr instr : jumps) {
+            String target = jumpTarget(instr);
+            if (target != null)
+                used.add(target);
+        }
+        List<Instr> tidy = new ArrayList<>();
+        for (Instr instr : jumps) {
+            if (!(instr instanceof Label) || used.contains(((Label) instr).name))
+                tidy.add(instr);
+        }
+        function.body = tidy;
+    }
+
+    private static String jumpTarget(Instr instr) {
+        if (instr instanceof Branch)
+            return ((Branch) instr).target;
+        if (instr instanceof Goto)
+            return ((Goto) instr).target;
+        return null;
+    }
+
+    // Whether the labels starting at from include target
+    private static boolean fallsInto(List<Instr> body, int from, String target) {
+        for (int i = from; i < body.size() && body.get(i) instanceof Label; i++) {
+            if (((Label) body.get(i)).name.equals(target))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts the blocks back together as the function body
+     */
+    public void flatten() {
+        List<Instr> body = new ArrayList<>();
+        for (BasicBlock block : blocks) {
+            body.addAll(block.instrs);
+        }
+        function.body = body;
+    }
+}
@@ -0,0 +1,95 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * CopyPropagation reads a variable's source in place of the variable when
+ * it was last set by a plain copy, on every path, and neither has changed
+ * since. The copies themselves are then left for DeadCodeElimination.
+ */
+public final class CopyPropagation implements Pass {
+
+    @Override
+    public void run(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        List<Map<Var, Var>> in = analyze(cfg);
+        for (BasicBlock block : cfg.blocks) {
+            if (in.get(block.index) == null)
+                continue;
+            final Map<Var, Var> copies = new HashMap<>(in.get(block.index));
+            Rewriter propagate = new Rewriter() {
+                @Override
+                protected Operand use(Operand use) {
+                    Var source = copies.get(use);
+                    return source == null ? use : source;
+                }
+            };
+            for (int i = 0; i < block.instrs.size(); i++) {
+                Instr instr = block.instrs.get(i);
+                block.instrs.set(i, propagate.rewrite(instr));
+                transfer(instr, copies);
+            }
+        }
+        cfg.flatten();
+    }
+
+    /**
+     * Runs the analysis to a fixed point
+     * @param cfg Graph of the function
+     * @return The copies in effect at the top of every block, null if
+     * the block is never reached
+     */
+    private static List<Map<Var, Var>> analyze(ControlFlowGraph cfg) {
+        List<Map<Var, Var>> in = new ArrayList<>();
+        for (int i = 0; i < cfg.blocks.size(); i++) {
+            in.add(null);
+        }
+        in.set(0, new HashMap<Var, Var>());
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> queued = new HashSet<>();
+        worklist.add(cfg.entry());
+        queued.add(cfg.entry());
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.poll();
+            queued.remove(block);
+            Map<Var, Var> out = new HashMap<>(in.get(block.index));
+            for (Instr instr : block.instrs) {
+                transfer(instr, out);
+            }
+            for (BasicBlock successor : block.successors) {
+                Map<Var, Var> before = in.get(successor.index);
+                Map<Var, Var> after = new HashMap<>(out);
+                if (before != null)
+                    after.entrySet().retainAll(before.entrySet());
+                if (before == null || !after.equals(before)) {
+                    in.set(successor.index, after);
+                    if (queued.add(successor))
+                        worklist.add(successor);
+                }
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Moves the copies in effect past an instruction
+     * @param instr Instruction in question
+     * @param copies Copies in effect before it, updated in place
+     */
+    private static void transfer(Instr instr, Map<Var, Var> copies) {
+        Var def = instr.def();
+        if (def == null)
+            return;
+        // The source as it is now, before the copy may overwrite it
+        Var source = null;
+        if (instr instanceof Assign && ((Assign) instr).src instanceof Var) {
+            source = (Var) ((Assign) instr).src;
+            if (copies.containsKey(source))
+                source = copies.get(source);
+        }
+        copies.remove(def);
+        copies.values().removeAll(Collections.singleton(def));
+        if (source != null && !source.equals(def))
+            copies.put(def, source);
+    }
+}
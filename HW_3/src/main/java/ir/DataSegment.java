@@ -0,0 +1,17 @@
+package ir;
+
+import java.util.List;
+
+/**
+ * A read only data segment of function labels, used for the virtual
+ * method tables
+ */
+public final class DataSegment {
+    public final String name;
+    public final List<String> labels;
+
+    public DataSegment(String name, List<String> labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+}
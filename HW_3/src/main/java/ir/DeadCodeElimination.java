@@ -0,0 +1,83 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * DeadCodeElimination drops assignments, loads and arithmetic whose result
+ * is never read, repeating until only live code is left. Variables only
+ * read to compute themselves, like a counter nothing else looks at, go
+ * too, although liveness sees them read around their loop.
+ */
+public final class DeadCodeElimination implements Pass {
+
+    @Override
+    public void run(Function function) {
+        boolean changed = true;
+        while (changed) {
+            changed = dropSelfFeeding(function);
+            ControlFlowGraph cfg = new ControlFlowGraph(function);
+            Liveness liveness = new Liveness(cfg);
+            for (BasicBlock block : cfg.blocks) {
+                Set<Var> live = new HashSet<>(liveness.liveOut(block));
+                List<Instr> kept = new ArrayList<>();
+                for (int i = block.instrs.size() - 1; i >= 0; i--) {
+                    Instr instr = block.instrs.get(i);
+                    if (isPure(instr) && (!live.contains(instr.def()) || isSelfCopy(instr))) {
+                        changed = true;
+                        continue;
+                    }
+                    Liveness.step(instr, live);
+                    kept.add(instr);
+                }
+                Collections.reverse(kept);
+                block.instrs.clear();
+                block.instrs.addAll(kept);
+            }
+            cfg.flatten();
+        }
+    }
+
+    /**
+     * Drops the variables whose value only goes into themselves
+     * @param function Function in question
+     * @return Whether anything was dropped
+     */
+    private static boolean dropSelfFeeding(Function function) {
+        Set<Var> read = new HashSet<>();
+        for (Instr instr : function.body) {
+            for (Operand use : instr.uses()) {
+                if (use instanceof Var && !(isPure(instr) && use.equals(instr.def())))
+                    read.add((Var) use);
+            }
+        }
+        List<Instr> kept = new ArrayList<>();
+        for (Instr instr : function.body) {
+            if (!isPure(instr) || read.contains(instr.def()) || function.params.contains(instr.def()))
+                kept.add(instr);
+        }
+        if (kept.size() == function.body.size())
+            return false;
+        function.body = kept;
+        return true;
+    }
+
+    /**
+     * Instructions that only compute their result, so they can go when it
+     * is not needed
+     * @param instr Instruction in question
+     * @return Whether dropping it is safe once its result is dead
+     */
+    public static boolean isPure(Instr instr) {
+        if (instr instanceof Assign || instr instanceof MemRead)
+            return true;
+        if (instr instanceof BuiltIn) {
+            BuiltIn builtIn = (BuiltIn) instr;
+            return builtIn.dst != null && ConstantPropagation.foldable(builtIn.op);
+        }
+        return false;
+    }
+
+    private static boolean isSelfCopy(Instr instr) {
+        return instr instanceof Assign && ((Assign) instr).dst.equals(((Assign) instr).src);
+    }
+}
@@ -0,0 +1,50 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * FreshNames hands out variable and label names a function does not use
+ * yet, for passes adding code to it. Variables get a dot in their name, so
+ * TempRecycling treats them as temps, and labels are prefixed with the
+ * function like the translator's.
+ */
+final class FreshNames {
+    private final Set<String> used = new HashSet<>();
+    private final String variables;
+    private final String labels;
+    private int next = 0;
+
+    /**
+     * @param function Function the names are for
+     * @param kind What the pass names things after
+     */
+    FreshNames(Function function, String kind) {
+        variables = kind + ".";
+        labels = function.name + "." + kind;
+        for (Var param : function.params) {
+            used.add(param.name);
+        }
+        for (Instr instr : function.body) {
+            if (instr.def() != null)
+                used.add(instr.def().name);
+            if (instr instanceof Label)
+                used.add(((Label) instr).name);
+        }
+    }
+
+    private String fresh(String base) {
+        String name = base + next++;
+        while (!used.add(name)) {
+            name = base + next++;
+        }
+        return name;
+    }
+
+    Var var() {
+        return new Var(fresh(variables));
+    }
+
+    String label() {
+        return fresh(labels);
+    }
+}
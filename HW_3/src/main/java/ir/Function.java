@@ -0,0 +1,22 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Vapor function: its label, its parameters and its body
+ */
+public final class Function {
+    public final String name;
+    public final List<Var> params;
+    public List<Instr> body = new ArrayList<>();
+
+    public Function(String name, List<Var> params) {
+        this.name = name;
+        this.params = params;
+    }
+
+    public void add(Instr instr) {
+        body.add(instr);
+    }
+}
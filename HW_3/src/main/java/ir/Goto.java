@@ -0,0 +1,17 @@
+package ir;
+
+/**
+ * goto :target
+ */
+public final class Goto extends Instr {
+    public final String target;
+
+    public Goto(String target) {
+        this.target = target;
+    }
+
+    @Override
+    public String toString() {
+        return "goto :" + target;
+    }
+}
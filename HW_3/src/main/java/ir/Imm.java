@@ -0,0 +1,30 @@
+package ir;
+
+/**
+ * An integer immediate
+ */
+public final class Imm extends Operand {
+    public static final Imm ZERO = new Imm(0);
+    public static final Imm ONE = new Imm(1);
+
+    public final int value;
+
+    public Imm(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o instanceof Imm && value == ((Imm) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value;
+    }
+}
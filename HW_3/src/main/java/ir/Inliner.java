@@ -0,0 +1,125 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Inliner replaces direct calls to small functions with a copy of their
+ * body. The callee's parameters, variables and labels are renamed apart
+ * from the caller's, its parameters are assigned the arguments, and its
+ * return becomes an assignment to the call's result. Calls through a
+ * method pointer are left alone, as are functions calling themselves.
+ *
+ * Callees are copied as they were before any inlining, so each round of
+ * inlining goes one call deep.
+ */
+public final class Inliner {
+    // Largest callee inlined, counting instructions but not labels
+    private final int budget;
+    private int inlined = 0;
+
+    public Inliner(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return Number of call sites inlined so far
+     */
+    public int inlined() {
+        return inlined;
+    }
+
+    /**
+     * Inlines the small functions of a program into their callers
+     * @param program Program to rewrite
+     * @return The functions that changed
+     */
+    public List<Function> run(Program program) {
+        Map<String, Function> small = new HashMap<>();
+        for (Function function : program.functions) {
+            if (size(function) <= budget) {
+                Function copy = new Function(function.name, function.params);
+                copy.body = new ArrayList<>(function.body);
+                small.put(function.name, copy);
+            }
+        }
+        List<Function> changed = new ArrayList<>();
+        for (Function function : program.functions) {
+            List<Instr> body = new ArrayList<>();
+            boolean inlinedHere = false;
+            for (Instr instr : function.body) {
+                Function callee = callee(instr, small);
+                if (callee == null || callee.name.equals(function.name)) {
+                    body.add(instr);
+                    continue;
+                }
+                expand((Call) instr, callee, body);
+                inlinedHere = true;
+            }
+            if (inlinedHere) {
+                function.body = body;
+                changed.add(function);
+            }
+        }
+        return changed;
+    }
+
+    private static Function callee(Instr instr, Map<String, Function> small) {
+        if (!(instr instanceof Call) || !(((Call) instr).target instanceof LabelRef))
+            return null;
+        return small.get(((LabelRef) ((Call) instr).target).name);
+    }
+
+    /**
+     * Appends a renamed copy of the callee in place of a call
+     * @param call The call
+     * @param callee Function called
+     * @param body Caller body being built
+     */
+    private void expand(Call call, Function callee, List<Instr> body) {
+        final String prefix = "in" + ++inlined;
+        final String end = prefix + "_end";
+        Rewriter rename = new Rewriter() {
+            @Override
+            protected Operand use(Operand use) {
+                return use instanceof Var ? def((Var) use) : use;
+            }
+
+            @Override
+            protected Var def(Var def) {
+                return new Var(prefix + "." + def.name);
+            }
+
+            @Override
+            protected String label(String label) {
+                return prefix + "_" + label;
+            }
+        };
+        for (int i = 0; i < callee.params.size(); i++) {
+            body.add(new Assign(rename.def(callee.params.get(i)), call.args.get(i)));
+        }
+        for (Instr instr : callee.body) {
+            if (instr instanceof Return) {
+                Return ret = (Return) instr;
+                if (ret.value != null)
+                    body.add(new Assign(call.dst, rename.use(ret.value)));
+                body.add(new Goto(end));
+            } else {
+                body.add(rename.rewrite(instr));
+            }
+        }
+        body.add(new Label(end));
+    }
+
+    /**
+     * @param function Function in question
+     * @return Number of instructions in its body, labels left out
+     */
+    public static int size(Function function) {
+        int size = 0;
+        for (Instr instr : function.body) {
+            if (!(instr instanceof Label))
+                size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,46 @@
+package ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instr is a single Vapor instruction. Instructions are immutable, so a
+ * pass that changes one builds a replacement.
+ */
+public abstract class Instr {
+
+    /**
+     * @return The variable the instruction writes, or null
+     */
+    public Var def() {
+        return null;
+    }
+
+    /**
+     * @return Every operand the instruction reads, in order
+     */
+    public List<Operand> uses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return The instruction as a line of Vapor, without indentation
+     */
+    @Override
+    public abstract String toString();
+
+    /**
+     * Writes operands space separated, as in a call or builtin
+     * @param args Operands to write
+     * @return The joined operands
+     */
+    static String join(List<? extends Operand> args) {
+        StringBuilder joined = new StringBuilder();
+        for (Operand arg : args) {
+            if (joined.length() > 0)
+                joined.append(' ');
+            joined.append(arg);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package ir;
+
+/**
+ * name:, a branch target within a function
+ */
+public final class Label extends Instr {
+    public final String name;
+
+    public Label(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name + ":";
+    }
+}
@@ -0,0 +1,27 @@
+package ir;
+
+/**
+ * A reference to a function or data segment label, such as :vmt_A
+ */
+public final class LabelRef extends Operand {
+    public final String name;
+
+    public LabelRef(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return ":" + name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o instanceof LabelRef && name.equals(((LabelRef) o).name));
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
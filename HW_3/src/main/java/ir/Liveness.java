@@ -0,0 +1,61 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Liveness finds, for every block of a function, the variables whose
+ * current value may still be read after the block ends.
+ */
+public final class Liveness {
+    private final List<Set<Var>> liveOut = new ArrayList<>();
+
+    public Liveness(ControlFlowGraph cfg) {
+        List<Set<Var>> liveIn = new ArrayList<>();
+        for (int i = 0; i < cfg.blocks.size(); i++) {
+            liveIn.add(new HashSet<Var>());
+            liveOut.add(new HashSet<Var>());
+        }
+        List<BasicBlock> order = new ArrayList<>(cfg.blocks);
+        Collections.reverse(order);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : order) {
+                Set<Var> out = liveOut.get(block.index);
+                for (BasicBlock successor : block.successors) {
+                    out.addAll(liveIn.get(successor.index));
+                }
+                Set<Var> in = new HashSet<>(out);
+                for (int i = block.instrs.size() - 1; i >= 0; i--) {
+                    step(block.instrs.get(i), in);
+                }
+                if (!in.equals(liveIn.get(block.index))) {
+                    liveIn.set(block.index, in);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the live set from after an instruction to before it
+     * @param instr Instruction in question
+     * @param live Variables live after it, updated in place
+     */
+    public static void step(Instr instr, Set<Var> live) {
+        if (instr.def() != null)
+            live.remove(instr.def());
+        for (Operand use : instr.uses()) {
+            if (use instanceof Var)
+                live.add((Var) use);
+        }
+    }
+
+    /**
+     * @param block Block in question
+     * @return Variables live when the block ends
+     */
+    public Set<Var> liveOut(BasicBlock block) {
+        return liveOut.get(block.index);
+    }
+}
@@ -0,0 +1,131 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * LocalValueNumbering reuses values already computed in the same basic
+ * block, or in the block before it when that is the only way in, as with
+ * the code after a null or bounds check. A field load, an array length
+ * load or a piece of arithmetic that is repeated while its operands still
+ * hold the same values becomes a copy of the variable that got the first
+ * result, which CopyPropagation and DeadCodeElimination then fold away.
+ *
+ * A load stays available until something may store to the memory it read:
+ * a store at the same offset or through the same pointer, or any call.
+ * Objects and arrays are separate allocations and element addresses always
+ * point past the length word, so a store at another offset cannot change
+ * the loaded word.
+ */
+public final class LocalValueNumbering implements Pass {
+
+    @Override
+    public void run(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        boolean changed = false;
+        // Values available at the bottom of each block, and the variable
+        // holding each
+        Map<BasicBlock, Map<Expr, Var>> out = new HashMap<>();
+        for (BasicBlock block : cfg.reversePostOrder()) {
+            Map<Expr, Var> available = new HashMap<>();
+            if (block.predecessors.size() == 1 && out.containsKey(block.predecessors.get(0)))
+                available.putAll(out.get(block.predecessors.get(0)));
+            for (int i = 0; i < block.instrs.size(); i++) {
+                Instr instr = block.instrs.get(i);
+                Expr expr = Expr.of(instr);
+                Var holder = expr == null ? null : available.get(expr);
+                if (holder != null) {
+                    instr = new Assign(instr.def(), holder);
+                    block.instrs.set(i, instr);
+                    changed = true;
+                }
+                kill(instr, available);
+                // A value reading its own result is gone once computed
+                if (expr != null && !expr.uses(instr.def()))
+                    available.put(expr, holder == null ? instr.def() : holder);
+            }
+            out.put(block, available);
+        }
+        if (changed)
+            cfg.flatten();
+    }
+
+    /**
+     * Drops the values an instruction may change
+     * @param instr Instruction in question
+     * @param available Values available before it, updated in place
+     */
+    private static void kill(Instr instr, Map<Expr, Var> available) {
+        Iterator<Map.Entry<Expr, Var>> entries = available.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Expr, Var> entry = entries.next();
+            Expr expr = entry.getKey();
+            Var def = instr.def();
+            if (def != null && (entry.getValue().equals(def) || expr.uses(def)))
+                entries.remove();
+            else if (expr.isLoad() && instr instanceof Call)
+                entries.remove();
+            else if (expr.isLoad() && instr instanceof MemWrite && mayAlias((MemWrite) instr, expr))
+                entries.remove();
+        }
+    }
+
+    private static boolean mayAlias(MemWrite write, Expr load) {
+        return write.offset == load.offset || write.base.equals(load.args.get(0));
+    }
+
+    /**
+     * A value an instruction computes: a load from a base and an offset,
+     * or a pure builtin on its operands
+     */
+    private static final class Expr {
+        // Null for loads
+        final String op;
+        final List<Operand> args;
+        final int offset;
+
+        private Expr(String op, List<Operand> args, int offset) {
+            this.op = op;
+            this.args = args;
+            this.offset = offset;
+        }
+
+        /**
+         * @param instr Instruction in question
+         * @return The value it computes, or null if it is not one that can
+         * be reused
+         */
+        static Expr of(Instr instr) {
+            if (instr instanceof MemRead) {
+                MemRead read = (MemRead) instr;
+                return new Expr(null, Collections.<Operand>singletonList(read.base), read.offset);
+            }
+            if (instr instanceof BuiltIn) {
+                BuiltIn builtIn = (BuiltIn) instr;
+                if (builtIn.dst != null && ConstantPropagation.foldable(builtIn.op))
+                    return new Expr(builtIn.op, builtIn.args, 0);
+            }
+            return null;
+        }
+
+        boolean isLoad() {
+            return op == null;
+        }
+
+        boolean uses(Var var) {
+            return args.contains(var);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Expr))
+                return false;
+            Expr other = (Expr) o;
+            return Objects.equals(op, other.op) && args.equals(other.args) && offset == other.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(op, args, offset);
+        }
+    }
+}
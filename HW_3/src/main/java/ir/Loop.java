@@ -0,0 +1,112 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * A Loop is a natural loop of a function: a header block and the blocks
+ * that can reach a jump back to it without going through it, where the
+ * header dominates all of them. Loops sharing a header are one loop.
+ */
+public final class Loop {
+    public final BasicBlock header;
+    // Header first, then the rest of the body
+    public final Set<BasicBlock> blocks = new LinkedHashSet<>();
+    // Block code can be added to the bottom of to run once each time the
+    // loop is entered, or null if there is none
+    public final BasicBlock preheader;
+
+    private Loop(BasicBlock header, Set<BasicBlock> blocks, ControlFlowGraph cfg) {
+        this.header = header;
+        this.blocks.addAll(blocks);
+        this.preheader = findPreheader(cfg);
+    }
+
+    /**
+     * Finds the loops of a function
+     * @param cfg Graph of the function
+     * @return The loops, larger ones first so outer loops come before the
+     * loops in them
+     */
+    public static List<Loop> find(ControlFlowGraph cfg) {
+        BasicBlock[] idom = cfg.immediateDominators();
+        Map<BasicBlock, Set<BasicBlock>> byHeader = new LinkedHashMap<>();
+        for (BasicBlock block : cfg.reversePostOrder()) {
+            for (BasicBlock header : block.successors) {
+                if (!ControlFlowGraph.dominates(idom, header, block))
+                    continue;
+                Set<BasicBlock> loop = byHeader.get(header);
+                if (loop == null) {
+                    loop = new LinkedHashSet<>();
+                    loop.add(header);
+                    byHeader.put(header, loop);
+                }
+                Deque<BasicBlock> worklist = new ArrayDeque<>();
+                if (loop.add(block))
+                    worklist.add(block);
+                while (!worklist.isEmpty()) {
+                    for (BasicBlock predecessor : worklist.poll().predecessors) {
+                        if (idom[predecessor.index] != null && loop.add(predecessor))
+                            worklist.add(predecessor);
+                    }
+                }
+            }
+        }
+        List<Loop> loops = new ArrayList<>();
+        for (Map.Entry<BasicBlock, Set<BasicBlock>> loop : byHeader.entrySet()) {
+            loops.add(new Loop(loop.getKey(), loop.getValue(), cfg));
+        }
+        Collections.sort(loops, new Comparator<Loop>() {
+            @Override
+            public int compare(Loop a, Loop b) {
+                return Integer.compare(b.blocks.size(), a.blocks.size());
+            }
+        });
+        return loops;
+    }
+
+    /**
+     * Code at the bottom of the block above the header runs once each time
+     * the loop is entered, and only then, when that block is the one way
+     * into the loop and falls into the header, as for the loops the
+     * translator writes
+     */
+    private BasicBlock findPreheader(ControlFlowGraph cfg) {
+        if (header.index == 0)
+            return null;
+        BasicBlock above = cfg.blocks.get(header.index - 1);
+        if (blocks.contains(above) || !above.successors.contains(header))
+            return null;
+        Instr last = above.last();
+        if (last instanceof Goto)
+            return null;
+        if (last instanceof Branch && hasLabel(header, ((Branch) last).target))
+            return null;
+        for (BasicBlock predecessor : header.predecessors) {
+            if (predecessor != above && !blocks.contains(predecessor))
+                return null;
+        }
+        return above;
+    }
+
+    private static boolean hasLabel(BasicBlock block, String name) {
+        for (Instr instr : block.instrs) {
+            if (instr instanceof Label && ((Label) instr).name.equals(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The variables set anywhere in the loop
+     */
+    public Set<Var> defined() {
+        Set<Var> defined = new HashSet<>();
+        for (BasicBlock block : blocks) {
+            for (Instr instr : block.instrs) {
+                if (instr.def() != null)
+                    defined.add(instr.def());
+            }
+        }
+        return defined;
+    }
+}
@@ -0,0 +1,184 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * LoopInvariantCodeMotion computes values that cannot change while a loop
+ * runs once, before the loop, instead of on every iteration. Those are
+ * pure arithmetic on operands the loop never sets, and loads of a field or
+ * a length through a pointer the loop never sets from memory nothing in
+ * the loop may store to, in a loop without calls. A store may change a
+ * load at the same offset or through the same pointer, except that a store
+ * through an array element address never changes a field or a length, and
+ * a store through an object or array pointer never changes an element.
+ *
+ * The value is computed into a new variable in front of the loop header,
+ * once for all the instructions computing it, and those become copies of
+ * it, which CopyPropagation then folds into their uses. Since the loop
+ * still decides when the copies run, the value only has to be safe to
+ * compute early: loads through a pointer other than this are skipped there
+ * when the pointer is null, and the null check left in the loop fails as
+ * it did before. Element loads are never hoisted, as they would run ahead
+ * of the bounds check that guards them, on paths the loop may never take.
+ *
+ * Loops only get code in front of them when they have a preheader. Outer
+ * loops are tried first, so a value goes straight to the outermost loop it
+ * is invariant in, and hoisting repeats until nothing moves, so values
+ * built on other invariant values move out too.
+ */
+public final class LoopInvariantCodeMotion implements Pass {
+
+    @Override
+    public void run(Function function) {
+        FreshNames names = new FreshNames(function, "hoist");
+        while (hoist(function, names)) {
+            new CopyPropagation().run(function);
+        }
+    }
+
+    /**
+     * Hoists what it can out of every loop once
+     * @param function Function in question
+     * @param names Source of fresh names
+     * @return Whether anything moved
+     */
+    private static boolean hoist(Function function, FreshNames names) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        Set<Var> elements = new HashSet<>();
+        Set<Var> pointers = new HashSet<>();
+        classify(function, elements, pointers);
+        boolean changed = false;
+        for (Loop loop : Loop.find(cfg)) {
+            if (loop.preheader == null)
+                continue;
+            Set<Var> defined = loop.defined();
+            boolean hasCall = false;
+            List<MemWrite> stores = new ArrayList<>();
+            for (BasicBlock block : loop.blocks) {
+                for (Instr instr : block.instrs) {
+                    if (instr instanceof Call)
+                        hasCall = true;
+                    if (instr instanceof MemWrite)
+                        stores.add((MemWrite) instr);
+                }
+            }
+            // Values computed in front of the loop, by what they compute
+            Map<String, Var> values = new HashMap<>();
+            List<Instr> preheader = new ArrayList<>();
+            // Loads that need their pointer checked first, by pointer
+            Map<Var, List<Instr>> guarded = new LinkedHashMap<>();
+            for (BasicBlock block : loop.blocks) {
+                for (int i = 0; i < block.instrs.size(); i++) {
+                    Instr instr = block.instrs.get(i);
+                    if (!isInvariant(instr, defined, hasCall, stores, elements, pointers))
+                        continue;
+                    String computes = retarget(instr, Var.THIS).toString();
+                    Var value = values.get(computes);
+                    if (value == null) {
+                        value = names.var();
+                        values.put(computes, value);
+                        Instr computed = retarget(instr, value);
+                        if (instr instanceof MemRead && !((MemRead) instr).base.equals(Var.THIS)) {
+                            Var base = ((MemRead) instr).base;
+                            if (!guarded.containsKey(base))
+                                guarded.put(base, new ArrayList<Instr>());
+                            guarded.get(base).add(computed);
+                        } else {
+                            preheader.add(computed);
+                        }
+                    }
+                    block.instrs.set(i, new Assign(instr.def(), value));
+                    changed = true;
+                }
+            }
+            for (Map.Entry<Var, List<Instr>> loads : guarded.entrySet()) {
+                String skip = names.label();
+                preheader.add(new Branch(true, loads.getKey(), skip));
+                preheader.addAll(loads.getValue());
+                preheader.add(new Label(skip));
+            }
+            loop.preheader.instrs.addAll(preheader);
+        }
+        if (changed)
+            cfg.flatten();
+        return changed;
+    }
+
+    /**
+     * @param instr Instruction in the loop
+     * @param defined Variables the loop sets
+     * @param hasCall Whether the loop calls anything
+     * @param stores Stores in the loop
+     * @param elements Variables only holding array element addresses
+     * @param pointers Variables only holding pointers to whole objects or
+     * arrays
+     * @return Whether it computes the same value every iteration
+     */
+    private static boolean isInvariant(Instr instr, Set<Var> defined, boolean hasCall, List<MemWrite> stores,
+                                       Set<Var> elements, Set<Var> pointers) {
+        if (instr instanceof MemRead) {
+            MemRead read = (MemRead) instr;
+            if (hasCall || defined.contains(read.base))
+                return false;
+            // Only a whole object or array cannot be read out of bounds
+            if (!pointers.contains(read.base))
+                return false;
+            for (MemWrite store : stores) {
+                if (store.offset != read.offset && !store.base.equals(read.base))
+                    continue;
+                boolean separate = (elements.contains(store.base) && pointers.contains(read.base))
+                        || (pointers.contains(store.base) && elements.contains(read.base));
+                if (!separate)
+                    return false;
+            }
+            return true;
+        }
+        if (!(instr instanceof BuiltIn) || !DeadCodeElimination.isPure(instr))
+            return false;
+        for (Operand arg : ((BuiltIn) instr).args) {
+            if (defined.contains(arg))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the variables of a function by what they point to. Element
+     * addresses are only made by adding an offset to an array, while
+     * memory, calls, the allocator and callers only ever hand out whole
+     * objects and arrays. Variables set both ways, or by copies, are in
+     * neither set.
+     * @param function Function in question
+     * @param elements Filled with the variables holding element addresses
+     * @param pointers Filled with the variables holding whole pointers
+     */
+    private static void classify(Function function, Set<Var> elements, Set<Var> pointers) {
+        Set<Var> other = new HashSet<>();
+        pointers.add(Var.THIS);
+        pointers.addAll(function.params);
+        for (Instr instr : function.body) {
+            Var def = instr.def();
+            if (def == null)
+                continue;
+            if (instr instanceof BuiltIn && ((BuiltIn) instr).op.equals(BuiltIn.ADD))
+                elements.add(def);
+            else if (instr instanceof MemRead || instr instanceof Call
+                    || (instr instanceof BuiltIn && ((BuiltIn) instr).op.equals(BuiltIn.ALLOC)))
+                pointers.add(def);
+            else
+                other.add(def);
+        }
+        Set<Var> mixed = new HashSet<>(elements);
+        mixed.retainAll(pointers);
+        mixed.addAll(other);
+        elements.removeAll(mixed);
+        pointers.removeAll(mixed);
+    }
+
+    private static Instr retarget(Instr instr, Var dst) {
+        if (instr instanceof MemRead)
+            return new MemRead(dst, ((MemRead) instr).base, ((MemRead) instr).offset);
+        BuiltIn builtIn = (BuiltIn) instr;
+        return new BuiltIn(dst, builtIn.op, builtIn.args);
+    }
+}
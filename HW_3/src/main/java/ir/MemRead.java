@@ -0,0 +1,34 @@
+package ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * dst = [base+offset]
+ */
+public final class MemRead extends Instr {
+    public final Var dst;
+    public final Var base;
+    public final int offset;
+
+    public MemRead(Var dst, Var base, int offset) {
+        this.dst = dst;
+        this.base = base;
+        this.offset = offset;
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.<Operand>singletonList(base);
+    }
+
+    @Override
+    public String toString() {
+        return dst + " = " + MemWrite.address(base, offset);
+    }
+}
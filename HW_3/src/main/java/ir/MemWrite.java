@@ -0,0 +1,33 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * [base+offset] = src
+ */
+public final class MemWrite extends Instr {
+    public final Var base;
+    public final int offset;
+    public final Operand src;
+
+    public MemWrite(Var base, int offset, Operand src) {
+        this.base = base;
+        this.offset = offset;
+        this.src = src;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Arrays.asList(base, src);
+    }
+
+    @Override
+    public String toString() {
+        return address(base, offset) + " = " + src;
+    }
+
+    static String address(Var base, int offset) {
+        return offset == 0 ? "[" + base + "]" : "[" + base + "+" + offset + "]";
+    }
+}
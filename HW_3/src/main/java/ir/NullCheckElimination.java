@@ -0,0 +1,255 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * NullCheckElimination finds the variables that cannot be null at each
+ * point of a function and drops the null checks on them. A pointer is
+ * known to be set when it is this, when it was just allocated, when it was
+ * copied from one that is, or when a check on it already passed. The same
+ * goes for object fields, so reloading a field that was checked does not
+ * check it again until a call or a store to the field may have changed it.
+ *
+ * Arrays only hold integers and are only indexed through addresses made by
+ * arithmetic, so a store through such an address never changes a field.
+ */
+public final class NullCheckElimination implements Pass {
+    @Override
+    public void run(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        List<Facts> in = analyze(cfg);
+        boolean changed = false;
+        for (BasicBlock block : cfg.blocks) {
+            Facts facts = in.get(block.index);
+            if (facts == null)
+                continue;
+            facts = facts.copy();
+            for (Instr instr : block.instrs) {
+                facts.transfer(instr);
+            }
+            Instr last = block.last();
+            if (last instanceof Branch && facts.nonNull.contains(((Branch) last).cond)) {
+                Branch branch = (Branch) last;
+                block.instrs.remove(block.instrs.size() - 1);
+                if (!branch.ifZero)
+                    block.instrs.add(new Goto(branch.target));
+                changed = true;
+            }
+        }
+        if (changed) {
+            cfg.flatten();
+            ControlFlowGraph.simplify(function);
+        }
+    }
+
+    /**
+     * Runs the analysis to a fixed point
+     * @param cfg Graph of the function
+     * @return The facts at the top of every block, null if never reached
+     */
+    private static List<Facts> analyze(ControlFlowGraph cfg) {
+        List<Facts> in = new ArrayList<>();
+        for (int i = 0; i < cfg.blocks.size(); i++) {
+            in.add(null);
+        }
+        Facts entry = new Facts();
+        entry.nonNull.add(Var.THIS);
+        in.set(0, entry);
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        Set<BasicBlock> queued = new HashSet<>();
+        worklist.add(cfg.entry());
+        queued.add(cfg.entry());
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.poll();
+            queued.remove(block);
+            Facts out = in.get(block.index).copy();
+            for (Instr instr : block.instrs) {
+                out.transfer(instr);
+            }
+            for (BasicBlock successor : block.successors) {
+                Facts edge = out.along(block, successor, cfg);
+                Facts before = in.get(successor.index);
+                Facts after = before == null ? edge : before.meet(edge);
+                if (before == null || !after.equals(before)) {
+                    in.set(successor.index, after);
+                    if (queued.add(successor))
+                        worklist.add(successor);
+                }
+            }
+        }
+        return in;
+    }
+
+    /**
+     * A field of an object, as a base pointer and a byte offset
+     */
+    private static final class Field {
+        final Var base;
+        final int offset;
+
+        Field(Var base, int offset) {
+            this.base = base;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Field && base.equals(((Field) o).base) && offset == ((Field) o).offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * base.hashCode() + offset;
+        }
+    }
+
+    /**
+     * What is known at one point of the function
+     */
+    private static final class Facts {
+        // Variables that cannot be null
+        final Set<Var> nonNull = new HashSet<>();
+        // Fields that cannot be null
+        final Set<Field> nonNullFields = new HashSet<>();
+        // Variables still holding the value they were loaded with
+        final Map<Var, Field> loadedFrom = new HashMap<>();
+        // Variables holding an array element address
+        final Set<Var> elementAddresses = new HashSet<>();
+
+        Facts copy() {
+            Facts copy = new Facts();
+            copy.nonNull.addAll(nonNull);
+            copy.nonNullFields.addAll(nonNullFields);
+            copy.loadedFrom.putAll(loadedFrom);
+            copy.elementAddresses.addAll(elementAddresses);
+            return copy;
+        }
+
+        Facts meet(Facts other) {
+            Facts met = copy();
+            met.nonNull.retainAll(other.nonNull);
+            met.nonNullFields.retainAll(other.nonNullFields);
+            met.loadedFrom.entrySet().retainAll(other.loadedFrom.entrySet());
+            met.elementAddresses.retainAll(other.elementAddresses);
+            return met;
+        }
+
+        /**
+         * The facts along one edge out of a block: a check that passed
+         * tells us its variable is set
+         */
+        Facts along(BasicBlock from, BasicBlock to, ControlFlowGraph cfg) {
+            Instr last = from.last();
+            if (!(last instanceof Branch) || !(((Branch) last).cond instanceof Var))
+                return this;
+            Branch branch = (Branch) last;
+            boolean taken = to == cfg.blockOf(branch.target);
+            boolean fallthrough = from.index + 1 < cfg.blocks.size() && to == cfg.blocks.get(from.index + 1);
+            // Both edges lead to the same block, so nothing is learned
+            if (taken && fallthrough)
+                return this;
+            if (taken == branch.ifZero)
+                return this;
+            Facts edge = copy();
+            Var checked = (Var) branch.cond;
+            edge.nonNull.add(checked);
+            Field field = loadedFrom.get(checked);
+            if (field != null)
+                edge.nonNullFields.add(field);
+            return edge;
+        }
+
+        /**
+         * Moves the facts past an instruction
+         * @param instr Instruction in question
+         */
+        void transfer(Instr instr) {
+            if (instr instanceof MemWrite) {
+                MemWrite write = (MemWrite) instr;
+                if (elementAddresses.contains(write.base))
+                    return;
+                forgetField(write.offset);
+                if (write.src instanceof Var && nonNull.contains(write.src))
+                    nonNullFields.add(new Field(write.base, write.offset));
+                return;
+            }
+            if (instr instanceof Call) {
+                // The callee may store to any field
+                nonNullFields.clear();
+                loadedFrom.clear();
+            }
+            Var def = instr.def();
+            if (def == null)
+                return;
+            boolean isSet = false;
+            Field loaded = null;
+            boolean isAddress = false;
+            if (instr instanceof Assign) {
+                Operand src = ((Assign) instr).src;
+                isSet = nonNull.contains(src);
+                loaded = loadedFrom.get(src);
+                isAddress = elementAddresses.contains(src);
+            } else if (instr instanceof MemRead) {
+                MemRead read = (MemRead) instr;
+                if (!elementAddresses.contains(read.base)) {
+                    loaded = new Field(read.base, read.offset);
+                    isSet = nonNullFields.contains(loaded);
+                }
+            } else if (instr instanceof BuiltIn) {
+                String op = ((BuiltIn) instr).op;
+                isSet = op.equals(BuiltIn.ALLOC);
+                isAddress = ConstantPropagation.foldable(op);
+            }
+            forgetVar(def);
+            if (isSet)
+                nonNull.add(def);
+            if (loaded != null && !loaded.base.equals(def))
+                loadedFrom.put(def, loaded);
+            if (isAddress)
+                elementAddresses.add(def);
+        }
+
+        private void forgetVar(Var var) {
+            nonNull.remove(var);
+            loadedFrom.remove(var);
+            elementAddresses.remove(var);
+            Iterator<Field> fields = nonNullFields.iterator();
+            while (fields.hasNext()) {
+                if (fields.next().base.equals(var))
+                    fields.remove();
+            }
+            Iterator<Field> loads = loadedFrom.values().iterator();
+            while (loads.hasNext()) {
+                if (loads.next().base.equals(var))
+                    loads.remove();
+            }
+        }
+
+        private void forgetField(int offset) {
+            Iterator<Field> fields = nonNullFields.iterator();
+            while (fields.hasNext()) {
+                if (fields.next().offset == offset)
+                    fields.remove();
+            }
+            Iterator<Field> loads = loadedFrom.values().iterator();
+            while (loads.hasNext()) {
+                if (loads.next().offset == offset)
+                    loads.remove();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Facts))
+                return false;
+            Facts other = (Facts) o;
+            return nonNull.equals(other.nonNull) && nonNullFields.equals(other.nonNullFields)
+                    && loadedFrom.equals(other.loadedFrom) && elementAddresses.equals(other.elementAddresses);
+        }
+
+        @Override
+        public int hashCode() {
+            return nonNull.hashCode();
+        }
+    }
+}
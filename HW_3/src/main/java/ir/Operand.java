@@ -0,0 +1,14 @@
+package ir;
+
+/**
+ * An Operand is anything a Vapor instruction can read: a variable, an
+ * integer, a code or data label, or a string literal.
+ */
+public abstract class Operand {
+
+    /**
+     * @return The operand as written in Vapor
+     */
+    @Override
+    public abstract String toString();
+}
@@ -0,0 +1,13 @@
+package ir;
+
+/**
+ * A Pass rewrites the body of one function at a time. Passes keep the
+ * meaning of the function and only ever make it cheaper to run.
+ */
+public interface Pass {
+    /**
+     * Rewrites the function in place
+     * @param function Function to rewrite
+     */
+    void run(Function function);
+}
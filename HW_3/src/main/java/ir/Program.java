@@ -0,0 +1,12 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A whole Vapor program, data segments first
+ */
+public final class Program {
+    public final List<DataSegment> data = new ArrayList<>();
+    public final List<Function> functions = new ArrayList<>();
+}
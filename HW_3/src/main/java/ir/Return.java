@@ -0,0 +1,26 @@
+package ir;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ret [value]
+ */
+public final class Return extends Instr {
+    // Null for a naked return
+    public final Operand value;
+
+    public Return(Operand value) {
+        this.value = value;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return value == null ? Collections.<Operand>emptyList() : Collections.singletonList(value);
+    }
+
+    @Override
+    public String toString() {
+        return value == null ? "ret" : "ret " + value;
+    }
+}
@@ -0,0 +1,91 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewriter rebuilds instructions with some of their parts replaced. By
+ * default nothing changes; subclasses override how the operands read, the
+ * variables written and the labels jumped to are mapped.
+ */
+public class Rewriter {
+
+    /**
+     * @param use Operand an instruction reads
+     * @return What it should read instead
+     */
+    protected Operand use(Operand use) {
+        return use;
+    }
+
+    /**
+     * @param def Variable an instruction writes
+     * @return What it should write instead
+     */
+    protected Var def(Var def) {
+        return def;
+    }
+
+    /**
+     * @param label Label an instruction defines or jumps to
+     * @return The label to use instead
+     */
+    protected String label(String label) {
+        return label;
+    }
+
+    /**
+     * Rebuilds an instruction
+     * @param instr Instruction to rewrite
+     * @return The rewritten instruction
+     */
+    public Instr rewrite(Instr instr) {
+        if (instr instanceof Assign) {
+            Assign assign = (Assign) instr;
+            return new Assign(def(assign.dst), use(assign.src));
+        }
+        if (instr instanceof BuiltIn) {
+            BuiltIn builtIn = (BuiltIn) instr;
+            return new BuiltIn(builtIn.dst == null ? null : def(builtIn.dst), builtIn.op, uses(builtIn.args));
+        }
+        if (instr instanceof Call) {
+            Call call = (Call) instr;
+            return new Call(def(call.dst), use(call.target), uses(call.args));
+        }
+        if (instr instanceof MemRead) {
+            MemRead read = (MemRead) instr;
+            return new MemRead(def(read.dst), base(read.base), read.offset);
+        }
+        if (instr instanceof MemWrite) {
+            MemWrite write = (MemWrite) instr;
+            return new MemWrite(base(write.base), write.offset, use(write.src));
+        }
+        if (instr instanceof Branch) {
+            Branch branch = (Branch) instr;
+            return new Branch(branch.ifZero, use(branch.cond), label(branch.target));
+        }
+        if (instr instanceof Goto)
+            return new Goto(label(((Goto) instr).target));
+        if (instr instanceof Label)
+            return new Label(label(((Label) instr).name));
+        if (instr instanceof Return) {
+            Return ret = (Return) instr;
+            return ret.value == null ? ret : new Return(use(ret.value));
+        }
+        throw new IllegalArgumentException(instr.toString());
+    }
+
+    // Memory is only addressed through variables
+    private Var base(Var base) {
+        Operand replaced = use(base);
+        return replaced instanceof Var ? (Var) replaced : base;
+    }
+
+    private List<Operand> uses(List<Operand> uses) {
+        List<Operand> replaced = new ArrayList<>(uses.size());
+        for (Operand use : uses) {
+            replaced.add(use(use));
+        }
+        return replaced;
+    }
+}
@@ -0,0 +1,147 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * ScalarReplacement keeps objects that never leave their function out of
+ * the heap. An object qualifies when the only variable ever pointing to it
+ * is the one it was allocated into, and that variable is only used to read
+ * and write the object's fields: it is not passed to a call, returned,
+ * stored or copied anywhere. Each field the function touches then becomes
+ * a variable of its own, set to zero where the object was allocated.
+ *
+ * Virtual calls load the method table through the object and pass it as
+ * this, so an object only qualifies once its calls were made direct and
+ * inlined.
+ *
+ * Arrays allocated with a constant length qualify the same way. Element
+ * accesses add the index to the array pointer, which counts as the pointer
+ * escaping, so this only happens to an array whose length word is all the
+ * function reads, as when an element load is dead. The length then becomes
+ * a variable holding the constant, and bounds checks compare against it.
+ */
+public final class ScalarReplacement implements Pass {
+
+    @Override
+    public void run(Function function) {
+        Map<Var, Integer> sizes = candidates(function);
+        if (sizes.isEmpty())
+            return;
+        // Offsets of the fields each object has read or written
+        final Map<Var, SortedSet<Integer>> fields = new HashMap<>();
+        for (Var object : sizes.keySet()) {
+            fields.put(object, new TreeSet<Integer>());
+        }
+        for (Instr instr : function.body) {
+            if (instr instanceof MemRead && fields.containsKey(((MemRead) instr).base)) {
+                MemRead read = (MemRead) instr;
+                fields.get(read.base).add(read.offset);
+            } else if (instr instanceof MemWrite && fields.containsKey(((MemWrite) instr).base)) {
+                MemWrite write = (MemWrite) instr;
+                fields.get(write.base).add(write.offset);
+            }
+        }
+        for (Map.Entry<Var, Integer> object : sizes.entrySet()) {
+            for (int offset : fields.get(object.getKey())) {
+                if (offset < 0 || offset >= object.getValue()) {
+                    fields.remove(object.getKey());
+                    break;
+                }
+            }
+        }
+        if (fields.isEmpty())
+            return;
+        List<Instr> body = new ArrayList<>();
+        for (Instr instr : function.body) {
+            if (instr instanceof BuiltIn && fields.containsKey(instr.def())) {
+                Var object = instr.def();
+                // The heap hands out zeroed memory
+                for (int offset : fields.get(object)) {
+                    body.add(new Assign(field(object, offset), Imm.ZERO));
+                }
+            } else if (instr instanceof MemRead && fields.containsKey(((MemRead) instr).base)) {
+                MemRead read = (MemRead) instr;
+                body.add(new Assign(read.dst, field(read.base, read.offset)));
+            } else if (instr instanceof MemWrite && fields.containsKey(((MemWrite) instr).base)) {
+                MemWrite write = (MemWrite) instr;
+                body.add(new Assign(field(write.base, write.offset), write.src));
+            } else if (instr instanceof Branch && fields.containsKey(((Branch) instr).cond)) {
+                // A null check on the object, which always passes
+                Branch branch = (Branch) instr;
+                if (!branch.ifZero)
+                    body.add(new Goto(branch.target));
+            } else {
+                body.add(instr);
+            }
+        }
+        function.body = body;
+        ControlFlowGraph.simplify(function);
+    }
+
+    /**
+     * Finds the objects that do not escape
+     * @param function Function in question
+     * @return The variables allocated into, with the size allocated
+     */
+    private static Map<Var, Integer> candidates(Function function) {
+        Map<Var, Integer> sizes = new HashMap<>();
+        Map<Var, Integer> defs = new HashMap<>();
+        for (Instr instr : function.body) {
+            Var def = instr.def();
+            if (def == null)
+                continue;
+            Integer count = defs.get(def);
+            defs.put(def, count == null ? 1 : count + 1);
+            if (instr instanceof BuiltIn && ((BuiltIn) instr).op.equals(BuiltIn.ALLOC)) {
+                Operand size = ((BuiltIn) instr).args.get(0);
+                if (size instanceof Imm)
+                    sizes.put(def, ((Imm) size).value);
+            }
+        }
+        // Allocated once and never set otherwise
+        for (Map.Entry<Var, Integer> def : defs.entrySet()) {
+            if (def.getValue() > 1)
+                sizes.remove(def.getKey());
+        }
+        sizes.keySet().removeAll(function.params);
+        sizes.remove(Var.THIS);
+        // Every use comes after the allocation, otherwise a check that
+        // should fail on a null pointer would be dropped
+        sizes.keySet().removeAll(liveAtEntry(function));
+        for (Instr instr : function.body) {
+            for (Operand use : escapingUses(instr)) {
+                sizes.remove(use);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * @param instr Instruction in question
+     * @return The operands it uses as anything but the pointer to the
+     * fields it reads or writes, or the pointer it checks for null
+     */
+    private static List<Operand> escapingUses(Instr instr) {
+        if (instr instanceof MemRead)
+            return Collections.emptyList();
+        if (instr instanceof MemWrite)
+            return Collections.singletonList(((MemWrite) instr).src);
+        if (instr instanceof Branch)
+            return Collections.emptyList();
+        return instr.uses();
+    }
+
+    private static Set<Var> liveAtEntry(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        BasicBlock entry = cfg.entry();
+        Set<Var> live = new HashSet<>(new Liveness(cfg).liveOut(entry));
+        for (int i = entry.instrs.size() - 1; i >= 0; i--) {
+            Liveness.step(entry.instrs.get(i), live);
+        }
+        return live;
+    }
+
+    private static Var field(Var object, int offset) {
+        return new Var(object.name + ".f" + offset);
+    }
+}
@@ -0,0 +1,204 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * StrengthReduction keeps array element addresses in running pointers
+ * instead of computing them from the index on every access. In a loop an
+ * induction variable is one set once per iteration, by adding a constant
+ * to itself, like the i in i = i + 1. An index scaled by a constant,
+ * MulS(i 4), then gets a variable of its own, set in front of the loop
+ * and stepped by the scaled constant right where i is stepped, and the
+ * element address built from it and an array the loop does not change
+ * becomes a running pointer the same way.
+ *
+ * The multiply and the add in the loop become copies, which CopyPropagation
+ * folds into the loads and stores, and DeadCodeElimination drops the scaled
+ * index once nothing but its own step reads it.
+ */
+public final class StrengthReduction implements Pass {
+
+    @Override
+    public void run(Function function) {
+        FreshNames names = new FreshNames(function, "iv");
+        // Scaled indices made so far, only those get running pointers
+        Set<Var> scaled = new HashSet<>();
+        while (reduce(function, names, scaled)) {
+            new CopyPropagation().run(function);
+        }
+    }
+
+    /**
+     * Reduces what it can in every loop once
+     * @param function Function in question
+     * @param names Source of fresh names
+     * @param scaled Scaled indices made by earlier rounds, added to
+     * @return Whether anything changed
+     */
+    private static boolean reduce(Function function, FreshNames names, Set<Var> scaled) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        boolean changed = false;
+        for (Loop loop : Loop.find(cfg)) {
+            if (loop.preheader == null)
+                continue;
+            Set<Var> defined = loop.defined();
+            Map<Var, Step> steps = inductionVariables(loop);
+            // New variables, by what they stand for
+            Map<String, Var> reduced = new HashMap<>();
+            for (BasicBlock block : loop.blocks) {
+                for (int i = 0; i < block.instrs.size(); i++) {
+                    Instr instr = block.instrs.get(i);
+                    if (!(instr instanceof BuiltIn) || ((BuiltIn) instr).dst == null)
+                        continue;
+                    BuiltIn builtIn = (BuiltIn) instr;
+                    Var induction;
+                    Operand by;
+                    int step;
+                    if (builtIn.op.equals(BuiltIn.MUL)) {
+                        // Index times a constant
+                        induction = inductionArg(builtIn, steps, null);
+                        by = other(builtIn, induction);
+                        if (induction == null || !(by instanceof Imm))
+                            continue;
+                        step = steps.get(induction).by * ((Imm) by).value;
+                    } else if (builtIn.op.equals(BuiltIn.ADD)) {
+                        // Scaled index plus an array
+                        induction = inductionArg(builtIn, steps, scaled);
+                        by = other(builtIn, induction);
+                        if (induction == null || !(by instanceof Var) || defined.contains(by))
+                            continue;
+                        step = steps.get(induction).by;
+                    } else {
+                        continue;
+                    }
+                    if (builtIn.dst.equals(induction))
+                        continue;
+                    String key = builtIn.op + " " + induction + " " + by;
+                    Var value = reduced.get(key);
+                    if (value == null) {
+                        value = names.var();
+                        reduced.put(key, value);
+                        loop.preheader.instrs.add(new BuiltIn(value, builtIn.op, induction, by));
+                        steps.get(induction).followers.add(new BuiltIn(value, BuiltIn.ADD, value, new Imm(step)));
+                        if (builtIn.op.equals(BuiltIn.MUL))
+                            scaled.add(value);
+                    }
+                    block.instrs.set(i, new Assign(builtIn.dst, value));
+                    changed = true;
+                }
+            }
+            // The new variables step right after their induction variable
+            for (Step step : steps.values()) {
+                int at = step.block.instrs.indexOf(step.def);
+                step.block.instrs.addAll(at + 1, step.followers);
+            }
+        }
+        if (changed)
+            cfg.flatten();
+        return changed;
+    }
+
+    /**
+     * Where and by how much an induction variable steps
+     */
+    private static final class Step {
+        final BasicBlock block;
+        // The instruction setting the variable
+        final Instr def;
+        final int by;
+        // Instructions stepping the variables made from it
+        final List<Instr> followers = new ArrayList<>();
+
+        Step(BasicBlock block, Instr def, int by) {
+            this.block = block;
+            this.def = def;
+            this.by = by;
+        }
+    }
+
+    /**
+     * Finds the variables a loop sets exactly once, to themselves plus or
+     * minus a constant, either directly or through a temp set once from
+     * them that way just before, in the same block
+     * @param loop Loop in question
+     * @return The induction variables, with how they step
+     */
+    private static Map<Var, Step> inductionVariables(Loop loop) {
+        Map<Var, List<Instr>> defs = new HashMap<>();
+        Map<Instr, BasicBlock> blocks = new IdentityHashMap<>();
+        for (BasicBlock block : loop.blocks) {
+            for (Instr instr : block.instrs) {
+                Var def = instr.def();
+                if (def == null)
+                    continue;
+                if (!defs.containsKey(def))
+                    defs.put(def, new ArrayList<Instr>());
+                defs.get(def).add(instr);
+                blocks.put(instr, block);
+            }
+        }
+        Map<Var, Step> steps = new HashMap<>();
+        for (Map.Entry<Var, List<Instr>> entry : defs.entrySet()) {
+            if (entry.getValue().size() != 1)
+                continue;
+            Var var = entry.getKey();
+            Instr def = entry.getValue().get(0);
+            Instr step = def;
+            if (def instanceof Assign && ((Assign) def).src instanceof Var) {
+                List<Instr> through = defs.get(((Assign) def).src);
+                if (through == null || through.size() != 1)
+                    continue;
+                step = through.get(0);
+                List<Instr> block = blocks.get(def).instrs;
+                if (blocks.get(step) != blocks.get(def) || block.indexOf(step) > block.indexOf(def))
+                    continue;
+            }
+            Integer by = stepOf(step, var);
+            if (by != null)
+                steps.put(var, new Step(blocks.get(def), def, by));
+        }
+        return steps;
+    }
+
+    /**
+     * @return The constant instr adds to var, or null if it does not
+     */
+    private static Integer stepOf(Instr instr, Var var) {
+        if (!(instr instanceof BuiltIn))
+            return null;
+        BuiltIn builtIn = (BuiltIn) instr;
+        if (builtIn.dst == null || builtIn.args.size() != 2)
+            return null;
+        Operand a = builtIn.args.get(0);
+        Operand b = builtIn.args.get(1);
+        if (builtIn.op.equals(BuiltIn.ADD)) {
+            if (a.equals(var) && b instanceof Imm)
+                return ((Imm) b).value;
+            if (b.equals(var) && a instanceof Imm)
+                return ((Imm) a).value;
+        } else if (builtIn.op.equals(BuiltIn.SUB) && a.equals(var) && b instanceof Imm) {
+            return -((Imm) b).value;
+        }
+        return null;
+    }
+
+    /**
+     * @param builtIn Two operand builtin
+     * @param steps Induction variables of the loop
+     * @param among Variables the argument has to be one of, or null for any
+     * @return The argument that is an induction variable, or null if none is
+     */
+    private static Var inductionArg(BuiltIn builtIn, Map<Var, Step> steps, Set<Var> among) {
+        for (Operand arg : builtIn.args) {
+            if (steps.containsKey(arg) && (among == null || among.contains(arg)))
+                return (Var) arg;
+        }
+        return null;
+    }
+
+    private static Operand other(BuiltIn builtIn, Var arg) {
+        if (arg == null)
+            return null;
+        return builtIn.args.get(0).equals(arg) ? builtIn.args.get(1) : builtIn.args.get(0);
+    }
+}
@@ -0,0 +1,27 @@
+package ir;
+
+/**
+ * A string literal, only used as the message of Error
+ */
+public final class StringLiteral extends Operand {
+    public final String value;
+
+    public StringLiteral(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + value + "\"";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o instanceof StringLiteral && value.equals(((StringLiteral) o).value));
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+}
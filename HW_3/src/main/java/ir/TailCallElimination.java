@@ -0,0 +1,96 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * TailCallElimination turns a method returning the result of calling
+ * itself on this into a loop. The call is direct only when no subclass
+ * overrides the method, so the callee is known to be the function itself,
+ * and with this passed again only the other parameters change: they are
+ * set to the arguments and the function jumps back to its top, running in
+ * one frame however deep the recursion goes.
+ *
+ * A call counts as a tail call when all that follows it, through jumps and
+ * copies of its result, is returning that result.
+ */
+public final class TailCallElimination implements Pass {
+
+    @Override
+    public void run(Function function) {
+        if (function.params.isEmpty() || !function.params.get(0).equals(Var.THIS))
+            return;
+        Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < function.body.size(); i++) {
+            Instr instr = function.body.get(i);
+            if (instr instanceof Label)
+                labels.put(((Label) instr).name, i);
+        }
+        FreshNames names = new FreshNames(function, "tail");
+        String top = null;
+        List<Instr> body = new ArrayList<>();
+        for (int i = 0; i < function.body.size(); i++) {
+            Instr instr = function.body.get(i);
+            if (!isSelfCall(function, instr) || !returnsResult(function.body, labels, i)) {
+                body.add(instr);
+                continue;
+            }
+            if (top == null)
+                top = names.label();
+            // The arguments may read the parameters they replace
+            List<Operand> args = ((Call) instr).args;
+            List<Var> values = new ArrayList<>();
+            for (int j = 1; j < args.size(); j++) {
+                Var value = names.var();
+                body.add(new Assign(value, args.get(j)));
+                values.add(value);
+            }
+            for (int j = 1; j < args.size(); j++) {
+                body.add(new Assign(function.params.get(j), values.get(j - 1)));
+            }
+            body.add(new Goto(top));
+        }
+        if (top == null)
+            return;
+        body.add(0, new Label(top));
+        function.body = body;
+        ControlFlowGraph.simplify(function);
+    }
+
+    private static boolean isSelfCall(Function function, Instr instr) {
+        if (!(instr instanceof Call))
+            return false;
+        Call call = (Call) instr;
+        return call.target instanceof LabelRef && ((LabelRef) call.target).name.equals(function.name)
+                && call.args.size() == function.params.size() && call.args.get(0).equals(Var.THIS);
+    }
+
+    /**
+     * @param body Function body
+     * @param labels Position of every label in the body
+     * @param at Position of the call
+     * @return Whether the function returns the call's result right after it
+     */
+    private static boolean returnsResult(List<Instr> body, Map<String, Integer> labels, int at) {
+        // Variables known to hold the result
+        Set<Var> result = new HashSet<>();
+        result.add(((Call) body.get(at)).dst);
+        Set<Integer> seen = new HashSet<>();
+        int i = at + 1;
+        while (i < body.size() && seen.add(i)) {
+            Instr instr = body.get(i);
+            if (instr instanceof Return) {
+                return result.contains(((Return) instr).value);
+            } else if (instr instanceof Goto) {
+                i = labels.get(((Goto) instr).target);
+            } else if (instr instanceof Label) {
+                i++;
+            } else if (instr instanceof Assign && result.contains(((Assign) instr).src)) {
+                result.add(((Assign) instr).dst);
+                i++;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+}
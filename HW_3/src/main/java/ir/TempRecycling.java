@@ -0,0 +1,150 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * TempRecycling gives the translator's temps, and the variables the
+ * inliner copied in, as few names as it can. Two of them share a name when
+ * one is never written while the other still holds a value that may be
+ * read. Among the names that fit, a temp takes the one used most recently,
+ * so each name covers a short stretch of code and the ranges a register
+ * allocator sees stay tight. For the same reason a name is only reused
+ * after its last appearance, and not across a call, where holding it
+ * would cost a saved register.
+ *
+ * Temps are the variables whose name has a dot in it, which MiniJava
+ * identifiers never do. The translator's own variables keep their names.
+ */
+public final class TempRecycling implements Pass {
+
+    @Override
+    public void run(Function function) {
+        ControlFlowGraph cfg = new ControlFlowGraph(function);
+        Liveness liveness = new Liveness(cfg);
+        Map<Var, Set<Var>> interference = new HashMap<>();
+        // Where each temp first and last appears, in instruction order
+        final Map<Var, Integer> first = new HashMap<>();
+        Map<Var, Integer> last = new HashMap<>();
+        // Calls before each position, a name is not stretched over one
+        List<Integer> callsBefore = new ArrayList<>();
+        int calls = 0;
+        int position = 0;
+        for (Instr instr : function.body) {
+            callsBefore.add(calls);
+            if (instr instanceof Call)
+                calls++;
+            for (Var var : vars(instr)) {
+                if (isTemp(var, function)) {
+                    if (!first.containsKey(var))
+                        first.put(var, position);
+                    last.put(var, position);
+                    if (!interference.containsKey(var))
+                        interference.put(var, new HashSet<Var>());
+                }
+            }
+            position++;
+        }
+        for (BasicBlock block : cfg.blocks) {
+            Set<Var> live = new HashSet<>(liveness.liveOut(block));
+            for (int i = block.instrs.size() - 1; i >= 0; i--) {
+                Instr instr = block.instrs.get(i);
+                Var def = instr.def();
+                if (def != null) {
+                    for (Var other : live) {
+                        interfere(def, other, interference);
+                    }
+                }
+                Liveness.step(instr, live);
+            }
+            // Temps read before ever being written are all live together
+            if (block == cfg.entry()) {
+                for (Var a : live) {
+                    for (Var b : live) {
+                        interfere(a, b, interference);
+                    }
+                }
+            }
+        }
+        List<Var> temps = new ArrayList<>(first.keySet());
+        Collections.sort(temps, new Comparator<Var>() {
+            @Override
+            public int compare(Var a, Var b) {
+                return first.get(a) - first.get(b);
+            }
+        });
+        final Map<Var, Var> names = new HashMap<>();
+        // Position the code last used each name at
+        List<Integer> nameEnds = new ArrayList<>();
+        for (Var temp : temps) {
+            Set<Integer> taken = new HashSet<>();
+            for (Var other : interference.get(temp)) {
+                Var name = names.get(other);
+                if (name != null)
+                    taken.add(Integer.parseInt(name.name.substring(2)));
+            }
+            int best = -1;
+            int start = first.get(temp);
+            for (int i = 0; i < nameEnds.size(); i++) {
+                int end = nameEnds.get(i);
+                if (taken.contains(i) || end > start || callsBefore.get(start) > callsBefore.get(end) || isCall(function, start))
+                    continue;
+                if (best < 0 || end > nameEnds.get(best))
+                    best = i;
+            }
+            if (best < 0) {
+                best = nameEnds.size();
+                nameEnds.add(last.get(temp));
+            } else {
+                nameEnds.set(best, Math.max(nameEnds.get(best), last.get(temp)));
+            }
+            names.put(temp, new Var("t." + best));
+        }
+        Rewriter rename = new Rewriter() {
+            @Override
+            protected Operand use(Operand use) {
+                Var name = names.get(use);
+                return name == null ? use : name;
+            }
+
+            @Override
+            protected Var def(Var def) {
+                Var name = names.get(def);
+                return name == null ? def : name;
+            }
+        };
+        List<Instr> body = new ArrayList<>();
+        for (Instr instr : function.body) {
+            Instr renamed = rename.rewrite(instr);
+            // Copies between temps that now share a name do nothing
+            if (!(renamed instanceof Assign && ((Assign) renamed).dst.equals(((Assign) renamed).src)))
+                body.add(renamed);
+        }
+        function.body = body;
+    }
+
+    private static boolean isCall(Function function, int position) {
+        return function.body.get(position) instanceof Call;
+    }
+
+    private static boolean isTemp(Var var, Function function) {
+        return var.name.indexOf('.') >= 0 && !function.params.contains(var);
+    }
+
+    private static void interfere(Var a, Var b, Map<Var, Set<Var>> interference) {
+        if (a.equals(b) || !interference.containsKey(a) || !interference.containsKey(b))
+            return;
+        interference.get(a).add(b);
+        interference.get(b).add(a);
+    }
+
+    private static List<Var> vars(Instr instr) {
+        List<Var> vars = new ArrayList<>();
+        if (instr.def() != null)
+            vars.add(instr.def());
+        for (Operand use : instr.uses()) {
+            if (use instanceof Var)
+                vars.add((Var) use);
+        }
+        return vars;
+    }
+}
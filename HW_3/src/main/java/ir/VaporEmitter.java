@@ -0,0 +1,47 @@
+package ir;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * VaporEmitter streams a Program out as Vapor text. Instructions are
+ * indented one tab, labels sit with the function header.
+ */
+public class VaporEmitter {
+    private final Writer out;
+
+    public VaporEmitter(Writer out) {
+        this.out = out;
+    }
+
+    public void emit(Program program) throws IOException {
+        for (DataSegment segment : program.data) {
+            emit(segment);
+        }
+        for (Function function : program.functions) {
+            emit(function);
+        }
+        out.flush();
+    }
+
+    public void emit(DataSegment segment) throws IOException {
+        line("const " + segment.name);
+        for (String label : segment.labels) {
+            line("\t:" + label);
+        }
+        line("");
+    }
+
+    public void emit(Function function) throws IOException {
+        line("func " + function.name + "(" + Instr.join(function.params) + ")");
+        for (Instr instr : function.body) {
+            line(instr instanceof Label ? "  " + instr : "\t" + instr);
+        }
+        line("");
+    }
+
+    private void line(String text) throws IOException {
+        out.write(text);
+        out.write('\n');
+    }
+}
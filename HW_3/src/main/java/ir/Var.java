@@ -0,0 +1,30 @@
+package ir;
+
+/**
+ * A named Vapor variable: a parameter, a local, this, or a temporary.
+ * Variables are equal when their names are.
+ */
+public final class Var extends Operand {
+    public static final Var THIS = new Var("this");
+
+    public final String name;
+
+    public Var(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || (o instanceof Var && name.equals(((Var) o).name));
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
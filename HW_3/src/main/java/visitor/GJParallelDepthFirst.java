@@ -0,0 +1,117 @@
+package visitor;
+
+import syntaxtree.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * GJParallelDepthFirst is a depth first visitor that checks every
+ * TypeDeclaration of the Goal as its own fork/join task. The MainClass is
+ * visited first on the calling thread, then each class gets its own copy of
+ * the argument from the task argument factory, and the class results are
+ * folded into the main class result in source order with the reducer.
+ * Without a pool the classes are visited one after the other on the calling
+ * thread, which gives the same result.
+ *
+ * The visitor itself is shared by all tasks, so any state that changes while
+ * visiting a class has to live in the argument rather than in fields, or in
+ * a visitor of its own made by overriding visitClass.
+ */
+public class GJParallelDepthFirst<R, A> extends GJDepthFirst<R, A> {
+    // Builds the argument a single class is visited with
+    private final UnaryOperator<A> taskArgument;
+    // Combines class results, left to right in source order
+    private final BinaryOperator<R> reducer;
+    // Pool the classes are visited on, or null to visit them here
+    private final ForkJoinPool pool;
+
+    public GJParallelDepthFirst(UnaryOperator<A> taskArgument, BinaryOperator<R> reducer) {
+        this(taskArgument, reducer, ForkJoinPool.commonPool());
+    }
+
+    public GJParallelDepthFirst(UnaryOperator<A> taskArgument, BinaryOperator<R> reducer, ForkJoinPool pool) {
+        this.taskArgument = taskArgument;
+        this.reducer = reducer;
+        this.pool = pool;
+    }
+
+    /**
+     * f0 -> MainClass()
+     * f1 -> ( TypeDeclaration() )*
+     * f2 -> <EOF>
+     *
+     * @param n
+     * @param argu
+     */
+    @Override
+    public R visit(Goal n, A argu) {
+        R result = n.f0.accept(this, argu);
+        if (pool == null || n.f1.size() == 1) {
+            // A single class is not worth a task
+            for (Node _class : n.f1.nodes) {
+                result = reducer.apply(result, visitClass(_class, taskArgument.apply(argu)));
+            }
+            return result;
+        }
+        // Arguments are copied here, in order, before any class is visited
+        List<ForkJoinTask<R>> tasks = new ArrayList<>();
+        for (Node _class : n.f1.nodes) {
+            A classArgument = taskArgument.apply(argu);
+            tasks.add(pool.submit(() -> visitClass(_class, classArgument)));
+        }
+        for (ForkJoinTask<R> task : tasks) {
+            result = reducer.apply(result, join(task));
+        }
+        return result;
+    }
+
+    /**
+     * Visits one TypeDeclaration of the Goal, as its own task when there is
+     * a pool. By default this visitor does the work.
+     * @param _class The TypeDeclaration
+     * @param argu The class's own copy of the argument
+     * @return Result of the class visit
+     */
+    protected R visitClass(Node _class, A argu) {
+        return _class.accept(this, argu);
+    }
+
+    /**
+     * f0 -> ClassDeclaration()
+     *       | ClassExtendsDeclaration()
+     *
+     * @param n
+     * @param argu
+     */
+    @Override
+    public R visit(TypeDeclaration n, A argu) {
+        return n.f0.choice.accept(this, argu);
+    }
+
+    /**
+     * Waits for a class task, rethrowing whatever the class visit threw.
+     * @param task Task visiting one TypeDeclaration
+     * @return Result of the class visit
+     */
+    private R join(ForkJoinTask<R> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
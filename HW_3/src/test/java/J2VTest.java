@@ -1,9 +1,681 @@
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import ir.*;
+import symbols.*;
+import syntaxtree.*;
+import visitor.GJParallelDepthFirst;
+import visitor.IterativeDepthFirst;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 public class J2VTest {
     @Test public void testAppHasAGreeting() {
         J2V classUnderTest = new J2V();
         assertEquals(true, true);
     }
+
+    @Test public void testParallelVisitKeepsSourceOrder() throws ParseException {
+        StringBuilder program = new StringBuilder("class Main { public static void main(String[] a) { } }\n");
+        List<String> expected = new ArrayList<>(Arrays.asList("Main"));
+        for (int i = 0; i < 64; i++) {
+            program.append("class C").append(i).append(" { int x; public int get() { return x; } }\n");
+            expected.add("C" + i);
+        }
+        Goal goal = LazyParser.parse(new StringReader(program.toString()));
+        GJParallelDepthFirst<List<String>, Void> names = new GJParallelDepthFirst<List<String>, Void>(
+                argu -> argu,
+                (left, right) -> {
+                    List<String> all = new ArrayList<>(left);
+                    all.addAll(right);
+                    return all;
+                }) {
+            @Override
+            public List<String> visit(MainClass n, Void argu) {
+                return Arrays.asList(n.f1.f0.toString());
+            }
+
+            @Override
+            public List<String> visit(ClassDeclaration n, Void argu) {
+                return Arrays.asList(n.f1.f0.toString());
+            }
+        };
+        assertEquals(expected, goal.accept(names, null));
+    }
+
+    @Test public void testParallelTranslationMatchesSequential() throws ParseException, IOException {
+        StringBuilder program = new StringBuilder(
+                "class Main { public static void main(String[] a) { System.out.println(new C0().run(3)); } }\n");
+        for (int i = 0; i < 16; i++) {
+            program.append("class C").append(i).append(" { int[] x; public int run(int n) { int i; i = 0;")
+                    .append(" x = new int[n]; while (i < n) { if ((i < 1) && (0 < n)) x[i] = i; else x[i] = 1; i = i + 1; }")
+                    .append(" return x[0]; } }\n");
+        }
+        assertEquals(emit(translate(program.toString())),
+                emit(translate(program.toString(), new TranslatorVisitor(new ForkJoinPool(4)))));
+    }
+
+    /**
+     * @param program Source of a MiniJava program
+     * @return The program in Vapor, as J2V translates it
+     */
+    private static Program translate(String program) throws ParseException {
+        return translate(program, new TranslatorVisitor());
+    }
+
+    /**
+     * @param program Source of a MiniJava program
+     * @param translator Translator to run on it
+     * @return The program in Vapor
+     */
+    private static Program translate(String program, TranslatorVisitor translator) throws ParseException {
+        Goal goal = LazyParser.parse(new StringReader(program));
+        ContextVisitor context = new ContextVisitor();
+        context.traverse(goal, null);
+        SymbolTable symbols = new SymbolTable(context.classes, RapidTypeAnalysis.of(goal, context.classes));
+        return translator.translate(goal, symbols);
+    }
+
+    private static String emit(Program program) throws IOException {
+        StringWriter out = new StringWriter();
+        new VaporEmitter(out).emit(program);
+        return out.toString();
+    }
+
+    @Test public void testMethodBodiesAreParsedLast() throws ParseException {
+        LazyParser parser = new LazyParser(new StringReader(
+                "class Main { public static void main(String[] a) { } }\n"
+                + "class A extends B { int[] x; public int get(int n, B b) { int[] y; B c;"
+                + " c = b; { y = new int[n]; } return y.length; } }\n"));
+        Goal goal = parser.declarations();
+        ClassExtendsDeclaration a = (ClassExtendsDeclaration) ((TypeDeclaration) goal.f1.elementAt(0)).f0.choice;
+        MethodDeclaration get = (MethodDeclaration) a.f6.elementAt(0);
+        // Locals are declarations, the statements wait for the second pass
+        assertEquals(2, get.f7.size());
+        assertEquals(0, get.f8.size());
+        assertNull(get.f10);
+        parser.parseBodies();
+        assertEquals(2, get.f8.size());
+        assertTrue(get.f10.f0.choice instanceof ArrayLength);
+        assertEquals("}", get.f12.tokenImage);
+    }
+
+    @Test public void testPipelinedParseHandsOverClassesInOrder() throws ParseException {
+        StringBuilder program = new StringBuilder("class Main { public static void main(String[] a) { } }\n");
+        List<String> expected = new ArrayList<>(Arrays.asList("MainClass"));
+        for (int i = 0; i < 8; i++) {
+            program.append("class C").append(i).append(" { public int get() { return ").append(i).append("; } }\n");
+            expected.add("TypeDeclaration");
+        }
+        List<String> seen = new ArrayList<>();
+        new LazyParser(new StringReader(program.toString())).pipelinedDeclarations(2,
+                declaration -> seen.add(declaration.getClass().getSimpleName()));
+        assertEquals(expected, seen);
+        // A parse error ends the consumer rather than leaving it waiting
+        boolean failed = false;
+        try {
+            new LazyParser(new StringReader(program.append("class }").toString()))
+                    .pipelinedDeclarations(2, declaration -> { });
+        } catch (ParseException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+    }
+
+    @Test public void testConstantPropagationMeetsAtLoops() {
+        Var i = new Var("i");
+        Var k = new Var("k");
+        Var t = new Var("t.0");
+        Function function = new Function("F", Collections.<Var>emptyList());
+        function.add(new Assign(k, new Imm(3)));
+        function.add(new Assign(i, Imm.ZERO));
+        function.add(new Label("top"));
+        function.add(new BuiltIn(t, BuiltIn.LTS, i, k));
+        function.add(new Branch(true, t, "end"));
+        function.add(new BuiltIn(i, BuiltIn.ADD, i, Imm.ONE));
+        function.add(new Goto("top"));
+        function.add(new Label("end"));
+        function.add(new Return(k));
+        new ConstantPropagation().run(function);
+        new DeadCodeElimination().run(function);
+        // k stays 3 around the loop, i does not
+        assertEquals("[i = 0, top:, t.0 = LtS(i 3), if0 t.0 goto :end, i = Add(i 1), goto :top, end:, ret 3]",
+                function.body.toString());
+    }
+
+    @Test public void testElementLoadsStayBehindTheirBoundsCheck() {
+        Var a = new Var("a");
+        Var i = new Var("i");
+        Var k = new Var("k");
+        Var length = new Var("t.0");
+        Var inBounds = new Var("t.1");
+        Var offset = new Var("t.2");
+        Var element = new Var("t.3");
+        Var x = new Var("t.4");
+        Var more = new Var("t.5");
+        Function function = new Function("F", Arrays.asList(Var.THIS, a, i));
+        function.add(new Assign(k, Imm.ZERO));
+        function.add(new Label("top"));
+        function.add(new MemRead(length, a, 0));
+        function.add(new BuiltIn(inBounds, BuiltIn.LT, i, length));
+        function.add(new Branch(true, inBounds, "skip"));
+        function.add(new BuiltIn(offset, BuiltIn.MUL, i, new Imm(4)));
+        function.add(new BuiltIn(element, BuiltIn.ADD, offset, a));
+        function.add(new MemRead(x, element, 4));
+        function.add(new Label("skip"));
+        function.add(new BuiltIn(k, BuiltIn.ADD, k, Imm.ONE));
+        function.add(new BuiltIn(more, BuiltIn.LTS, k, new Imm(3)));
+        function.add(new Branch(false, more, "top"));
+        function.add(new Return(k));
+        new LoopInvariantCodeMotion().run(function);
+        // The length is safe to load early, the element only once i is
+        // known to be in bounds
+        assertEquals("[k = 0, hoist.1 = MulS(i 4), if0 a goto :F.hoist2, hoist.0 = [a], F.hoist2:,"
+                + " hoist.3 = Lt(i hoist.0), hoist.4 = Add(hoist.1 a), top:, t.0 = hoist.0, t.1 = hoist.3,"
+                + " if0 hoist.3 goto :skip, t.2 = hoist.1, t.3 = hoist.4, t.4 = [hoist.4+4], skip:, k = Add(k 1),"
+                + " t.5 = LtS(k 3), if t.5 goto :top, ret k]", function.body.toString());
+    }
+
+    @Test public void testSelfTailCallBecomesJump() {
+        Var n = new Var("n");
+        Var t = new Var("t.0");
+        Var r = new Var("t.1");
+        Function function = new Function("F", Arrays.asList(Var.THIS, n));
+        function.add(new Branch(true, n, "done"));
+        function.add(new BuiltIn(t, BuiltIn.SUB, n, Imm.ONE));
+        function.add(new Call(r, new LabelRef("F"), Arrays.<Operand>asList(Var.THIS, t)));
+        function.add(new Return(r));
+        function.add(new Label("done"));
+        function.add(new Return(n));
+        new TailCallElimination().run(function);
+        assertEquals("[F.tail0:, if0 n goto :done, t.0 = Sub(n 1), tail.1 = t.0, n = tail.1, goto :F.tail0,"
+                + " done:, ret n]", function.body.toString());
+    }
+
+    @Test public void testUnreachableMethodsAreLeftOut() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { System.out.println(new B().run()); } }\n"
+                + "class A { public int run() { return this.get(); } public int get() { return 1; }"
+                + " public int unused() { return 3; } }\n"
+                + "class B extends A { public int get() { return 2; } }\n"
+                + "class Never { public int go(A o) { return o.unused(); } }\n";
+        Program vapor = translate(program);
+        List<String> functions = new ArrayList<>();
+        for (Function function : vapor.functions) {
+            functions.add(function.name);
+        }
+        assertEquals(Arrays.asList("Main", "A.run", "B.get"), functions);
+        assertEquals(1, vapor.data.size());
+        assertEquals(Arrays.asList("A.run", "B.get"), vapor.data.get(0).labels);
+    }
+
+    @Test public void testArrayAllocationIsInline() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { int[] x; int n;"
+                + " x = new int[3]; n = x.length; x = new int[n]; System.out.println(x.length); } }\n";
+        Program vapor = translate(program);
+        assertEquals(1, vapor.functions.size());
+        List<String> body = new ArrayList<>();
+        for (Instr instr : vapor.functions.get(0).body) {
+            body.add(instr.toString());
+        }
+        // A constant length is folded into the size, any other is scaled
+        assertEquals(Arrays.asList("t.0 = HeapAllocZ(16)", "[t.0] = 3"), body.subList(0, 2));
+        assertTrue(body.containsAll(Arrays.asList("t.2 = MulS(n 4)", "t.2 = Add(t.2 4)", "t.3 = HeapAllocZ(t.2)",
+                "[t.3] = n")));
+    }
+
+    @Test public void testOnlyInnermostLoopsAreVersioned() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { System.out.println(new C().run(4)); } }\n"
+                + "class C { public int run(int n) { int[] x; int i; int j; x = new int[n]; i = 0;"
+                + " while (i < n) { i = i + 1; x[(i - 1)] = i; j = 0;"
+                + " while (j < n) { j = j + 1; x[(j - 1)] = i; } } return x[0]; } }\n";
+        Program vapor = translate(program);
+        int checked = 0;
+        int loops = 0;
+        for (Instr instr : vapor.functions.get(1).body) {
+            if (instr instanceof Label && instr.toString().endsWith("_checked:"))
+                checked++;
+            if (instr instanceof Label && instr.toString().endsWith("_top:"))
+                loops++;
+        }
+        // The inner loop is copied once, the outer loop is not
+        assertEquals(1, checked);
+        assertEquals(3, loops);
+    }
+
+    @Test public void testLengthBoundInBracketsIsVersioned() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { System.out.println(new C().run(4)); } }\n"
+                + "class C { public int run(int n) { int[] x; int i; x = new int[n]; i = 0;"
+                + " while (i < (x.length)) { x[i] = i; i = i + 1; } return x[0]; } }\n";
+        Program vapor = translate(program);
+        int checked = 0;
+        for (Instr instr : vapor.functions.get(1).body) {
+            if (instr instanceof Label && instr.toString().endsWith("_checked:"))
+                checked++;
+        }
+        assertEquals(1, checked);
+    }
+
+    /**
+     * Appends a null check as the translator writes one
+     * @param function Function being built
+     * @param pointer Pointer checked
+     * @param label Label past the error
+     */
+    private static void nullCheck(Function function, Var pointer, String label) {
+        function.add(new Branch(false, pointer, label));
+        function.add(new BuiltIn(null, BuiltIn.ERROR, new StringLiteral("null pointer")));
+        function.add(new Label(label));
+    }
+
+    @Test public void testObjectThatStaysInItsFunctionLeavesTheHeap() {
+        Var o = new Var("t.0");
+        Var x = new Var("t.1");
+        Var y = new Var("t.2");
+        Var sum = new Var("t.3");
+        Function function = new Function("F", Collections.<Var>emptyList());
+        function.add(new BuiltIn(o, BuiltIn.ALLOC, new Imm(8)));
+        nullCheck(function, o, "null1");
+        function.add(new MemWrite(o, 4, new Imm(5)));
+        function.add(new MemRead(x, o, 4));
+        function.add(new MemRead(y, o, 0));
+        function.add(new BuiltIn(sum, BuiltIn.ADD, x, y));
+        function.add(new Return(sum));
+        new ScalarReplacement().run(function);
+        // Both fields start out zero, as the heap would have them
+        assertEquals("[t.0.f0 = 0, t.0.f4 = 0, t.0.f4 = 5, t.1 = t.0.f4, t.2 = t.0.f0, t.3 = Add(t.1 t.2), ret t.3]",
+                function.body.toString());
+    }
+
+    @Test public void testObjectThatEscapesKeepsItsAllocation() {
+        Var o = new Var("t.0");
+        Var other = new Var("t.1");
+        Var r = new Var("t.2");
+        List<Instr> escapes = Arrays.asList(
+                new Call(r, new LabelRef("G"), Arrays.<Operand>asList(o)),
+                new MemWrite(other, 0, o),
+                new Assign(r, o),
+                new Return(o));
+        for (Instr escape : escapes) {
+            Function function = new Function("F", Arrays.asList(other));
+            function.add(new BuiltIn(o, BuiltIn.ALLOC, new Imm(4)));
+            function.add(new MemWrite(o, 0, new Imm(7)));
+            function.add(escape);
+            function.add(new Return(Imm.ZERO));
+            String before = function.body.toString();
+            new ScalarReplacement().run(function);
+            assertEquals(escape.toString(), before, function.body.toString());
+        }
+    }
+
+    @Test public void testObjectReadBeforeItsAllocationKeepsItsNullCheck() {
+        Var n = new Var("n");
+        Var o = new Var("t.0");
+        Var x = new Var("t.1");
+        Function function = new Function("F", Arrays.asList(n));
+        function.add(new Label("top"));
+        nullCheck(function, o, "null1");
+        function.add(new MemRead(x, o, 0));
+        function.add(new BuiltIn(o, BuiltIn.ALLOC, new Imm(4)));
+        function.add(new Branch(false, n, "top"));
+        function.add(new Return(x));
+        String before = function.body.toString();
+        new ScalarReplacement().run(function);
+        // The first time round o is still unset, and the check must fail
+        assertEquals(before, function.body.toString());
+    }
+
+    @Test public void testArrayOnlyReadForItsLengthLeavesTheHeap() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { int[] x;"
+                + " x = new int[3]; System.out.println(x.length); } }\n";
+        Program vapor = translate(program);
+        J2V.optimize(vapor, new Inliner(0));
+        assertEquals("[PrintIntS(3), ret]", vapor.functions.get(0).body.toString());
+    }
+
+    @Test public void testInlinedCalleesAreRenamedApart() {
+        Var a = new Var("a");
+        Var x = new Var("x");
+        Var y = new Var("y");
+        Program program = new Program();
+        Function callee = new Function("G", Arrays.asList(a));
+        callee.add(new Branch(true, a, "zero"));
+        callee.add(new Return(a));
+        callee.add(new Label("zero"));
+        callee.add(new Return(Imm.ONE));
+        Function caller = new Function("F", Collections.<Var>emptyList());
+        caller.add(new Call(x, new LabelRef("G"), Arrays.<Operand>asList(new Imm(2))));
+        caller.add(new Call(y, new LabelRef("G"), Arrays.<Operand>asList(x)));
+        caller.add(new Return(y));
+        program.functions.add(caller);
+        program.functions.add(callee);
+        Inliner inliner = new Inliner(3);
+        assertEquals(Arrays.asList(caller), inliner.run(program));
+        assertEquals(2, inliner.inlined());
+        // Each copy has its own variables and labels, and returns by a jump
+        // to its end
+        assertEquals("[in1.a = 2, if0 in1.a goto :in1_zero, x = in1.a, goto :in1_end, in1_zero:, x = 1,"
+                + " goto :in1_end, in1_end:, in2.a = x, if0 in2.a goto :in2_zero, y = in2.a, goto :in2_end,"
+                + " in2_zero:, y = 1, goto :in2_end, in2_end:, ret y]", caller.body.toString());
+    }
+
+    @Test public void testInliningGoesOneCallDeep() {
+        Var r = new Var("r");
+        Program program = new Program();
+        Function outer = new Function("F", Collections.<Var>emptyList());
+        outer.add(new Call(r, new LabelRef("G"), Collections.<Operand>emptyList()));
+        outer.add(new Return(r));
+        Function middle = new Function("G", Collections.<Var>emptyList());
+        middle.add(new Call(r, new LabelRef("H"), Collections.<Operand>emptyList()));
+        middle.add(new Return(r));
+        Function inner = new Function("H", Collections.<Var>emptyList());
+        inner.add(new Return(new Imm(7)));
+        program.functions.addAll(Arrays.asList(outer, middle, inner));
+        new Inliner(2).run(program);
+        // F gets G as it was before H went into it
+        assertEquals("[in1.r = call :H(), r = in1.r, goto :in1_end, in1_end:, ret r]", outer.body.toString());
+        assertEquals("[r = 7, goto :in2_end, in2_end:, ret r]", middle.body.toString());
+    }
+
+    @Test public void testInlinerSkipsSelfCallsAndLargeCallees() {
+        Var n = new Var("n");
+        Var r = new Var("r");
+        Program program = new Program();
+        Function self = new Function("F", Arrays.asList(n));
+        self.add(new Call(r, new LabelRef("F"), Arrays.<Operand>asList(n)));
+        self.add(new Return(r));
+        // Three instructions, the label does not count
+        Function large = new Function("G", Arrays.asList(n));
+        large.add(new Label("top"));
+        large.add(new BuiltIn(n, BuiltIn.ADD, n, Imm.ONE));
+        large.add(new BuiltIn(null, BuiltIn.PRINT, n));
+        large.add(new Return(n));
+        Function caller = new Function("H", Collections.<Var>emptyList());
+        caller.add(new Call(r, new LabelRef("G"), Arrays.<Operand>asList(Imm.ONE)));
+        caller.add(new Return(r));
+        program.functions.addAll(Arrays.asList(self, large, caller));
+        String before = caller.body.toString();
+        assertEquals(Collections.<Function>emptyList(), new Inliner(2).run(program));
+        assertEquals("[r = call :F(n), ret r]", self.body.toString());
+        assertEquals(before, caller.body.toString());
+        assertEquals(Arrays.asList(caller), new Inliner(3).run(program));
+    }
+
+    @Test public void testTempsLiveTogetherKeepApartNames() {
+        Var x = new Var("t.5");
+        Var y = new Var("t.6");
+        Var sum = new Var("t.7");
+        Var twice = new Var("t.8");
+        Function function = new Function("F", Collections.<Var>emptyList());
+        function.add(new Assign(x, Imm.ONE));
+        function.add(new Assign(y, new Imm(2)));
+        function.add(new BuiltIn(sum, BuiltIn.ADD, x, y));
+        function.add(new BuiltIn(twice, BuiltIn.ADD, sum, sum));
+        function.add(new Return(twice));
+        new TempRecycling().run(function);
+        // x and y are both read by the Add, the later temps reuse a name
+        assertEquals("[t.0 = 1, t.1 = 2, t.0 = Add(t.0 t.1), t.0 = Add(t.0 t.0), ret t.0]",
+                function.body.toString());
+    }
+
+    @Test public void testTempLiveAroundALoopKeepsItsName() {
+        Var i = new Var("i");
+        Var step = new Var("t.10");
+        Var next = new Var("t.11");
+        Var more = new Var("t.12");
+        Function function = new Function("F", Collections.<Var>emptyList());
+        function.add(new Assign(step, new Imm(5)));
+        function.add(new Assign(i, Imm.ZERO));
+        function.add(new Label("top"));
+        function.add(new BuiltIn(next, BuiltIn.ADD, i, step));
+        function.add(new Assign(i, next));
+        function.add(new BuiltIn(more, BuiltIn.LTS, i, new Imm(20)));
+        function.add(new Branch(false, more, "top"));
+        function.add(new Return(i));
+        new TempRecycling().run(function);
+        // The step is last read above next, but the back edge reads it again
+        assertEquals("[t.0 = 5, i = 0, top:, t.1 = Add(i t.0), i = t.1, t.1 = LtS(i 20), if t.1 goto :top, ret i]",
+                function.body.toString());
+    }
+
+    @Test public void testSecondNullCheckOfAPointerIsDropped() {
+        Var p = new Var("p");
+        Var x = new Var("t.0");
+        Var y = new Var("t.1");
+        Var sum = new Var("t.2");
+        Function function = new Function("F", Arrays.asList(Var.THIS, p));
+        nullCheck(function, p, "null1");
+        function.add(new MemRead(x, p, 0));
+        nullCheck(function, p, "null2");
+        function.add(new MemRead(y, p, 4));
+        function.add(new BuiltIn(sum, BuiltIn.ADD, x, y));
+        function.add(new Return(sum));
+        new NullCheckElimination().run(function);
+        assertEquals("[if p goto :null1, Error(\"null pointer\"), null1:, t.0 = [p], t.1 = [p+4], t.2 = Add(t.0 t.1),"
+                + " ret t.2]", function.body.toString());
+    }
+
+    @Test public void testNullCheckStaysWhenOnePathRebindsThePointer() {
+        Var p = new Var("p");
+        Var q = new Var("q");
+        Var c = new Var("c");
+        Var x = new Var("t.0");
+        Var y = new Var("t.1");
+        Function branch = new Function("F", Arrays.asList(Var.THIS, p, q, c));
+        nullCheck(branch, p, "null1");
+        branch.add(new MemRead(x, p, 0));
+        branch.add(new Branch(true, c, "skip"));
+        branch.add(new Assign(p, q));
+        branch.add(new Label("skip"));
+        nullCheck(branch, p, "null2");
+        branch.add(new MemRead(y, p, 0));
+        branch.add(new Return(y));
+        String before = branch.body.toString();
+        new NullCheckElimination().run(branch);
+        assertEquals(before, branch.body.toString());
+
+        Var n = new Var("n");
+        Function loop = new Function("G", Arrays.asList(Var.THIS, p, q, n));
+        nullCheck(loop, p, "null1");
+        loop.add(new MemRead(x, p, 0));
+        loop.add(new Label("top"));
+        nullCheck(loop, p, "null2");
+        loop.add(new MemRead(y, p, 0));
+        loop.add(new Assign(p, q));
+        loop.add(new BuiltIn(n, BuiltIn.SUB, n, Imm.ONE));
+        loop.add(new Branch(false, n, "top"));
+        loop.add(new Return(y));
+        before = loop.body.toString();
+        // The check in the loop holds the first time round but not after p = q
+        new NullCheckElimination().run(loop);
+        assertEquals(before, loop.body.toString());
+    }
+
+    @Test public void testRepeatedLoadIsReused() {
+        Var p = new Var("p");
+        Var q = new Var("q");
+        Var x = new Var("t.0");
+        Var y = new Var("t.1");
+        Var sum = new Var("t.2");
+        Function function = new Function("F", Arrays.asList(Var.THIS, p, q));
+        function.add(new MemRead(x, p, 4));
+        // Another pointer at another offset cannot change [p+4]
+        function.add(new MemWrite(q, 8, Imm.ONE));
+        function.add(new MemRead(y, p, 4));
+        function.add(new BuiltIn(sum, BuiltIn.ADD, x, y));
+        function.add(new Return(sum));
+        new LocalValueNumbering().run(function);
+        assertEquals("[t.0 = [p+4], [q+8] = 1, t.1 = t.0, t.2 = Add(t.0 t.1), ret t.2]", function.body.toString());
+    }
+
+    @Test public void testStoresAndCallsStopLoadReuse() {
+        Var p = new Var("p");
+        Var q = new Var("q");
+        Function function = new Function("F", Arrays.asList(Var.THIS, p, q));
+        function.add(new MemRead(new Var("t.0"), p, 4));
+        // q may be p
+        function.add(new MemWrite(q, 4, Imm.ONE));
+        function.add(new MemRead(new Var("t.1"), p, 4));
+        function.add(new MemWrite(p, 0, new Imm(2)));
+        function.add(new MemRead(new Var("t.2"), p, 4));
+        function.add(new Call(new Var("t.3"), new LabelRef("G"), Arrays.<Operand>asList(p)));
+        function.add(new MemRead(new Var("t.4"), p, 4));
+        function.add(new Return(new Var("t.4")));
+        String before = function.body.toString();
+        new LocalValueNumbering().run(function);
+        assertEquals(before, function.body.toString());
+    }
+
+    /**
+     * @param step How the loop below changes i
+     * @return A loop printing the elements of a at i, for i from 0 to n
+     */
+    private static Function elementLoop(Instr step) {
+        Var a = new Var("a");
+        Var n = new Var("n");
+        Var i = new Var("i");
+        Var more = new Var("t.0");
+        Var offset = new Var("t.1");
+        Var element = new Var("t.2");
+        Var x = new Var("t.3");
+        Function function = new Function("F", Arrays.asList(Var.THIS, a, n));
+        function.add(new Assign(i, Imm.ZERO));
+        function.add(new Label("top"));
+        function.add(new BuiltIn(more, BuiltIn.LTS, i, n));
+        function.add(new Branch(true, more, "end"));
+        function.add(new BuiltIn(offset, BuiltIn.MUL, i, new Imm(4)));
+        function.add(new BuiltIn(element, BuiltIn.ADD, offset, a));
+        function.add(new MemRead(x, element, 4));
+        function.add(new BuiltIn(null, BuiltIn.PRINT, x));
+        function.add(step);
+        function.add(new Goto("top"));
+        function.add(new Label("end"));
+        function.add(new Return(null));
+        return function;
+    }
+
+    @Test public void testElementPointerStepsWithTheIndex() {
+        Var i = new Var("i");
+        Function function = elementLoop(new BuiltIn(i, BuiltIn.ADD, i, new Imm(2)));
+        new StrengthReduction().run(function);
+        // The pointer starts at a and moves two elements at a time
+        assertEquals("[i = 0, iv.0 = MulS(i 4), iv.1 = Add(iv.0 a), top:, t.0 = LtS(i n), if0 t.0 goto :end,"
+                + " t.1 = iv.0, t.2 = iv.1, t.3 = [iv.1+4], PrintIntS(t.3), i = Add(i 2), iv.0 = Add(iv.0 8),"
+                + " iv.1 = Add(iv.1 8), goto :top, end:, ret]", function.body.toString());
+    }
+
+    @Test public void testIndexWithoutAConstantStepIsLeftAlone() {
+        Var i = new Var("i");
+        Function function = elementLoop(new BuiltIn(i, BuiltIn.ADD, i, i));
+        String before = function.body.toString();
+        new StrengthReduction().run(function);
+        assertEquals(before, function.body.toString());
+    }
+
+    /**
+     * Runs a program in the Vapor interpreter
+     * @param program Program to run
+     * @return What it printed
+     */
+    private static List<String> interpret(Program program) throws IOException, InterruptedException {
+        File vapor = File.createTempFile("J2VTest", ".vapor");
+        vapor.deleteOnExit();
+        Files.write(vapor.toPath(), emit(program).getBytes(StandardCharsets.UTF_8));
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        Process process = new ProcessBuilder(java, "-jar", "misc/vapor.jar", "run", vapor.getPath())
+                .redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                output.add(line);
+            }
+        }
+        process.waitFor();
+        return output;
+    }
+
+    @Test public void testStrengthReducedLoopsPrintTheSame() throws Exception {
+        String program = new String(Files.readAllBytes(Paths.get("testcases/StrengthReduction.java")),
+                StandardCharsets.UTF_8);
+        List<String> expected = Files.readAllLines(Paths.get("testcases/StrengthReduction.java.out"),
+                StandardCharsets.UTF_8);
+        assertEquals(expected, interpret(translate(program)));
+        Program optimized = translate(program);
+        J2V.optimize(optimized, new Inliner(0));
+        assertEquals(expected, interpret(optimized));
+    }
+
+    @Test public void testOnlyCallsWithOneTargetAreDirect() throws ParseException {
+        String program = "class Main { public static void main(String[] a) { System.out.println(new A().run());"
+                + " System.out.println(new B().run()); } }\n"
+                + "class A { public int run() { return (this.get()) + (this.base()); }"
+                + " public int get() { return 1; } public int base() { return 0; } }\n"
+                + "class B extends A { public int get() { return 2; } }\n";
+        for (TranslatorVisitor translator : Arrays.asList(new TranslatorVisitor(),
+                new TranslatorVisitor(new ForkJoinPool(4)))) {
+            Program vapor = translate(program, translator);
+            // The calls of run and base are direct, get is overridden by B
+            // and goes through the table
+            assertEquals(4, translator.callSites());
+            assertEquals(3, translator.directCalls());
+            List<String> targets = new ArrayList<>();
+            for (Function function : vapor.functions) {
+                for (Instr instr : function.body) {
+                    if (instr instanceof Call)
+                        targets.add(function.name + " " + ((Call) instr).target);
+                }
+            }
+            assertEquals(Arrays.asList("Main :A.run", "Main :A.run", "A.run t.0", "A.run :A.base"), targets);
+        }
+    }
+
+    @Test public void testDeeplyNestedProgramIsWalkedWithoutRecursion() throws Exception {
+        final int depth = 20000;
+        StringBuilder program = new StringBuilder("class Main { public static void main(String[] a) { ");
+        for (int i = 0; i < depth; i++) {
+            program.append('{');
+        }
+        program.append("System.out.println(1);");
+        for (int i = 0; i < depth; i++) {
+            program.append('}');
+        }
+        program.append(" } }\n");
+        // The generated parser recurses, so it runs with a stack of its own
+        final Goal[] goal = new Goal[1];
+        Thread parser = new Thread(null, () -> {
+            try {
+                goal[0] = LazyParser.parse(new StringReader(program.toString()));
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+        }, "parser", 1 << 30);
+        parser.start();
+        parser.join();
+        assertNotNull(goal[0]);
+        ContextVisitor context = new ContextVisitor();
+        context.traverse(goal[0], null);
+        assertEquals(Collections.singleton("Main"), context.classes.keySet());
+        // A walk into every statement reaches the innermost block
+        final int[] blocks = {0};
+        new IterativeDepthFirst<Void, Void>() {
+            @Override
+            public Void visit(Block n, Void argu) {
+                blocks[0]++;
+                return null;
+            }
+        }.traverse(goal[0], null);
+        assertEquals(depth, blocks[0]);
+    }
 }
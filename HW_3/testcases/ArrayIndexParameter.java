@@ -0,0 +1,15 @@
+class ArrayIndexParameter {
+    public static void main(String[] a) {
+        System.out.println(new Indexer().Run(3));
+    }
+}
+
+class Indexer {
+    public int Run(int k) {
+        int[] arr;
+        int p;
+        arr = new int[10];
+        p = arr[k];
+        return k;
+    }
+}
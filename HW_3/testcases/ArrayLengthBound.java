@@ -0,0 +1,26 @@
+class ArrayLengthBound {
+    public static void main(String[] a) {
+        System.out.println(new Summer().Run(6));
+    }
+}
+
+class Summer {
+    public int Run(int n) {
+        int[] a;
+        int i;
+        int sum;
+        a = new int[n];
+        i = 0;
+        while (i < (a.length)) {
+            a[i] = i * i;
+            i = i + 1;
+        }
+        i = 0;
+        sum = 0;
+        while (i < (a.length)) {
+            sum = sum + (a[i]);
+            i = i + 1;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,33 @@
+class GuardedArrayLoad {
+    public static void main(String[] a) {
+        System.out.println(new Loader().Run(5));
+        System.out.println(new Loader().Run(100000000));
+    }
+}
+
+class Loader {
+    public int Run(int i) {
+        int[] a;
+        int k;
+        int x;
+        int sum;
+        a = new int[3];
+        a[0] = 1;
+        a[1] = 2;
+        a[2] = 3;
+        k = 0;
+        x = 0;
+        sum = 0;
+        while (k < 3) {
+            if (i < 0)
+                x = 0;
+            else if (i < 3)
+                x = a[i];
+            else
+                x = 1;
+            sum = sum + x;
+            k = k + 1;
+        }
+        return sum + k;
+    }
+}
@@ -0,0 +1,33 @@
+class StrengthReduction {
+    public static void main(String[] a) {
+        System.out.println(new Walker().Run(5));
+    }
+}
+
+class Walker {
+    public int Run(int n) {
+        int[] a;
+        int i;
+        int sum;
+        a = new int[n];
+        i = 0;
+        while (i < n) {
+            a[i] = i + 3;
+            i = i + 1;
+        }
+        i = 0;
+        sum = 0;
+        while (i < n) {
+            sum = sum + (a[i]);
+            i = i + 1;
+        }
+        System.out.println(sum);
+        i = 1;
+        sum = 0;
+        while (i < n) {
+            sum = sum + (a[i]);
+            i = i + i;
+        }
+        return sum;
+    }
+}
@@ -43,6 +43,10 @@ public class LSRA {
     private final VFunction currFunc;
     // Count of how many stack allocations we'll need - caller saved
     public int localCount = 0;
+    // Count of callee registers used, saved in the first local slots
+    public int savedCount = 0;
+    // Spilled variables, in the order they were spilled
+    private LinkedList<VMVar> spilled = new LinkedList<>();
     // Count of how many out stack variables we'll need
     public int outCount = 0;
     // Final map of all variables to their registers/local stack locations
@@ -68,6 +72,11 @@ public class LSRA {
         analysis = new LivenessAnalysis(this.currFunc);
         outCount = analysis.getOutCount();
         allocate();
+        // Spill slots go after the saved registers, now that their count is known
+        for(int i = 0; i < spilled.size(); i++) {
+            locations.put(spilled.get(i), "local[" + (savedCount + i) + "]");
+        }
+        localCount = savedCount + spilled.size();
         for(Map.Entry<VMVar, String> varToReg : registerMap.entrySet()) {
             allocatedMap.put(varToReg.getKey().id, varToReg.getValue());
         }
@@ -86,11 +95,21 @@ public class LSRA {
     }
 
     /**
-     * Allocates a new stack variable, noting the increase in stack variables.
-     * @return String representing the stack location
+     * Moves a variable to the stack. Its slot is numbered once allocation
+     * is done, after the slots of the saved registers.
+     * @param var Variable to spill
+     */
+    private void spill(VMVar var) {
+        registerMap.remove(var);
+        spilled.add(var);
+    }
+
+    /**
+     * @param location Register or stack location of a variable
+     * @return Whether the variable lives on the stack
      */
-    private String newStackLocation() {
-        return "local[" + localCount++ + "]";
+    public static boolean isStack(String location) {
+        return location != null && location.startsWith("local[");
     }
 
     /**
@@ -107,7 +126,7 @@ public class LSRA {
      * @return Callee register
      */
     private String getCalleeRegister() {
-        localCount++;
+        savedCount++;
         return calleeRegisters.removeFirst();
     }
 
@@ -166,15 +185,17 @@ public class LSRA {
      * @param inVar The variable to compare ranges to
      */
     private void spillAtInterval(VMVar inVar) {
-        VMVar spill = activeVars.getLast();
-        if(spill.range.end > inVar.range.end) {
+        VMVar spill = activeVars.isEmpty() ? null : activeVars.getLast();
+        // A variable live across a call can only take a callee register
+        if(spill != null && spill.range.end > inVar.range.end
+                && (!inVar.afterCall || isCalleeRegister(registerMap.get(spill)))) {
             registerMap.put(inVar, registerMap.get(spill));
-            locations.put(spill, newStackLocation());
+            spill(spill);
             activeVars.remove(spill);
             activeVars.add(inVar);
             activeVars.sort(new VMVar.EndComparator());
         } else {
-            locations.put(inVar, newStackLocation());
+            spill(inVar);
         }
     }
 
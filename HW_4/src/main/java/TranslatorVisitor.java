@@ -6,7 +6,10 @@ import java.util.LinkedList;
 /**
  * TranslatorVisitor represents the visitor that generates vaporm code given,
  * the corresponding vapor code. Utilizes the Register allocator for storing and
- * loading from registers or stack space.
+ * loading from registers or stack space. Vaporm instructions other than plain
+ * moves only take registers, so spilled variables are loaded into the scratch
+ * registers $v1 and $v0 before they are read, and results meant for the stack
+ * are put in $v1 and stored after.
  */
 public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throwable> {
 
@@ -16,6 +19,9 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
     private static int indentLevel = 0;
     // Register allocator
     private static LSRA lsra;
+    // Registers the allocator never hands out, for spilled operands
+    private static final String SCRATCH = "$v1";
+    private static final String SECOND_SCRATCH = "$v0";
 
     /**
      * @return String representing the relevant amount of indents.
@@ -27,6 +33,45 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
         return indent;
     }
 
+    /**
+     * Gives an operand the way an instruction can read it, loading it from
+     * the stack first if it was spilled
+     * @param operand Vapor operand, a variable or a constant
+     * @param scratch Register to load a spilled variable into
+     * @param out Lines the load is added to
+     * @return Register or constant to read
+     */
+    private String read(String operand, String scratch, LinkedList<String> out) {
+        String location = lsra.getRegister(operand);
+        if(location == null)
+            return operand;
+        if(LSRA.isStack(location)) {
+            out.add(indent() + scratch + " = " + location);
+            return scratch;
+        }
+        return location;
+    }
+
+    /**
+     * @param var Vapor variable an instruction writes
+     * @return Register to write it to, the scratch register if it was spilled
+     */
+    private String target(String var) {
+        String location = lsra.getRegister(var);
+        return LSRA.isStack(location) ? SCRATCH : location;
+    }
+
+    /**
+     * Stores a result written to the scratch register to the stack
+     * @param var Vapor variable the instruction wrote
+     * @param out Lines the store is added to
+     */
+    private void store(String var, LinkedList<String> out) {
+        String location = lsra.getRegister(var);
+        if(LSRA.isStack(location))
+            out.add(indent() + location + " = " + SCRATCH);
+    }
+
     /**
      * Runs the actual translator that kicks of the visitor.
      */
@@ -54,16 +99,17 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
                     + lsra.outCount + ", local " + lsra.localCount + "]");
             indentLevel++;
             // Caller saved locals
-            for(int i = 0; i < lsra.localCount && i < 8; i++) {
+            for(int i = 0; i < lsra.savedCount; i++) {
                 vaporm.add(indent() + "local[" + i + "] = $s" + i);
             }
             // Arguments
             for(int i = 0; i < func.params.length; i++) {
-                String reg = lsra.getRegister(func.params[i].toString());
+                String param = func.params[i].toString();
                 if(i < 4) {
-                    vaporm.add(indent() + reg + " = $a" + i);
+                    vaporm.add(indent() + lsra.getRegister(param) + " = $a" + i);
                 } else {
-                    vaporm.add(indent() + reg + " = in[" + (i-4) + "]");
+                    vaporm.add(indent() + target(param) + " = in[" + (i-4) + "]");
+                    store(param, vaporm);
                 }
             }
             LinkedList<VCodeLabel> allLabels = new LinkedList<>(Arrays.asList(func.labels));
@@ -89,9 +135,12 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
     public LinkedList<String> visit(VAssign vAssign) throws Throwable {
         LinkedList<String> assign = new LinkedList<>();
         String lhsStr = vAssign.dest.toString();
+        String lhsVal = lsra.getRegister(lhsStr);
         String rhsStr = vAssign.source.toString();
-        String rhsVal = lsra.getRegister(rhsStr) == null ? rhsStr : lsra.getRegister(rhsStr);
-        assign.add(indent() + lsra.getRegister(lhsStr) + " = " + rhsVal);
+        // A move can read the stack, but not into the stack
+        String rhsVal = LSRA.isStack(lhsVal) ? read(rhsStr, SCRATCH, assign)
+                : lsra.getRegister(rhsStr) == null ? rhsStr : lsra.getRegister(rhsStr);
+        assign.add(indent() + lhsVal + " = " + rhsVal);
         return assign;
     }
 
@@ -101,18 +150,17 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
         // Go through arguments to assign to argument registers/out stack
         for(int i = 0; i < vCall.args.length; i++) {
             String argument = vCall.args[i].toString();
-            String rhs = lsra.getRegister(argument) == null ?
-                    argument : lsra.getRegister(argument);
             if(i < 4) {
-               call.add(indent() + "$a" + i + " = " + rhs);
+                String rhs = lsra.getRegister(argument) == null ?
+                        argument : lsra.getRegister(argument);
+                call.add(indent() + "$a" + i + " = " + rhs);
             } else {
-                call.add(indent() + "out[" + (i-4) + "] = " + rhs);
+                call.add(indent() + "out[" + (i-4) + "] = " + read(argument, SCRATCH, call));
             }
         }
         String resultReg = lsra.getRegister(vCall.dest.toString());
         String addr = vCall.addr.toString();
-        String funcVar = lsra.getRegister(addr) == null ? addr : lsra.getRegister(addr);
-        call.add(indent() + "call " + funcVar);
+        call.add(indent() + "call " + read(addr, SCRATCH, call));
         call.add(indent() + resultReg + " = $v0");
         return call;
     }
@@ -125,16 +173,18 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
         // Build up argument string
         for(int i = 0; i < argSize; i++) {
             String curr = vBuiltIn.args[i].toString();
-            String arg = lsra.getRegister(curr) == null ? curr : lsra.getRegister(curr);
+            String arg = read(curr, i == 0 ? SCRATCH : SECOND_SCRATCH, builtIn);
             args += arg + ((i < argSize - 1) ? " " : "");
         }
         VVarRef dest = vBuiltIn.dest;
         String lhs = "";
         // Left hand side only needed if an assignment Op
         if(dest != null) {
-            lhs = lsra.getRegister(vBuiltIn.dest.toString()) + " = ";
+            lhs = target(dest.toString()) + " = ";
         }
         builtIn.add(indent() + lhs + vBuiltIn.op.name + "(" + args + ")");
+        if(dest != null)
+            store(dest.toString(), builtIn);
         return builtIn;
     }
 
@@ -142,9 +192,9 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
     public LinkedList<String> visit(VMemWrite vMemWrite) throws Throwable {
         LinkedList<String> memWrite = new LinkedList<>();
         VMemRef.Global dest = (VMemRef.Global)vMemWrite.dest;
-        String lhsReg = lsra.getRegister(dest.base.toString());
+        String lhsReg = read(dest.base.toString(), SCRATCH, memWrite);
         String srcStr = vMemWrite.source.toString();
-        String rhsVal = lsra.getRegister(srcStr) == null ? srcStr : lsra.getRegister(srcStr);
+        String rhsVal = read(srcStr, SECOND_SCRATCH, memWrite);
         String offset = dest.byteOffset == 0 ? "" : "+" + String.valueOf(dest.byteOffset);
         memWrite.add(indent() + "[" + lhsReg + offset + "] = " + rhsVal);
         return memWrite;
@@ -153,19 +203,19 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
     @Override
     public LinkedList<String> visit(VMemRead vMemRead) throws Throwable {
         LinkedList<String> memRead = new LinkedList<>();
-        String lhsReg = lsra.getRegister(vMemRead.dest.toString());
+        String lhsStr = vMemRead.dest.toString();
         VMemRef.Global src = (VMemRef.Global)vMemRead.source;
-        String srcStr = src.base.toString();
-        String rhsVal = lsra.getRegister(srcStr) == null ? srcStr : lsra.getRegister(srcStr);
+        String rhsVal = read(src.base.toString(), SCRATCH, memRead);
         String offset = src.byteOffset == 0 ? "" : "+" + String.valueOf(src.byteOffset);
-        memRead.add(indent() + lhsReg + " = [" + rhsVal + offset + "]");
+        memRead.add(indent() + target(lhsStr) + " = [" + rhsVal + offset + "]");
+        store(lhsStr, memRead);
         return memRead;
     }
 
     @Override
     public LinkedList<String> visit(VBranch vBranch) throws Throwable {
         LinkedList<String> branch = new LinkedList<>();
-        String cond = lsra.getRegister(vBranch.value.toString());
+        String cond = read(vBranch.value.toString(), SCRATCH, branch);
         branch.add(indent() + "if" + (vBranch.positive ? "" : "0") + cond + " goto " + vBranch.target.toString());
         return branch;
     }
@@ -187,7 +237,7 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
             ret.add(indent() + "$v0 = " + val);
         }
         // Reassign local stack values to callee saved registers
-        for (int i = 0; i < lsra.localCount && i < 8; i++) {
+        for (int i = 0; i < lsra.savedCount; i++) {
             ret.add(indent() + "$s" + i + " = local[" + i + "]");
         }
         ret.add(indent() + "ret");
@@ -0,0 +1,150 @@
+import cs132.util.ProblemException;
+import cs132.vapor.ast.VBuiltIn.Op;
+import cs132.vapor.ast.VFunction;
+import cs132.vapor.ast.VaporProgram;
+import cs132.vapor.parser.VaporParser;
+import ssa.BranchThreading;
+import ssa.ConstantPropagation;
+import ssa.CopyPropagation;
+import ssa.DeadCodeElimination;
+import ssa.Function;
+import ssa.Pass;
+import ssa.SsaBuilder;
+import ssa.UnreachableBlockElimination;
+import ssa.VaporEmitter;
+
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.System.in;
+
+public class VOpt {
+
+    // Picks the passes run over every function, in order, by name
+    private static final String PASSES_FLAG = "--passes=";
+    // Copy propagation is left out, since leaving SSA form already drops
+    // the copies it would, and the ones it makes longer lived stay
+    private static final String DEFAULT_PASSES = "const,thread,unreachable,dce";
+    // Prints how much every function shrank to stderr
+    private static final String STATS_FLAG = "--stats";
+
+    /**
+     * @param name Name of a pass on the command line
+     * @return A new instance of the pass
+     */
+    private static Pass pass(String name) {
+        switch(name) {
+            case "copy":
+                return new CopyPropagation();
+            case "const":
+                return new ConstantPropagation();
+            case "dce":
+                return new DeadCodeElimination();
+            case "thread":
+                return new BranchThreading();
+            case "unreachable":
+                return new UnreachableBlockElimination();
+            default:
+                throw new IllegalArgumentException("Unknown pass " + name + ", expected one of"
+                        + " copy, const, dce, thread, unreachable");
+        }
+    }
+
+    /**
+     * @param code Lines of a function written by the VaporEmitter
+     * @return Number of instructions among them
+     */
+    private static int instructions(List<String> code) {
+        int count = 0;
+        for(String line : code) {
+            if(line.startsWith("\t"))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return A line telling how much the code shrank
+     */
+    private static String reduction(String name, int before, int after) {
+        String change = before == after ? "unchanged" : String.format("%+d", after - before);
+        return name + ": " + before + " -> " + after + " instructions (" + change + ")";
+    }
+
+    /**
+     * @param args Command line arguments
+     * @return The passes the arguments pick, in the order to run them
+     */
+    static List<Pass> passes(String[] args) {
+        String passNames = DEFAULT_PASSES;
+        for(String arg : args) {
+            if(arg.startsWith(PASSES_FLAG))
+                passNames = arg.substring(PASSES_FLAG.length());
+        }
+        List<Pass> passes = new ArrayList<>();
+        for(String name : passNames.split(",")) {
+            if(!name.isEmpty())
+                passes.add(pass(name));
+        }
+        return passes;
+    }
+
+    /**
+     * Runs the passes over every function of a program in SSA form
+     * @param program Program to optimize
+     * @param passes Passes to run, in order
+     * @param stats Where to print how much every function shrank, or null
+     * @return Lines of the optimized program
+     */
+    static List<String> optimize(VaporProgram program, List<Pass> passes, PrintStream stats) {
+        List<String> vapor = VaporEmitter.data(Arrays.asList(program.dataSegments));
+        int before = 0;
+        int after = 0;
+        for(VFunction vFunction : program.functions) {
+            // Optimize each function in SSA form and write it back out
+            Function function = SsaBuilder.build(vFunction);
+            for(Pass pass : passes) {
+                pass.run(function);
+            }
+            List<String> code = VaporEmitter.emit(function);
+            vapor.addAll(code);
+            vapor.add("");
+            before += vFunction.body.length;
+            after += instructions(code);
+            if(stats != null)
+                stats.println(reduction(vFunction.ident, vFunction.body.length, instructions(code)));
+        }
+        if(stats != null)
+            stats.println(reduction("Total", before, after));
+        return vapor;
+    }
+
+    public static void main (String [] args) throws Throwable {
+        List<Pass> passes = passes(args);
+        boolean stats = Arrays.asList(args).contains(STATS_FLAG);
+        Op[] ops = {
+                Op.Add, Op.Sub, Op.MulS, Op.Eq, Op.Lt, Op.LtS, Op.PrintIntS,
+                Op.HeapAllocZ, Op.Error
+        };
+        boolean allowLocals = true;
+        String[] registers = null;
+        boolean allowStack = false;
+
+        VaporProgram program;
+        // Parse program
+        try {
+            program = VaporParser.run(new InputStreamReader(in), 1, 1,
+                    Arrays.asList(ops), allowLocals, registers, allowStack);
+        } catch (ProblemException e) {
+            return;
+        }
+        // Output vapor
+        for(String line : optimize(program, passes, stats ? System.err : null)) {
+            System.out.println(line);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package ssa;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * dst = src
+ */
+public final class Assign extends Instr {
+    public Var dst;
+    public Operand src;
+
+    public Assign(Var dst, Operand src) {
+        this.dst = dst;
+        this.src = src;
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    void redefine(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.singletonList(src);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        src = replaced(src, var, with);
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return dst + " = " + src;
+    }
+}
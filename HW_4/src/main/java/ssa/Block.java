@@ -0,0 +1,76 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * A Block is a basic block: its phis, then instructions run one after the
+ * other, the last one being a jump, a return or an error. A block is
+ * entered only at the top and left only at the bottom.
+ */
+public final class Block {
+    // Label the block starts with, or null while no jump names it
+    String label;
+    // Number in the function, naming blocks without a label
+    private final int id;
+    public final List<Phi> phis = new ArrayList<>();
+    public final List<Instr> instrs = new ArrayList<>();
+    public final List<Block> predecessors = new ArrayList<>();
+
+    Block(int id, String label) {
+        this.id = id;
+        this.label = label;
+    }
+
+    /**
+     * @return The label of the block, or a stand in for printing
+     */
+    public String name() {
+        return label != null ? label : "b" + id;
+    }
+
+    /**
+     * @return The last instruction, which decides where control goes
+     */
+    public Instr last() {
+        return instrs.get(instrs.size() - 1);
+    }
+
+    /**
+     * @return The blocks control can go to from this one
+     */
+    public List<Block> successors() {
+        Instr last = last();
+        if(last instanceof Goto)
+            return Collections.singletonList(((Goto) last).target);
+        if(last instanceof Branch) {
+            Branch branch = (Branch) last;
+            if(branch.target == branch.next)
+                return Collections.singletonList(branch.target);
+            return Arrays.asList(branch.target, branch.next);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Points the jumps to one successor at another block instead
+     * @param from Successor jumped to
+     * @param to Block to jump to instead
+     */
+    public void retarget(Block from, Block to) {
+        Instr last = last();
+        if(last instanceof Goto && ((Goto) last).target == from)
+            ((Goto) last).target = to;
+        if(last instanceof Branch) {
+            Branch branch = (Branch) last;
+            if(branch.target == from)
+                branch.target = to;
+            if(branch.next == from)
+                branch.next = to;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
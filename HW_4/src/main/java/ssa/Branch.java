@@ -0,0 +1,45 @@
+package ssa;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * if cond goto target, or if0 cond goto target, going on to next otherwise
+ */
+public final class Branch extends Instr {
+    // Jumps when cond is zero rather than when it is not
+    public final boolean ifZero;
+    public Operand cond;
+    public Block target;
+    public Block next;
+
+    public Branch(boolean ifZero, Operand cond, Block target, Block next) {
+        this.ifZero = ifZero;
+        this.cond = cond;
+        this.target = target;
+        this.next = next;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.singletonList(cond);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        cond = replaced(cond, var, with);
+    }
+
+    /**
+     * @param value Value of the condition
+     * @return Block the branch goes to
+     */
+    public Block taken(int value) {
+        return (value == 0) == ifZero ? target : next;
+    }
+
+    @Override
+    public String toString() {
+        return (ifZero ? "if0 " : "if ") + cond + " goto :" + target.name() + " else :" + next.name();
+    }
+}
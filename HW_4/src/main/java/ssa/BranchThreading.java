@@ -0,0 +1,102 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * BranchThreading shortens the way jumps take. A jump into a block doing
+ * nothing but jumping on goes straight to where that block ends up, and a
+ * branch into a block branching again on the same variable goes straight
+ * to the way the second branch goes, known from the way the first one
+ * went. A branch going the same way either way becomes a goto.
+ *
+ * Only blocks without phis are jumped past, and a block only gets a second
+ * edge into a block with phis when it has none there yet, so the phis get
+ * the argument of the last block jumped past for it.
+ */
+public final class BranchThreading implements Pass {
+
+    @Override
+    public void run(Function function) {
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(Block block : function.blocks) {
+                Instr last = block.last();
+                if(last instanceof Branch && ((Branch) last).target == ((Branch) last).next) {
+                    block.instrs.set(block.instrs.size() - 1, new Goto(((Branch) last).target));
+                    changed = true;
+                }
+                for(Block successor : block.successors()) {
+                    Shortcut shortcut = threaded(block, successor);
+                    if(shortcut == null)
+                        continue;
+                    Block through = shortcut.to;
+                    if(!through.phis.isEmpty() && block.successors().contains(through))
+                        continue;
+                    for(Phi phi : through.phis) {
+                        phi.args.put(block, phi.args.get(shortcut.from));
+                    }
+                    block.retarget(successor, through);
+                    changed = true;
+                    // The successors changed under the loop
+                    break;
+                }
+            }
+            function.connect();
+        }
+    }
+
+    /**
+     * Where a jump can go instead, and the last block it no longer goes
+     * through, the one the phis there have an argument for
+     */
+    private static final class Shortcut {
+        final Block from;
+        final Block to;
+
+        Shortcut(Block from, Block to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * @param block Block jumping
+     * @param successor Block it jumps to
+     * @return Where the jump can go instead, or null if nowhere
+     */
+    private static Shortcut threaded(Block block, Block successor) {
+        if(!successor.phis.isEmpty() || successor.instrs.size() != 1)
+            return null;
+        Instr jump = successor.last();
+        if(jump instanceof Goto)
+            return forwarded(successor);
+        Instr last = block.last();
+        if(!(jump instanceof Branch) || !(last instanceof Branch))
+            return null;
+        Branch first = (Branch) last;
+        Branch second = (Branch) jump;
+        if(!(first.cond instanceof Var) || !first.cond.equals(second.cond))
+            return null;
+        // Whether the variable is zero on the way into the successor
+        boolean zero = (successor == first.target) == first.ifZero;
+        return new Shortcut(successor, zero == second.ifZero ? second.target : second.next);
+    }
+
+    /**
+     * @param block Block doing nothing but a goto
+     * @return The first block down the gotos that does something, with the
+     * last goto before it, or null if they go around in a loop
+     */
+    private static Shortcut forwarded(Block block) {
+        Set<Block> seen = new HashSet<>();
+        Block from = block;
+        while(block.phis.isEmpty() && block.instrs.size() == 1 && block.last() instanceof Goto) {
+            if(!seen.add(block))
+                return null;
+            from = block;
+            block = ((Goto) block.last()).target;
+        }
+        return new Shortcut(from, block);
+    }
+}
@@ -0,0 +1,66 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * [dst =] op(args), arithmetic, comparisons, allocation, printing and errors
+ */
+public final class BuiltIn extends Instr {
+    public static final String ERROR = "Error";
+    // Operations computing their result from their arguments alone, and
+    // never failing
+    private static final Set<String> PURE = new HashSet<>(Arrays.asList(
+            "Add", "Sub", "MulS", "Eq", "Ne", "Lt", "Le", "LtS", "LeS",
+            "And", "Or", "Xor", "Not", "ShiftL", "ShiftR", "ShiftRA"));
+
+    // Null when the result is not kept
+    public Var dst;
+    public final String op;
+    public final List<Operand> args;
+
+    public BuiltIn(Var dst, String op, List<Operand> args) {
+        this.dst = dst;
+        this.op = op;
+        this.args = new ArrayList<>(args);
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    void redefine(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.unmodifiableList(args);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        for(int i = 0; i < args.size(); i++) {
+            args.set(i, replaced(args.get(i), var, with));
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return dst != null && PURE.contains(op);
+    }
+
+    /**
+     * @return Whether the function stops here
+     */
+    public boolean isError() {
+        return op.equals(ERROR);
+    }
+
+    @Override
+    public String toString() {
+        String call = op + "(" + join(args) + ")";
+        return dst == null ? call : dst + " = " + call;
+    }
+}
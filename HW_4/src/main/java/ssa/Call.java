@@ -0,0 +1,52 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * [dst =] call target(args), a call to a function label or a function
+ * pointer
+ */
+public final class Call extends Instr {
+    // Null when the result is not kept
+    public Var dst;
+    public Operand target;
+    public final List<Operand> args;
+
+    public Call(Var dst, Operand target, List<Operand> args) {
+        this.dst = dst;
+        this.target = target;
+        this.args = new ArrayList<>(args);
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    void redefine(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        List<Operand> uses = new ArrayList<>(args.size() + 1);
+        uses.add(target);
+        uses.addAll(args);
+        return uses;
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        target = replacedAddress(target, var, with);
+        for(int i = 0; i < args.size(); i++) {
+            args.set(i, replaced(args.get(i), var, with));
+        }
+    }
+
+    @Override
+    public String toString() {
+        String call = "call " + target + "(" + join(args) + ")";
+        return dst == null ? call : dst + " = " + call;
+    }
+}
@@ -0,0 +1,218 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * ConstantPropagation is sparse conditional constant propagation. Every
+ * variable starts out unknown, and is found constant or varying by
+ * evaluating its one assignment, while only the edges of branches that
+ * can go that way are followed. A phi only meets the values coming in
+ * over edges found executable, so a variable set the same on every path
+ * that can run stays constant, and code behind a branch on a constant is
+ * never looked at.
+ *
+ * Afterwards reads of constant variables read the constant instead,
+ * branches on constants become gotos, and blocks never reached are
+ * dropped. DeadCodeElimination removes the assignments left unread.
+ */
+public final class ConstantPropagation implements Pass {
+    // Neither unknown nor a constant
+    private static final Object VARYING = new Object();
+
+    // State of every variable that is not unknown: its value or VARYING
+    private final Map<Var, Object> values = new HashMap<>();
+    private final Set<Block> reached = new HashSet<>();
+    // Edges found executable, as predecessor to successors
+    private final Map<Block, Set<Block>> edges = new HashMap<>();
+    private final Deque<Block[]> flow = new ArrayDeque<>();
+    private final Deque<Instr> changed = new ArrayDeque<>();
+    private DefUse defUse;
+    private Set<Var> params;
+
+    @Override
+    public void run(Function function) {
+        values.clear();
+        reached.clear();
+        edges.clear();
+        defUse = new DefUse(function);
+        params = new HashSet<>(function.params);
+        flow.add(new Block[]{null, function.entry()});
+        while(!flow.isEmpty() || !changed.isEmpty()) {
+            if(!flow.isEmpty()) {
+                Block[] edge = flow.poll();
+                follow(edge[0], edge[1]);
+            } else {
+                Instr instr = changed.poll();
+                if(reached.contains(defUse.blockOf(instr)))
+                    visit(instr, defUse.blockOf(instr));
+            }
+        }
+        rewrite(function);
+    }
+
+    /**
+     * Marks an edge executable, visiting the block it goes to the first
+     * time it is reached, and only its phis after that
+     * @param from Predecessor, null for the way into the entry
+     * @param to Block the edge goes to
+     */
+    private void follow(Block from, Block to) {
+        if(from != null) {
+            if(!edges.containsKey(from))
+                edges.put(from, new HashSet<Block>());
+            if(!edges.get(from).add(to))
+                return;
+        }
+        for(Phi phi : to.phis) {
+            visit(phi, to);
+        }
+        if(!reached.add(to))
+            return;
+        for(Instr instr : to.instrs) {
+            visit(instr, to);
+        }
+    }
+
+    /**
+     * Evaluates an instruction, passing on a lowered value to its readers
+     * and following the edges a jump can take
+     */
+    private void visit(Instr instr, Block block) {
+        if(instr instanceof Branch) {
+            Branch branch = (Branch) instr;
+            Object cond = value(branch.cond);
+            if(cond instanceof Integer) {
+                flow.add(new Block[]{block, branch.taken((Integer) cond)});
+            } else if(cond == VARYING) {
+                flow.add(new Block[]{block, branch.target});
+                flow.add(new Block[]{block, branch.next});
+            }
+            return;
+        }
+        if(instr instanceof Goto) {
+            flow.add(new Block[]{block, ((Goto) instr).target});
+            return;
+        }
+        Var def = instr.def();
+        if(def == null)
+            return;
+        Object value = evaluate(instr, block);
+        if(value == null || value.equals(values.get(def)))
+            return;
+        // Values only ever go down, from a constant to varying at most
+        values.put(def, values.containsKey(def) ? VARYING : value);
+        changed.addAll(defUse.uses(def));
+    }
+
+    /**
+     * @return The value the instruction computes with what is known so
+     * far, null while unknown
+     */
+    private Object evaluate(Instr instr, Block block) {
+        if(instr instanceof Phi) {
+            Object met = null;
+            for(Map.Entry<Block, Operand> arg : ((Phi) instr).args.entrySet()) {
+                Set<Block> executable = edges.get(arg.getKey());
+                if(executable == null || !executable.contains(block))
+                    continue;
+                Object value = value(arg.getValue());
+                if(value == null)
+                    continue;
+                if(met != null && !met.equals(value))
+                    return VARYING;
+                met = value;
+            }
+            return met;
+        }
+        if(instr instanceof Assign)
+            return value(((Assign) instr).src);
+        if(instr instanceof BuiltIn && instr.isPure()) {
+            BuiltIn builtIn = (BuiltIn) instr;
+            List<Integer> args = new ArrayList<>();
+            boolean unknown = false;
+            for(Operand arg : builtIn.args) {
+                Object value = value(arg);
+                if(value == VARYING)
+                    return VARYING;
+                if(value == null)
+                    unknown = true;
+                else
+                    args.add((Integer) value);
+            }
+            if(unknown)
+                return null;
+            Integer folded = fold(builtIn.op, args);
+            return folded == null ? VARYING : folded;
+        }
+        // Loads, calls and allocations
+        return VARYING;
+    }
+
+    private Object value(Operand operand) {
+        if(operand instanceof Imm)
+            return ((Imm) operand).value;
+        if(!(operand instanceof Var))
+            return VARYING;
+        Var var = (Var) operand;
+        // Parameters, and variables read before they are set
+        if(var.version == 0 || params.contains(var))
+            return VARYING;
+        return values.get(var);
+    }
+
+    /**
+     * Computes a builtin on constants the way the machine would
+     * @param op Operation
+     * @param args Constant arguments
+     * @return The result, or null if it is not folded
+     */
+    public static Integer fold(String op, List<Integer> args) {
+        if(args.size() != 2)
+            return null;
+        int a = args.get(0);
+        int b = args.get(1);
+        switch(op) {
+            case "Add": return a + b;
+            case "Sub": return a - b;
+            case "MulS": return a * b;
+            case "Eq": return a == b ? 1 : 0;
+            case "Ne": return a != b ? 1 : 0;
+            case "Lt": return Integer.compareUnsigned(a, b) < 0 ? 1 : 0;
+            case "Le": return Integer.compareUnsigned(a, b) <= 0 ? 1 : 0;
+            case "LtS": return a < b ? 1 : 0;
+            case "LeS": return a <= b ? 1 : 0;
+            default: return null;
+        }
+    }
+
+    /**
+     * Puts the constants found in, folds the branches on them and drops
+     * the blocks and phi arguments of edges that never run
+     */
+    private void rewrite(Function function) {
+        for(Block block : function.blocks) {
+            if(!reached.contains(block))
+                continue;
+            Instr last = block.last();
+            if(last instanceof Branch && value(((Branch) last).cond) instanceof Integer) {
+                Branch branch = (Branch) last;
+                block.instrs.set(block.instrs.size() - 1,
+                        new Goto(branch.taken((Integer) value(branch.cond))));
+            }
+        }
+        for(Map.Entry<Var, Object> value : values.entrySet()) {
+            if(!(value.getValue() instanceof Integer))
+                continue;
+            Imm constant = new Imm((Integer) value.getValue());
+            for(Instr reader : defUse.uses(value.getKey())) {
+                reader.replace(value.getKey(), constant);
+            }
+        }
+        // Unreached blocks go, and with them the phi arguments from them
+        for(Block block : function.blocks) {
+            if(!reached.contains(block))
+                block.instrs.set(block.instrs.size() - 1, new Return(null));
+        }
+        function.connect();
+    }
+}
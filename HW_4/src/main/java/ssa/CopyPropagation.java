@@ -0,0 +1,72 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * CopyPropagation has the readers of a copy read what was copied instead.
+ * In SSA form a copy and its source hold the same value wherever the copy
+ * can be read, so every reader can be pointed at the source. Phis with the
+ * same argument on every edge, or themselves on some, are copies too. The
+ * copies left unread go with DeadCodeElimination.
+ *
+ * Labels are left in their copies, and constants are not put where Vapor
+ * only takes variables.
+ */
+public final class CopyPropagation implements Pass {
+
+    @Override
+    public void run(Function function) {
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            DefUse defUse = new DefUse(function);
+            for(Block block : function.blocks) {
+                for(Phi phi : block.phis) {
+                    Operand source = source(phi);
+                    if(source != null)
+                        changed |= propagate(phi.dst, source, defUse);
+                }
+                for(Instr instr : block.instrs) {
+                    if(!(instr instanceof Assign))
+                        continue;
+                    Operand source = ((Assign) instr).src;
+                    if(source instanceof Var || source instanceof Imm)
+                        changed |= propagate(((Assign) instr).dst, source, defUse);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param phi Phi in question
+     * @return The one value every edge brings, or null if they differ
+     */
+    private static Operand source(Phi phi) {
+        Operand source = null;
+        for(Operand arg : phi.args.values()) {
+            if(arg.equals(phi.dst))
+                continue;
+            if(source != null && !source.equals(arg))
+                return null;
+            source = arg;
+        }
+        return source instanceof Var || source instanceof Imm ? source : null;
+    }
+
+    /**
+     * Points the readers of a copy at its source
+     * @param copy Variable set by the copy
+     * @param source What it copies
+     * @param defUse Readers of every variable
+     * @return Whether any reader changed
+     */
+    private static boolean propagate(Var copy, Operand source, DefUse defUse) {
+        boolean changed = false;
+        for(Instr reader : defUse.uses(copy)) {
+            List<Operand> before = new ArrayList<>(reader.uses());
+            reader.replace(copy, source);
+            changed |= !before.equals(reader.uses());
+        }
+        return changed;
+    }
+}
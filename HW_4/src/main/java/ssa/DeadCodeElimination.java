@@ -0,0 +1,39 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * DeadCodeElimination keeps the instructions that do something beyond
+ * computing a value, like calls, stores, printing and jumps, and the
+ * assignments and phis whose values those read, directly or through
+ * others. Everything else computes a value nothing needs and is dropped,
+ * loops of phis only feeding each other included.
+ */
+public final class DeadCodeElimination implements Pass {
+
+    @Override
+    public void run(Function function) {
+        DefUse defUse = new DefUse(function);
+        Set<Instr> live = Collections.newSetFromMap(new IdentityHashMap<Instr, Boolean>());
+        Deque<Instr> pending = new ArrayDeque<>();
+        for(Block block : function.blocks) {
+            for(Instr instr : block.instrs) {
+                if(!instr.isPure() && live.add(instr))
+                    pending.add(instr);
+            }
+        }
+        while(!pending.isEmpty()) {
+            for(Operand use : pending.poll().uses()) {
+                if(!(use instanceof Var))
+                    continue;
+                Instr def = defUse.def((Var) use);
+                if(def != null && live.add(def))
+                    pending.add(def);
+            }
+        }
+        for(Block block : function.blocks) {
+            block.phis.retainAll(live);
+            block.instrs.retainAll(live);
+        }
+    }
+}
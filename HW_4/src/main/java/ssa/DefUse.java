@@ -0,0 +1,67 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * DefUse links every variable of a function in SSA form to the one
+ * instruction setting it and the instructions reading it. Parameters and
+ * variables read before any assignment have no setting instruction.
+ */
+public final class DefUse {
+    private final Map<Var, Instr> defs = new HashMap<>();
+    private final Map<Var, List<Instr>> uses = new HashMap<>();
+    private final Map<Instr, Block> blocks = new IdentityHashMap<>();
+
+    public DefUse(Function function) {
+        for(Block block : function.blocks) {
+            for(Phi phi : block.phis) {
+                add(phi, block);
+            }
+            for(Instr instr : block.instrs) {
+                add(instr, block);
+            }
+        }
+    }
+
+    private void add(Instr instr, Block block) {
+        blocks.put(instr, block);
+        if(instr.def() != null)
+            defs.put(instr.def(), instr);
+        for(Operand use : instr.uses()) {
+            if(!(use instanceof Var))
+                continue;
+            List<Instr> readers = uses.get(use);
+            if(readers == null) {
+                readers = new ArrayList<>();
+                uses.put((Var) use, readers);
+            }
+            if(!readers.contains(instr))
+                readers.add(instr);
+        }
+    }
+
+    /**
+     * @param var Variable in question
+     * @return The instruction setting it, or null if it is set on entry
+     */
+    public Instr def(Var var) {
+        return defs.get(var);
+    }
+
+    /**
+     * @param var Variable in question
+     * @return The instructions reading it, each once
+     */
+    public List<Instr> uses(Var var) {
+        List<Instr> readers = uses.get(var);
+        return readers == null ? Collections.<Instr>emptyList() : readers;
+    }
+
+    /**
+     * @param instr Instruction of the function
+     * @return The block it is in
+     */
+    public Block blockOf(Instr instr) {
+        return blocks.get(instr);
+    }
+}
@@ -0,0 +1,111 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * Dominators of the blocks of a function. A block dominates another when
+ * every path from the entry to the other goes through it, and the
+ * dominance frontier of a block is where its dominance stops: the blocks
+ * with a predecessor it dominates that it does not strictly dominate
+ * themselves, which is where phis for its assignments go.
+ */
+public final class Dominators {
+    private final Map<Block, Block> idom = new HashMap<>();
+    private final Map<Block, List<Block>> children = new HashMap<>();
+    private final Map<Block, Set<Block>> frontiers = new HashMap<>();
+
+    /**
+     * Finds the immediate dominators by iterating over the blocks in
+     * reverse post order until nothing changes, then the frontiers from
+     * the blocks where paths meet
+     * @param function Function in question, every block reachable
+     */
+    public Dominators(Function function) {
+        List<Block> order = function.reversePostOrder();
+        final Map<Block, Integer> position = new HashMap<>();
+        for(int i = 0; i < order.size(); i++) {
+            position.put(order.get(i), i);
+            children.put(order.get(i), new ArrayList<Block>());
+            frontiers.put(order.get(i), new LinkedHashSet<Block>());
+        }
+        Block entry = function.entry();
+        idom.put(entry, entry);
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(Block block : order.subList(1, order.size())) {
+                Block dominator = null;
+                for(Block predecessor : block.predecessors) {
+                    if(!idom.containsKey(predecessor))
+                        continue;
+                    dominator = dominator == null ? predecessor : intersect(dominator, predecessor, position);
+                }
+                if(idom.get(block) != dominator) {
+                    idom.put(block, dominator);
+                    changed = true;
+                }
+            }
+        }
+        for(Block block : order.subList(1, order.size())) {
+            children.get(idom.get(block)).add(block);
+        }
+        for(Block block : order) {
+            if(block.predecessors.size() < 2)
+                continue;
+            for(Block predecessor : block.predecessors) {
+                for(Block runner = predecessor; runner != idom.get(block); runner = idom.get(runner)) {
+                    frontiers.get(runner).add(block);
+                }
+            }
+        }
+    }
+
+    // Closest common dominator of two blocks, walking up the tree
+    private Block intersect(Block a, Block b, Map<Block, Integer> position) {
+        while(a != b) {
+            while(position.get(a) > position.get(b))
+                a = idom.get(a);
+            while(position.get(b) > position.get(a))
+                b = idom.get(b);
+        }
+        return a;
+    }
+
+    /**
+     * @param block Block in question
+     * @return Its immediate dominator, the entry being its own
+     */
+    public Block idom(Block block) {
+        return idom.get(block);
+    }
+
+    /**
+     * @param block Block in question
+     * @return The blocks it immediately dominates
+     */
+    public List<Block> children(Block block) {
+        return children.get(block);
+    }
+
+    /**
+     * @param block Block in question
+     * @return Its dominance frontier
+     */
+    public Set<Block> frontier(Block block) {
+        return frontiers.get(block);
+    }
+
+    /**
+     * @return Whether every path from the entry to b goes through a
+     */
+    public boolean dominates(Block a, Block b) {
+        while(true) {
+            if(a == b)
+                return true;
+            Block up = idom.get(b);
+            if(up == b)
+                return false;
+            b = up;
+        }
+    }
+}
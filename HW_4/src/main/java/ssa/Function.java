@@ -0,0 +1,120 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * A Function in SSA form: its name, its parameters as the versions they
+ * start with, and its blocks, the entry first. Blocks keep the order they
+ * had in the Vapor code, so lowering lays them out the same way.
+ */
+public final class Function {
+    public final String name;
+    public final List<Var> params;
+    public final List<Block> blocks = new ArrayList<>();
+    private int nextBlock = 0;
+
+    public Function(String name, List<Var> params) {
+        this.name = name;
+        this.params = Collections.unmodifiableList(new ArrayList<>(params));
+    }
+
+    /**
+     * Adds a block at the end of the function
+     * @param label Label it starts with, or null
+     * @return The block
+     */
+    public Block newBlock(String label) {
+        Block block = new Block(nextBlock++, label);
+        blocks.add(block);
+        return block;
+    }
+
+    public Block entry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * Links every block to its predecessors again after the jumps changed.
+     * Blocks control can no longer reach are dropped, and so are the phi
+     * arguments for edges that are gone.
+     */
+    public void connect() {
+        Set<Block> reached = new HashSet<>();
+        Deque<Block> pending = new ArrayDeque<>();
+        reached.add(entry());
+        pending.push(entry());
+        while(!pending.isEmpty()) {
+            for(Block successor : pending.pop().successors()) {
+                if(reached.add(successor))
+                    pending.push(successor);
+            }
+        }
+        blocks.retainAll(reached);
+        for(Block block : blocks) {
+            block.predecessors.clear();
+        }
+        for(Block block : blocks) {
+            for(Block successor : block.successors()) {
+                successor.predecessors.add(block);
+            }
+        }
+        for(Block block : blocks) {
+            for(Phi phi : block.phis) {
+                phi.args.keySet().retainAll(block.predecessors);
+            }
+        }
+    }
+
+    /**
+     * @return The blocks in reverse post order from the entry
+     */
+    public List<Block> reversePostOrder() {
+        List<Block> order = new ArrayList<>();
+        Set<Block> visited = new HashSet<>();
+        // Each entry is a block and how many of its successors were visited
+        Deque<Object[]> stack = new ArrayDeque<>();
+        visited.add(entry());
+        stack.push(new Object[]{entry(), 0});
+        while(!stack.isEmpty()) {
+            Object[] top = stack.peek();
+            List<Block> successors = ((Block) top[0]).successors();
+            int next = (Integer) top[1];
+            if(next < successors.size()) {
+                top[1] = next + 1;
+                Block successor = successors.get(next);
+                if(visited.add(successor))
+                    stack.push(new Object[]{successor, 0});
+            } else {
+                order.add((Block) stack.pop()[0]);
+            }
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * @return Number of phis and instructions in the function
+     */
+    public int size() {
+        int size = 0;
+        for(Block block : blocks) {
+            size += block.phis.size() + block.instrs.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("func " + name + "(" + Instr.join(params) + ")\n");
+        for(Block block : blocks) {
+            text.append("  ").append(block.name()).append(":\n");
+            for(Phi phi : block.phis) {
+                text.append('\t').append(phi).append('\n');
+            }
+            for(Instr instr : block.instrs) {
+                text.append('\t').append(instr).append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
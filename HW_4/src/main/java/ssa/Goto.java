@@ -0,0 +1,17 @@
+package ssa;
+
+/**
+ * goto target
+ */
+public final class Goto extends Instr {
+    public Block target;
+
+    public Goto(Block target) {
+        this.target = target;
+    }
+
+    @Override
+    public String toString() {
+        return "goto :" + target.name();
+    }
+}
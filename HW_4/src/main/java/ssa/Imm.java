@@ -0,0 +1,27 @@
+package ssa;
+
+/**
+ * An integer constant
+ */
+public final class Imm extends Operand {
+    public final int value;
+
+    public Imm(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Imm && value == ((Imm) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(value);
+    }
+}
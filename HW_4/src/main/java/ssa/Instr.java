@@ -0,0 +1,70 @@
+package ssa;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An Instr is one instruction of a basic block. Instructions are changed
+ * in place by the passes, so their operands are not final.
+ */
+public abstract class Instr {
+
+    /**
+     * @return The variable the instruction sets, or null if it sets none
+     */
+    public Var def() {
+        return null;
+    }
+
+    /**
+     * Makes the instruction set another variable, as the SSA form is built
+     * @param dst The variable to set instead
+     */
+    void redefine(Var dst) {
+        throw new UnsupportedOperationException(toString());
+    }
+
+    /**
+     * @return The operands the instruction reads
+     */
+    public List<Operand> uses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Replaces the reads of a variable. Where Vapor only takes a variable,
+     * like the pointer of a load, a constant is not put in.
+     * @param var Variable read
+     * @param with What to read instead
+     */
+    public void replace(Var var, Operand with) {
+    }
+
+    /**
+     * @return Whether dropping the instruction is safe once its result is
+     * not read
+     */
+    public boolean isPure() {
+        return false;
+    }
+
+    // Replacement for an operand at a place taking anything
+    static Operand replaced(Operand operand, Var var, Operand with) {
+        return var.equals(operand) ? with : operand;
+    }
+
+    // Replacement for an operand at a place only taking variables and labels
+    static Operand replacedAddress(Operand operand, Var var, Operand with) {
+        return var.equals(operand) && !(with instanceof Imm) ? with : operand;
+    }
+
+    static String join(List<? extends Operand> operands) {
+        StringBuilder joined = new StringBuilder();
+        for(Operand operand : operands) {
+            if(joined.length() > 0)
+                joined.append(' ');
+            joined.append(operand);
+        }
+        return joined.toString();
+    }
+}
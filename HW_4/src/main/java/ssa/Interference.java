@@ -0,0 +1,139 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * Interference tells which variables of a function in SSA form hold values
+ * needed at the same time, and so cannot share a name out of SSA form. A
+ * variable is live from where it is set to its last read. The arguments of
+ * a phi are read at the end of the predecessor they come from, and its
+ * result is set at the top of its block along with the other phis there.
+ * A copy does not interfere with its source, holding the same value.
+ */
+final class Interference {
+    private final Map<Var, Set<Var>> edges = new HashMap<>();
+
+    Interference(Function function) {
+        Map<Block, Set<Var>> liveIn = liveIn(function);
+        for(Block block : function.blocks) {
+            Set<Var> live = liveOut(block, liveIn);
+            for(int i = block.instrs.size() - 1; i >= 0; i--) {
+                Instr instr = block.instrs.get(i);
+                Var def = instr.def();
+                if(def != null) {
+                    for(Var var : live) {
+                        if(!(instr instanceof Assign && var.equals(((Assign) instr).src)))
+                            add(def, var);
+                    }
+                    live.remove(def);
+                }
+                addVars(instr.uses(), live);
+            }
+            for(Phi phi : block.phis) {
+                for(Var var : live) {
+                    add(phi.dst, var);
+                }
+                for(Phi other : block.phis) {
+                    add(phi.dst, other.dst);
+                }
+            }
+            if(block == function.entry()) {
+                for(Var param : function.params) {
+                    for(Var var : live) {
+                        add(param, var);
+                    }
+                    for(Var other : function.params) {
+                        add(param, other);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether the two variables are ever needed at once
+     */
+    boolean interfere(Var a, Var b) {
+        Set<Var> with = edges.get(a);
+        return with != null && with.contains(b);
+    }
+
+    private void add(Var a, Var b) {
+        if(a.equals(b))
+            return;
+        if(!edges.containsKey(a))
+            edges.put(a, new HashSet<Var>());
+        if(!edges.containsKey(b))
+            edges.put(b, new HashSet<Var>());
+        edges.get(a).add(b);
+        edges.get(b).add(a);
+    }
+
+    /**
+     * @param function Function in question, in SSA form or not
+     * @return The variables live at the top of every block, below its phis
+     */
+    static Map<Block, Set<Var>> liveIn(Function function) {
+        Map<Block, Set<Var>> used = new HashMap<>();
+        Map<Block, Set<Var>> defined = new HashMap<>();
+        Map<Block, Set<Var>> liveIn = new HashMap<>();
+        for(Block block : function.blocks) {
+            Set<Var> blockUses = new HashSet<>();
+            Set<Var> blockDefs = new HashSet<>();
+            for(Phi phi : block.phis) {
+                blockDefs.add(phi.dst);
+            }
+            for(Instr instr : block.instrs) {
+                for(Operand use : instr.uses()) {
+                    if(use instanceof Var && !blockDefs.contains(use))
+                        blockUses.add((Var) use);
+                }
+                if(instr.def() != null)
+                    blockDefs.add(instr.def());
+            }
+            used.put(block, blockUses);
+            defined.put(block, blockDefs);
+            liveIn.put(block, new HashSet<>(blockUses));
+        }
+        List<Block> order = function.reversePostOrder();
+        Collections.reverse(order);
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(Block block : order) {
+                Set<Var> live = liveOut(block, liveIn);
+                live.removeAll(defined.get(block));
+                live.addAll(used.get(block));
+                if(!live.equals(liveIn.get(block))) {
+                    liveIn.put(block, live);
+                    changed = true;
+                }
+            }
+        }
+        return liveIn;
+    }
+
+    /**
+     * @param block Block in question
+     * @param liveIn Variables live at the top of every block
+     * @return The variables live at the bottom of the block, the arguments
+     * of the phis it leads to included
+     */
+    private static Set<Var> liveOut(Block block, Map<Block, Set<Var>> liveIn) {
+        Set<Var> live = new HashSet<>();
+        for(Block successor : block.successors()) {
+            live.addAll(liveIn.get(successor));
+            for(Phi phi : successor.phis) {
+                addVars(Collections.singletonList(phi.args.get(block)), live);
+            }
+        }
+        return live;
+    }
+
+    private static void addVars(List<Operand> operands, Set<Var> vars) {
+        for(Operand operand : operands) {
+            if(operand instanceof Var)
+                vars.add((Var) operand);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ssa;
+
+/**
+ * The address of a function or a data segment
+ */
+public final class LabelRef extends Operand {
+    public final String name;
+
+    public LabelRef(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LabelRef && name.equals(((LabelRef) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return ":" + name;
+    }
+}
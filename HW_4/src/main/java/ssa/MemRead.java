@@ -0,0 +1,49 @@
+package ssa;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * dst = [base+offset]
+ */
+public final class MemRead extends Instr {
+    public Var dst;
+    public Operand base;
+    public final int offset;
+
+    public MemRead(Var dst, Operand base, int offset) {
+        this.dst = dst;
+        this.base = base;
+        this.offset = offset;
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    void redefine(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Collections.singletonList(base);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        base = replacedAddress(base, var, with);
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return dst + " = " + MemWrite.address(base, offset);
+    }
+}
@@ -0,0 +1,41 @@
+package ssa;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * [base+offset] = src
+ */
+public final class MemWrite extends Instr {
+    public Operand base;
+    public final int offset;
+    public Operand src;
+
+    public MemWrite(Operand base, int offset, Operand src) {
+        this.base = base;
+        this.offset = offset;
+        this.src = src;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return Arrays.asList(base, src);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        base = replacedAddress(base, var, with);
+        src = replaced(src, var, with);
+    }
+
+    @Override
+    public String toString() {
+        return address(base, offset) + " = " + src;
+    }
+
+    static String address(Operand base, int offset) {
+        if(offset == 0)
+            return "[" + base + "]";
+        return "[" + base + (offset > 0 ? "+" : "") + offset + "]";
+    }
+}
@@ -0,0 +1,8 @@
+package ssa;
+
+/**
+ * An Operand is what an instruction reads: a variable, an integer, a
+ * label or a string
+ */
+public abstract class Operand {
+}
@@ -0,0 +1,13 @@
+package ssa;
+
+/**
+ * A Pass rewrites one function in SSA form at a time, keeping it in SSA
+ * form and its meaning the same
+ */
+public interface Pass {
+    /**
+     * Rewrites the function in place
+     * @param function Function to rewrite
+     */
+    void run(Function function);
+}
@@ -0,0 +1,55 @@
+package ssa;
+
+import java.util.*;
+
+/**
+ * dst = phi(args), the value of a variable where control flow meets: the
+ * argument for the predecessor the block was entered from
+ */
+public final class Phi extends Instr {
+    public Var dst;
+    // Value by predecessor block
+    public final Map<Block, Operand> args = new LinkedHashMap<>();
+
+    public Phi(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public Var def() {
+        return dst;
+    }
+
+    @Override
+    void redefine(Var dst) {
+        this.dst = dst;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return new ArrayList<>(args.values());
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        for(Map.Entry<Block, Operand> arg : args.entrySet()) {
+            arg.setValue(replaced(arg.getValue(), var, with));
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(dst + " = phi(");
+        String separator = "";
+        for(Map.Entry<Block, Operand> arg : args.entrySet()) {
+            text.append(separator).append(arg.getKey().name()).append(": ").append(arg.getValue());
+            separator = ", ";
+        }
+        return text.append(")").toString();
+    }
+}
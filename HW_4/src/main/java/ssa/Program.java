@@ -0,0 +1,14 @@
+package ssa;
+
+import cs132.vapor.ast.VDataSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Program in SSA form: the data segments as parsed, and the functions
+ */
+public final class Program {
+    public final List<VDataSegment> data = new ArrayList<>();
+    public final List<Function> functions = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package ssa;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ret [value]
+ */
+public final class Return extends Instr {
+    // Null for a naked return
+    public Operand value;
+
+    public Return(Operand value) {
+        this.value = value;
+    }
+
+    @Override
+    public List<Operand> uses() {
+        return value == null ? Collections.<Operand>emptyList() : Collections.singletonList(value);
+    }
+
+    @Override
+    public void replace(Var var, Operand with) {
+        value = value == null ? null : replaced(value, var, with);
+    }
+
+    @Override
+    public String toString() {
+        return value == null ? "ret" : "ret " + value;
+    }
+}
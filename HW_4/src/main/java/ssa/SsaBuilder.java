@@ -0,0 +1,325 @@
+package ssa;
+
+import cs132.vapor.ast.*;
+
+import java.util.*;
+
+/**
+ * SsaBuilder turns a parsed Vapor program into SSA form. Each function is
+ * split into basic blocks, phis are put on the dominance frontiers of the
+ * blocks assigning a variable, where the variable is still live, and then
+ * every assignment gets a new version of its variable, walking down the
+ * dominator tree with the version each name currently holds.
+ */
+public final class SsaBuilder {
+
+    private SsaBuilder() {
+    }
+
+    /**
+     * @param vapor Program parsed by the Vapor parser
+     * @return The program in SSA form
+     */
+    public static Program build(VaporProgram vapor) {
+        Program program = new Program();
+        program.data.addAll(Arrays.asList(vapor.dataSegments));
+        for(VFunction function : vapor.functions) {
+            program.functions.add(build(function));
+        }
+        return program;
+    }
+
+    /**
+     * @param vFunction Function parsed by the Vapor parser
+     * @return The function in SSA form
+     */
+    public static Function build(VFunction vFunction) {
+        List<Var> params = new ArrayList<>();
+        for(VVarRef.Local param : vFunction.params) {
+            params.add(new Var(param.ident, 0));
+        }
+        Function function = new Function(vFunction.ident, params);
+        split(vFunction, function);
+        function.connect();
+        // The entry has to be entered only once, for the parameters
+        if(!function.entry().predecessors.isEmpty()) {
+            Block entry = function.newBlock(null);
+            entry.instrs.add(new Goto(function.entry()));
+            function.blocks.remove(entry);
+            function.blocks.add(0, entry);
+            function.connect();
+        }
+        Dominators dominators = new Dominators(function);
+        placePhis(function, dominators, liveIn(function));
+        rename(function.entry(), dominators, new HashMap<String, Integer>(), new HashMap<String, Deque<Var>>());
+        return function;
+    }
+
+    /**
+     * Splits the body into blocks, each starting at a label or after a jump
+     * @param vFunction Function parsed by the Vapor parser
+     * @param function Function the blocks are added to
+     */
+    private static void split(VFunction vFunction, Function function) {
+        VInstr[] body = vFunction.body;
+        boolean[] starts = new boolean[body.length + 1];
+        starts[0] = true;
+        for(VCodeLabel label : vFunction.labels) {
+            starts[label.instrIndex] = true;
+        }
+        for(int i = 0; i < body.length; i++) {
+            if(isTerminator(body[i]))
+                starts[i + 1] = true;
+        }
+        // Block starting at every index one starts at
+        Map<Integer, Block> at = new HashMap<>();
+        Map<String, Block> labels = new HashMap<>();
+        for(int i = 0; i <= body.length; i++) {
+            if(starts[i])
+                at.put(i, function.newBlock(null));
+        }
+        for(VCodeLabel label : vFunction.labels) {
+            Block block = at.get(label.instrIndex);
+            if(block.label == null)
+                block.label = label.ident;
+            labels.put(label.ident, block);
+        }
+        Block block = null;
+        for(int i = 0; i <= body.length; i++) {
+            if(at.containsKey(i)) {
+                Block next = at.get(i);
+                // Falling into the next block
+                if(block != null && !isTerminator(block))
+                    block.instrs.add(new Goto(next));
+                block = next;
+            }
+            if(i < body.length)
+                block.instrs.add(convert(body[i], labels, at.get(i + 1)));
+        }
+        if(!isTerminator(block))
+            block.instrs.add(new Return(null));
+    }
+
+    private static boolean isTerminator(VInstr instr) {
+        return instr instanceof VBranch || instr instanceof VGoto || instr instanceof VReturn
+                || VBuiltIn.isError(instr);
+    }
+
+    private static boolean isTerminator(Block block) {
+        if(block.instrs.isEmpty())
+            return false;
+        Instr last = block.last();
+        return last instanceof Branch || last instanceof Goto || last instanceof Return
+                || (last instanceof BuiltIn && ((BuiltIn) last).isError());
+    }
+
+    /**
+     * Converts an instruction, every variable at version zero
+     * @param instr Vapor instruction
+     * @param labels Blocks by label
+     * @param next Block starting right after the instruction, if any
+     * @return The instruction
+     */
+    private static Instr convert(VInstr instr, Map<String, Block> labels, Block next) {
+        if(instr instanceof VAssign) {
+            VAssign assign = (VAssign) instr;
+            return new Assign(var(assign.dest), operand(assign.source));
+        }
+        if(instr instanceof VBuiltIn) {
+            VBuiltIn builtIn = (VBuiltIn) instr;
+            return new BuiltIn(builtIn.dest == null ? null : var(builtIn.dest), builtIn.op.name,
+                    operands(builtIn.args));
+        }
+        if(instr instanceof VCall) {
+            VCall call = (VCall) instr;
+            return new Call(call.dest == null ? null : var(call.dest), address(call.addr), operands(call.args));
+        }
+        if(instr instanceof VMemRead) {
+            VMemRead read = (VMemRead) instr;
+            VMemRef.Global source = (VMemRef.Global) read.source;
+            return new MemRead(var(read.dest), address(source.base), source.byteOffset);
+        }
+        if(instr instanceof VMemWrite) {
+            VMemWrite write = (VMemWrite) instr;
+            VMemRef.Global dest = (VMemRef.Global) write.dest;
+            return new MemWrite(address(dest.base), dest.byteOffset, operand(write.source));
+        }
+        if(instr instanceof VBranch) {
+            VBranch branch = (VBranch) instr;
+            return new Branch(!branch.positive, operand(branch.value), labels.get(branch.target.ident), next);
+        }
+        if(instr instanceof VGoto) {
+            VAddr<VCodeLabel> target = ((VGoto) instr).target;
+            if(!(target instanceof VAddr.Label))
+                throw new IllegalArgumentException("Jump through a variable at line " + instr.sourcePos.line);
+            return new Goto(labels.get(((VAddr.Label<VCodeLabel>) target).label.ident));
+        }
+        VReturn ret = (VReturn) instr;
+        return new Return(ret.value == null ? null : operand(ret.value));
+    }
+
+    private static Var var(VVarRef var) {
+        return new Var(((VVarRef.Local) var).ident, 0);
+    }
+
+    private static Operand operand(VOperand operand) {
+        if(operand instanceof VVarRef)
+            return var((VVarRef) operand);
+        if(operand instanceof VLitInt)
+            return new Imm(((VLitInt) operand).value);
+        if(operand instanceof VLabelRef)
+            return new LabelRef(((VLabelRef<?>) operand).ident);
+        return new StringLiteral(((VLitStr) operand).value);
+    }
+
+    private static List<Operand> operands(VOperand[] operands) {
+        List<Operand> converted = new ArrayList<>();
+        for(VOperand operand : operands) {
+            converted.add(operand(operand));
+        }
+        return converted;
+    }
+
+    private static Operand address(VAddr<?> address) {
+        if(address instanceof VAddr.Label)
+            return new LabelRef(((VAddr.Label<?>) address).label.ident);
+        return var(((VAddr.Var<?>) address).var);
+    }
+
+    /**
+     * Finds the variable names live at the top of every block, before any
+     * renaming
+     * @param function Function in question
+     * @return Names live on entry, by block
+     */
+    private static Map<Block, Set<String>> liveIn(Function function) {
+        Map<Block, Set<String>> used = new HashMap<>();
+        Map<Block, Set<String>> defined = new HashMap<>();
+        Map<Block, Set<String>> liveIn = new HashMap<>();
+        for(Block block : function.blocks) {
+            Set<String> blockUses = new HashSet<>();
+            Set<String> blockDefs = new HashSet<>();
+            for(Instr instr : block.instrs) {
+                for(Operand use : instr.uses()) {
+                    if(use instanceof Var && !blockDefs.contains(((Var) use).name))
+                        blockUses.add(((Var) use).name);
+                }
+                if(instr.def() != null)
+                    blockDefs.add(instr.def().name);
+            }
+            used.put(block, blockUses);
+            defined.put(block, blockDefs);
+            liveIn.put(block, new HashSet<>(blockUses));
+        }
+        List<Block> order = function.reversePostOrder();
+        Collections.reverse(order);
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(Block block : order) {
+                Set<String> live = new HashSet<>();
+                for(Block successor : block.successors()) {
+                    live.addAll(liveIn.get(successor));
+                }
+                live.removeAll(defined.get(block));
+                live.addAll(used.get(block));
+                if(!live.equals(liveIn.get(block))) {
+                    liveIn.put(block, live);
+                    changed = true;
+                }
+            }
+        }
+        return liveIn;
+    }
+
+    /**
+     * Puts a phi for a variable on the iterated dominance frontier of the
+     * blocks assigning it, wherever it is live
+     */
+    private static void placePhis(Function function, Dominators dominators, Map<Block, Set<String>> liveIn) {
+        Map<String, Set<Block>> assigned = new LinkedHashMap<>();
+        for(Var param : function.params) {
+            assigned.put(param.name, new LinkedHashSet<>(Collections.singleton(function.entry())));
+        }
+        for(Block block : function.blocks) {
+            for(Instr instr : block.instrs) {
+                if(instr.def() == null)
+                    continue;
+                if(!assigned.containsKey(instr.def().name))
+                    assigned.put(instr.def().name, new LinkedHashSet<Block>());
+                assigned.get(instr.def().name).add(block);
+            }
+        }
+        for(Map.Entry<String, Set<Block>> name : assigned.entrySet()) {
+            Set<Block> withPhi = new HashSet<>();
+            Deque<Block> pending = new ArrayDeque<>(name.getValue());
+            Set<Block> queued = new HashSet<>(name.getValue());
+            while(!pending.isEmpty()) {
+                for(Block frontier : dominators.frontier(pending.poll())) {
+                    if(!liveIn.get(frontier).contains(name.getKey()) || !withPhi.add(frontier))
+                        continue;
+                    Phi phi = new Phi(new Var(name.getKey(), 0));
+                    for(Block predecessor : frontier.predecessors) {
+                        phi.args.put(predecessor, phi.dst);
+                    }
+                    frontier.phis.add(phi);
+                    if(queued.add(frontier))
+                        pending.add(frontier);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives every assignment in a block and the blocks it dominates a new
+     * version, and points the reads at the version they see
+     * @param block Block in question
+     * @param dominators Dominator tree
+     * @param versions Last version handed out, by name
+     * @param current Versions in effect, by name, latest on top
+     */
+    private static void rename(Block block, Dominators dominators, Map<String, Integer> versions,
+                               Map<String, Deque<Var>> current) {
+        List<String> pushed = new ArrayList<>();
+        for(Phi phi : block.phis) {
+            phi.redefine(define(phi.dst.name, versions, current));
+            pushed.add(phi.dst.name);
+        }
+        for(Instr instr : block.instrs) {
+            for(Operand use : instr.uses()) {
+                if(use instanceof Var && ((Var) use).version == 0)
+                    instr.replace((Var) use, current(((Var) use).name, current));
+            }
+            if(instr.def() != null) {
+                instr.redefine(define(instr.def().name, versions, current));
+                pushed.add(instr.def().name);
+            }
+        }
+        for(Block successor : block.successors()) {
+            for(Phi phi : successor.phis) {
+                phi.args.put(block, current(phi.dst.name, current));
+            }
+        }
+        for(Block child : dominators.children(block)) {
+            rename(child, dominators, versions, current);
+        }
+        for(String name : pushed) {
+            current.get(name).pop();
+        }
+    }
+
+    private static Var define(String name, Map<String, Integer> versions, Map<String, Deque<Var>> current) {
+        Integer last = versions.get(name);
+        Var var = new Var(name, last == null ? 1 : last + 1);
+        versions.put(name, var.version);
+        if(!current.containsKey(name))
+            current.put(name, new ArrayDeque<Var>());
+        current.get(name).push(var);
+        return var;
+    }
+
+    private static Var current(String name, Map<String, Deque<Var>> current) {
+        Deque<Var> versions = current.get(name);
+        return versions == null || versions.isEmpty() ? new Var(name, 0) : versions.peek();
+    }
+}
@@ -0,0 +1,19 @@
+package ssa;
+
+import cs132.vapor.ast.VLitStr;
+
+/**
+ * A string constant, only ever passed to the builtins printing it
+ */
+public final class StringLiteral extends Operand {
+    public final String value;
+
+    public StringLiteral(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return VLitStr.escape(value);
+    }
+}
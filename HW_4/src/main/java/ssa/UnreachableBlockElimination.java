@@ -0,0 +1,21 @@
+package ssa;
+
+/**
+ * UnreachableBlockElimination turns branches on constants, as copies of
+ * constants leave them, into gotos, and drops the blocks control can then
+ * no longer get to, along with the phi arguments for the edges out of them.
+ */
+public final class UnreachableBlockElimination implements Pass {
+
+    @Override
+    public void run(Function function) {
+        for(Block block : function.blocks) {
+            Instr last = block.last();
+            if(last instanceof Branch && ((Branch) last).cond instanceof Imm) {
+                Branch branch = (Branch) last;
+                block.instrs.set(block.instrs.size() - 1, new Goto(branch.taken(((Imm) branch.cond).value)));
+            }
+        }
+        function.connect();
+    }
+}
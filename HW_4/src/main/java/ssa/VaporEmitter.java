@@ -0,0 +1,422 @@
+package ssa;
+
+import cs132.vapor.ast.VDataSegment;
+import cs132.vapor.ast.VOperand;
+
+import java.util.*;
+
+/**
+ * VaporEmitter takes a program out of SSA form and writes it as Vapor
+ * text, leaving the functions without phis. A phi becomes copies at the
+ * end of each predecessor, after edges from a block with several
+ * successors to a block with several predecessors get a block of their
+ * own, so the copies only run on their edge. The copies for one edge
+ * happen at once, so they are ordered for none to overwrite a value
+ * another still reads, through a temp when they go around in a cycle.
+ *
+ * Versions connected by a phi or a copy share a name wherever they are
+ * never needed at the same time, which leaves most copies copying a
+ * variable to itself, and those are dropped. Version zero keeps its Vapor
+ * name, and the others take the name of the variable, or with the version
+ * added once it is taken.
+ */
+public final class VaporEmitter {
+
+    private VaporEmitter() {
+    }
+
+    /**
+     * @param program Program in SSA form
+     * @return The Vapor code, a line per element
+     */
+    public static List<String> emit(Program program) {
+        List<String> lines = data(program.data);
+        for(Function function : program.functions) {
+            lines.addAll(emit(function));
+            lines.add("");
+        }
+        return lines;
+    }
+
+    /**
+     * @param segments Data segments of the program
+     * @return Their Vapor code, a line per element
+     */
+    public static List<String> data(List<VDataSegment> segments) {
+        List<String> lines = new ArrayList<>();
+        for(VDataSegment segment : segments) {
+            lines.add((segment.mutable ? "var " : "const ") + segment.ident);
+            for(VOperand.Static value : segment.values) {
+                lines.add("\t" + value);
+            }
+            lines.add("");
+        }
+        return lines;
+    }
+
+    /**
+     * Takes a function out of SSA form and writes it. Only the lines of
+     * instructions start with a tab.
+     * @param function Function in SSA form, no longer in it afterwards
+     * @return The Vapor code, a line per element
+     */
+    public static List<String> emit(Function function) {
+        lower(function);
+        List<String> lines = new ArrayList<>();
+        emit(function, lines);
+        return lines;
+    }
+
+    /**
+     * Takes a function out of SSA form, leaving every variable at version
+     * zero under its Vapor name
+     * @param function Function in question
+     */
+    static void lower(Function function) {
+        List<Block> edges = splitCriticalEdges(function);
+        Map<Var, Var> names = names(function);
+        Set<Var> params = new HashSet<>(function.params);
+        Set<String> taken = new HashSet<>();
+        for(Var var : names.values()) {
+            taken.add(var.name);
+        }
+        for(Block block : function.blocks) {
+            for(Instr instr : block.instrs) {
+                for(Operand use : new ArrayList<>(instr.uses())) {
+                    if(use instanceof Var)
+                        instr.replace((Var) use, names.get(use));
+                }
+                if(instr.def() != null)
+                    instr.redefine(names.get(instr.def()));
+            }
+            // Copies between variables that now share a name
+            Iterator<Instr> instrs = block.instrs.iterator();
+            while(instrs.hasNext()) {
+                Instr instr = instrs.next();
+                if(instr instanceof Assign && ((Assign) instr).dst.equals(((Assign) instr).src))
+                    instrs.remove();
+            }
+        }
+        int temps = 0;
+        for(Block block : function.blocks) {
+            for(Block predecessor : block.predecessors) {
+                Map<Var, Operand> copies = new LinkedHashMap<>();
+                for(Phi phi : block.phis) {
+                    Operand src = phi.args.get(predecessor);
+                    // Nothing to copy from a variable never set
+                    if(src instanceof Var && ((Var) src).version == 0 && !params.contains(src))
+                        continue;
+                    Var dst = names.get(phi.dst);
+                    if(src instanceof Var)
+                        src = names.get(src);
+                    if(!dst.equals(src))
+                        copies.put(dst, src);
+                }
+                List<Instr> sequence = new ArrayList<>();
+                while(!copies.isEmpty()) {
+                    Var ready = null;
+                    for(Var dst : copies.keySet()) {
+                        if(!copies.containsValue(dst)) {
+                            ready = dst;
+                            break;
+                        }
+                    }
+                    if(ready == null) {
+                        // Every copy overwrites what another reads, so one
+                        // value is saved first
+                        ready = copies.keySet().iterator().next();
+                        String name = "phi." + temps++;
+                        while(!taken.add(name)) {
+                            name = "phi." + temps++;
+                        }
+                        Var temp = new Var(name, 0);
+                        sequence.add(new Assign(temp, ready));
+                        for(Map.Entry<Var, Operand> copy : copies.entrySet()) {
+                            if(ready.equals(copy.getValue()))
+                                copy.setValue(temp);
+                        }
+                    }
+                    sequence.add(new Assign(ready, copies.remove(ready)));
+                }
+                predecessor.instrs.addAll(predecessor.instrs.size() - 1, sequence);
+            }
+        }
+        for(Block block : function.blocks) {
+            block.phis.clear();
+        }
+        hoistEdgeCopies(function, edges);
+        // Edges that got no copies need no block of their own
+        for(Block edge : edges) {
+            if(edge.instrs.size() == 1)
+                edge.predecessors.get(0).retarget(edge, ((Goto) edge.last()).target);
+        }
+        function.connect();
+    }
+
+    /**
+     * Moves the copies on an edge out of a branch in front of the branch,
+     * where they run whichever way it goes, when the other way never reads
+     * what they set. Only one way's copies move, since the liveness the
+     * other way's would be checked against no longer holds after.
+     * @param function Function out of SSA form
+     * @param edges Blocks put on edges for copies
+     */
+    private static void hoistEdgeCopies(Function function, List<Block> edges) {
+        Map<Block, Set<Var>> liveIn = Interference.liveIn(function);
+        Set<Block> hoisted = new HashSet<>();
+        for(Block edge : edges) {
+            List<Instr> copies = edge.instrs.subList(0, edge.instrs.size() - 1);
+            Block predecessor = edge.predecessors.get(0);
+            Branch branch = (Branch) predecessor.last();
+            Block other = branch.target == edge ? branch.next : branch.target;
+            if(copies.isEmpty() || hoisted.contains(predecessor))
+                continue;
+            Set<Var> read = new HashSet<>(liveIn.get(other));
+            if(branch.cond instanceof Var)
+                read.add((Var) branch.cond);
+            boolean hoistable = true;
+            for(Instr copy : copies) {
+                hoistable &= !read.contains(copy.def());
+            }
+            if(!hoistable)
+                continue;
+            predecessor.instrs.addAll(predecessor.instrs.size() - 1, copies);
+            copies.clear();
+            hoisted.add(predecessor);
+        }
+    }
+
+    /**
+     * Gives every edge phi copies would go on, from a block with more than
+     * one successor to one with more than one predecessor, a block of its
+     * own
+     * @param function Function in question
+     * @return The blocks added
+     */
+    private static List<Block> splitCriticalEdges(Function function) {
+        List<Block> edges = new ArrayList<>();
+        for(Block block : new ArrayList<>(function.blocks)) {
+            if(block.phis.isEmpty() || block.predecessors.size() < 2)
+                continue;
+            for(Block predecessor : new ArrayList<>(block.predecessors)) {
+                if(predecessor.successors().size() < 2)
+                    continue;
+                // Right after the predecessor, so a jump back to a loop
+                // header stays at the bottom of the loop
+                Block edge = function.newBlock(null);
+                function.blocks.remove(edge);
+                function.blocks.add(function.blocks.indexOf(predecessor) + 1, edge);
+                edge.instrs.add(new Goto(block));
+                edges.add(edge);
+                predecessor.retarget(block, edge);
+                for(Phi phi : block.phis) {
+                    phi.args.put(edge, phi.args.remove(predecessor));
+                }
+            }
+        }
+        function.connect();
+        return edges;
+    }
+
+    /**
+     * Names every version. Versions joined by a phi or a copy share a name
+     * when they are never needed at the same time, so the copy between them
+     * goes away.
+     * @param function Function in SSA form
+     * @return The variable at version zero standing for each version
+     */
+    private static Map<Var, Var> names(Function function) {
+        Set<Var> vars = new LinkedHashSet<>(function.params);
+        for(Block block : function.blocks) {
+            for(Phi phi : block.phis) {
+                vars.add(phi.dst);
+                addVars(phi.uses(), vars);
+            }
+            for(Instr instr : block.instrs) {
+                if(instr.def() != null)
+                    vars.add(instr.def());
+                addVars(instr.uses(), vars);
+            }
+        }
+        Map<Var, Set<Var>> classes = new HashMap<>();
+        for(Var var : vars) {
+            classes.put(var, new LinkedHashSet<>(Collections.singleton(var)));
+        }
+        Interference interference = new Interference(function);
+        for(Block block : function.blocks) {
+            for(Phi phi : block.phis) {
+                for(Operand arg : phi.args.values()) {
+                    if(arg instanceof Var)
+                        join(classes, phi.dst, (Var) arg, interference);
+                }
+            }
+        }
+        for(Block block : function.blocks) {
+            for(Instr instr : block.instrs) {
+                if(instr instanceof Assign && ((Assign) instr).src instanceof Var)
+                    join(classes, ((Assign) instr).dst, (Var) ((Assign) instr).src, interference);
+            }
+        }
+        // Classes holding a value from entry keep its name, and are named
+        // first so nothing else takes it
+        List<Set<Var>> named = new ArrayList<>();
+        for(Var var : vars) {
+            Set<Var> _class = classes.get(var);
+            if(var.version == 0 && !named.contains(_class))
+                named.add(_class);
+        }
+        for(Var var : vars) {
+            if(!named.contains(classes.get(var)))
+                named.add(classes.get(var));
+        }
+        Map<Var, Var> names = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        for(Set<Var> _class : named) {
+            Var first = _class.iterator().next();
+            for(Var var : _class) {
+                if(var.version == 0) {
+                    first = var;
+                    break;
+                }
+            }
+            String name = first.name;
+            if(taken.contains(name))
+                name = first.name + "." + first.version;
+            while(!taken.add(name)) {
+                name = name + "_";
+            }
+            Var renamed = new Var(name, 0);
+            for(Var var : _class) {
+                names.put(var, renamed);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Puts two variables under one name, unless some of the variables
+     * already under their names are needed at the same time
+     * @param classes Variables sharing a name with each variable
+     * @param a Variable in question
+     * @param b Variable in question
+     * @param interference Which variables are needed at the same time
+     */
+    private static void join(Map<Var, Set<Var>> classes, Var a, Var b, Interference interference) {
+        Set<Var> first = classes.get(a);
+        Set<Var> second = classes.get(b);
+        if(first == second)
+            return;
+        for(Var x : first) {
+            for(Var y : second) {
+                if(interference.interfere(x, y))
+                    return;
+            }
+        }
+        first.addAll(second);
+        for(Var var : second) {
+            classes.put(var, first);
+        }
+    }
+
+    private static void addVars(List<Operand> operands, Set<Var> vars) {
+        for(Operand operand : operands) {
+            if(operand instanceof Var)
+                vars.add((Var) operand);
+        }
+    }
+
+    /**
+     * Writes a function out of SSA form, labelling the blocks that are
+     * jumped to and leaving out jumps to the block right after
+     * @param function Function without phis
+     * @param lines Lines the code is added to
+     */
+    private static void emit(Function function, List<String> lines) {
+        List<Block> blocks = function.blocks;
+        Set<Block> targets = new HashSet<>();
+        for(int i = 0; i < blocks.size(); i++) {
+            Block next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            Instr last = blocks.get(i).last();
+            if(last instanceof Goto && ((Goto) last).target != next)
+                targets.add(((Goto) last).target);
+            if(last instanceof Branch)
+                targets.addAll(jumps((Branch) last, next));
+        }
+        Set<String> labels = new HashSet<>();
+        for(Block block : blocks) {
+            if(block.label != null)
+                labels.add(block.label);
+        }
+        int fresh = 1;
+        for(Block block : blocks) {
+            if(!targets.contains(block) || block.label != null)
+                continue;
+            String label = function.name + ".ssa" + fresh++;
+            while(!labels.add(label)) {
+                label = function.name + ".ssa" + fresh++;
+            }
+            block.label = label;
+        }
+        lines.add("func " + function.name + "(" + Instr.join(function.params) + ")");
+        for(int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            Block next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            if(targets.contains(block))
+                lines.add("  " + block.label + ":");
+            for(Instr instr : block.instrs) {
+                if(instr instanceof Goto) {
+                    if(((Goto) instr).target != next)
+                        lines.add("\tgoto :" + ((Goto) instr).target.label);
+                } else if(instr instanceof Branch) {
+                    emit((Branch) instr, next, lines);
+                } else {
+                    lines.add("\t" + instr);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param branch Branch in question
+     * @param next Block right after it, or null
+     * @return The blocks the branch is written to jump to
+     */
+    private static List<Block> jumps(Branch branch, Block next) {
+        List<Block> jumps = new ArrayList<>();
+        if(branch.cond instanceof Imm) {
+            Block taken = branch.taken(((Imm) branch.cond).value);
+            if(taken != next)
+                jumps.add(taken);
+        } else if(isInverted(branch, next)) {
+            jumps.add(branch.next);
+        } else {
+            jumps.add(branch.target);
+            if(branch.next != next)
+                jumps.add(branch.next);
+        }
+        return jumps;
+    }
+
+    /**
+     * @return Whether the branch is written with its condition flipped, to
+     * fall through to its target
+     */
+    private static boolean isInverted(Branch branch, Block next) {
+        return branch.target == next && branch.next != next;
+    }
+
+    private static void emit(Branch branch, Block next, List<String> lines) {
+        Block fallthrough = branch.next;
+        if(branch.cond instanceof Imm) {
+            // Vapor only branches on variables
+            fallthrough = branch.taken(((Imm) branch.cond).value);
+        } else if(isInverted(branch, next)) {
+            lines.add("\t" + (branch.ifZero ? "if " : "if0 ") + branch.cond + " goto :" + branch.next.label);
+            fallthrough = branch.target;
+        } else {
+            lines.add("\t" + (branch.ifZero ? "if0 " : "if ") + branch.cond + " goto :" + branch.target.label);
+        }
+        if(fallthrough != next)
+            lines.add("\tgoto :" + fallthrough.label);
+    }
+}
@@ -0,0 +1,32 @@
+package ssa;
+
+/**
+ * A variable of the SSA form. Every assignment to a Vapor variable gets a
+ * version of its own, numbered from one, while version zero is the value
+ * the variable has when the function starts: the argument for a parameter
+ * and nothing for any other variable.
+ */
+public final class Var extends Operand {
+    public final String name;
+    public final int version;
+
+    public Var(String name, int version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Var && name.equals(((Var) o).name) && version == ((Var) o).version;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + version;
+    }
+
+    @Override
+    public String toString() {
+        return version == 0 ? name : name + "#" + version;
+    }
+}
@@ -1,9 +1,238 @@
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import cs132.util.ProblemException;
+import cs132.vapor.ast.VBuiltIn.Op;
+import cs132.vapor.ast.VaporProgram;
+import cs132.vapor.parser.VaporParser;
+import ssa.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class V2VMTest {
+    private static final List<Op> OPS = Arrays.asList(
+            Op.Add, Op.Sub, Op.MulS, Op.Eq, Op.Lt, Op.LtS, Op.PrintIntS,
+            Op.HeapAllocZ, Op.Error);
+    private static final String LOOP = "func Main()\n"
+            + "  i = 0\n"
+            + "  s = 0\n"
+            + "loop:\n"
+            + "  t = LtS(i 10)\n"
+            + "  if0 t goto :done\n"
+            + "  s = Add(s i)\n"
+            + "  i = Add(i 1)\n"
+            + "  goto :loop\n"
+            + "done:\n"
+            + "  PrintIntS(s)\n"
+            + "  ret\n";
+
     @Test public void testAppHasAGreeting() {
         V2VM classUnderTest = new V2VM();
         assertEquals(true, true);
     }
+
+    /**
+     * @param vapor Source of a single function
+     * @return The function in SSA form
+     */
+    private static Function ssa(String vapor) throws IOException, ProblemException {
+        VaporProgram program = VaporParser.run(new StringReader(vapor), 1, 1, OPS, true, null, false);
+        return SsaBuilder.build(program.functions[0]);
+    }
+
+    @Test public void testPhisGoAtTheLoopHeader() throws IOException, ProblemException {
+        // Only the header joins two definitions, the exit sees the header's
+        assertEquals("func Main()\n"
+                + "  b0:\n"
+                + "\ti#1 = 0\n"
+                + "\ts#1 = 0\n"
+                + "\tgoto :loop\n"
+                + "  loop:\n"
+                + "\ti#2 = phi(b0: i#1, b2: i#3)\n"
+                + "\ts#2 = phi(b0: s#1, b2: s#3)\n"
+                + "\tt#1 = LtS(i#2 10)\n"
+                + "\tif0 t#1 goto :done else :b2\n"
+                + "  b2:\n"
+                + "\ts#3 = Add(s#2 i#2)\n"
+                + "\ti#3 = Add(i#2 1)\n"
+                + "\tgoto :loop\n"
+                + "  done:\n"
+                + "\tPrintIntS(s#2)\n"
+                + "\tret\n", ssa(LOOP).toString());
+    }
+
+    @Test public void testLoweringCoalescesLoopVersions() throws IOException, ProblemException {
+        // Every version of i and s shares one name, so no copies are left
+        assertEquals(Arrays.asList("func Main()", "\ti = 0", "\ts = 0", "  loop:", "\tt = LtS(i 10)",
+                "\tif0 t goto :done", "\ts = Add(s i)", "\ti = Add(i 1)", "\tgoto :loop", "  done:",
+                "\tPrintIntS(s)", "\tret"), VaporEmitter.emit(ssa(LOOP)));
+    }
+
+    @Test public void testConstantPropagationSkipsTheBranchNotTaken() throws IOException, ProblemException {
+        Function function = ssa("func Main()\n"
+                + "  c = 1\n"
+                + "  if0 c goto :other\n"
+                + "  x = 3\n"
+                + "  goto :end\n"
+                + "other:\n"
+                + "  x = 4\n"
+                + "end:\n"
+                + "  PrintIntS(x)\n"
+                + "  ret\n");
+        new ConstantPropagation().run(function);
+        // The 4 never reaches the phi, so x is 3 where it is printed
+        assertEquals("func Main()\n"
+                + "  b0:\n"
+                + "\tc#1 = 1\n"
+                + "\tgoto :b1\n"
+                + "  b1:\n"
+                + "\tx#1 = 3\n"
+                + "\tgoto :end\n"
+                + "  end:\n"
+                + "\tx#3 = phi(b1: 3)\n"
+                + "\tPrintIntS(3)\n"
+                + "\tret\n", function.toString());
+        new DeadCodeElimination().run(function);
+        assertEquals(Arrays.asList("func Main()", "\tPrintIntS(3)", "\tret"), VaporEmitter.emit(function));
+    }
+
+    /**
+     * @param args Command line arguments of VOpt
+     * @return Names of the passes they pick, in order
+     */
+    private static List<String> passNames(String... args) {
+        List<String> names = new ArrayList<>();
+        for (Pass pass : VOpt.passes(args)) {
+            names.add(pass.getClass().getSimpleName());
+        }
+        return names;
+    }
+
+    @Test public void testPassesFlagPicksThePasses() {
+        assertEquals(Arrays.asList("ConstantPropagation", "BranchThreading", "UnreachableBlockElimination",
+                "DeadCodeElimination"), passNames("--stats"));
+        assertEquals(Arrays.asList("BranchThreading", "CopyPropagation"), passNames("--passes=thread,copy"));
+        assertEquals(Arrays.<String>asList(), passNames("--passes="));
+        boolean rejected = false;
+        try {
+            passNames("--passes=const,inline");
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+    }
+
+    @Test public void testBranchThreadingSkipsGotosAndKnownBranches() throws IOException, ProblemException {
+        Function function = ssa("func Main(c)\n"
+                + "  if0 c goto :a\n"
+                + "  PrintIntS(1)\n"
+                + "a:\n"
+                + "  goto :b\n"
+                + "b:\n"
+                + "  if0 c goto :z\n"
+                + "  PrintIntS(2)\n"
+                + "  goto :end\n"
+                + "z:\n"
+                + "  PrintIntS(3)\n"
+                + "end:\n"
+                + "  ret\n");
+        new BranchThreading().run(function);
+        // Where c is zero the second branch is known to go to z
+        assertEquals(Arrays.asList("func Main(c)", "\tif0 c goto :z", "\tPrintIntS(1)", "\tif0 c goto :z",
+                "\tPrintIntS(2)", "\tgoto :end", "  z:", "\tPrintIntS(3)", "  end:", "\tret"),
+                VaporEmitter.emit(function));
+    }
+
+    @Test public void testLoweringOrdersSwappingCopies() throws IOException, ProblemException {
+        Function function = ssa("func Main(n)\n"
+                + "  a = 1\n"
+                + "  b = 2\n"
+                + "loop:\n"
+                + "  if0 n goto :done\n"
+                + "  t = a\n"
+                + "  a = b\n"
+                + "  b = t\n"
+                + "  n = Sub(n 1)\n"
+                + "  goto :loop\n"
+                + "done:\n"
+                + "  PrintIntS(a)\n"
+                + "  PrintIntS(b)\n"
+                + "  ret\n");
+        new CopyPropagation().run(function);
+        new DeadCodeElimination().run(function);
+        // The phis of a and b read each other, so one goes through a temp
+        assertEquals(Arrays.asList("func Main(n)", "\ta = 1", "\tb = 2", "  loop:", "\tif0 n goto :done",
+                "\tn = Sub(n 1)", "\tphi.0 = a", "\ta = b", "\tb = phi.0", "\tgoto :loop", "  done:",
+                "\tPrintIntS(a)", "\tPrintIntS(b)", "\tret"), VaporEmitter.emit(function));
+    }
+
+    /**
+     * Runs a program in the Vapor interpreter
+     * @param program File holding the program
+     * @param options Options of vapor run, such as -mips for vaporm
+     * @return What it printed, without the source locations of a failure
+     */
+    private static List<String> interpret(File program, String... options) throws IOException, InterruptedException {
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        List<String> command = new ArrayList<>(Arrays.asList(java, "-jar", "misc/vapor.jar", "run"));
+        command.addAll(Arrays.asList(options));
+        command.add(program.getPath());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.matches("^  .*line [0-9]+$"))
+                    output.add(line);
+            }
+        }
+        process.waitFor();
+        return output;
+    }
+
+    @Test public void testOptimizedTestcasesPrintTheSame() throws Exception {
+        File[] testcases = new File("testcases").listFiles((dir, name) -> name.endsWith(".vapor"));
+        assertTrue(testcases.length > 0);
+        // The default passes, and orders where threading follows other passes
+        String[][] orders = {{}, {"--passes=dce,thread,copy"}, {"--passes=const,dce,thread,copy"},
+                {"--passes=const,copy,dce,thread,unreachable,copy"}};
+        for (File testcase : testcases) {
+            String expected = testcase.getName() + " " + interpret(testcase);
+            for (String[] order : orders) {
+                // Passes change the program, so each order starts from a fresh parse
+                VaporProgram program;
+                try (Reader reader = new FileReader(testcase)) {
+                    program = VaporParser.run(reader, 1, 1, OPS, true, null, false);
+                }
+                File optimized = File.createTempFile(testcase.getName(), ".vapor");
+                optimized.deleteOnExit();
+                Files.write(optimized.toPath(), VOpt.optimize(program, VOpt.passes(order), null),
+                        StandardCharsets.UTF_8);
+                assertEquals(expected + " " + Arrays.toString(order),
+                        testcase.getName() + " " + interpret(optimized) + " " + Arrays.toString(order));
+            }
+        }
+    }
+
+    @Test public void testSpilledVariablesKeepTheirValues() throws Throwable {
+        // Thirty values live across a call and then summed, more than there are registers
+        StringBuilder vapor = new StringBuilder("func Main()\n");
+        for (int i = 1; i <= 30; i++) {
+            vapor.append("  v").append(i).append(" = ").append(i).append("\n");
+        }
+        vapor.append("  r = call :Id(5)\n  s = 0\n");
+        for (int i = 1; i <= 30; i++) {
+            vapor.append("  s = Add(s v").append(i).append(")\n");
+        }
+        vapor.append("  PrintIntS(s)\n  PrintIntS(r)\n  ret\n\nfunc Id(x)\n  ret x\n");
+        VaporProgram program = VaporParser.run(new StringReader(vapor.toString()), 1, 1, OPS, true, null, false);
+        File vaporm = File.createTempFile("Spill", ".vaporm");
+        vaporm.deleteOnExit();
+        Files.write(vaporm.toPath(), new TranslatorVisitor(program).vaporm, StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("465", "5"), interpret(vaporm, "-mips"));
+    }
 }
@@ -38,7 +38,8 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
 		put("LtSreg", "slt");
 		put("MulS", "mul");
 		put("Sub", "subu");
-		put("Lt", "sltu");
+		put("Lt", "sltiu");
+		put("Ltreg", "sltu");
 		// Subtraction and if0 accomplishes the equality check
 		put("Eq", "subu");
 	}};
@@ -387,11 +388,15 @@ public class TranslatorVisitor extends VInstr.VisitorR<LinkedList<String>, Throw
 				} else if(!isRegister(arg1)) {
 					// If the first argument is an immediate then temporarily store into a temp register
 					builtIn.addAll(instr("li", "$t9", arg1));
+					// The second argument is a register, so SLT is needed
+					if(name.equals("LtS") || name.equals("Lt")) {
+						name += "reg";
+					}
 					builtIn.addAll(arithmetic(binaryFuncs.get(name), dest.toString(), "$t9", arg2));
 				} else {
 					// Use SLT only if the second argument is a register
-					if(name.equals("LtS") && isRegister(arg2)) {
-						name = "LtSreg";
+					if((name.equals("LtS") || name.equals("Lt")) && isRegister(arg2)) {
+						name += "reg";
 					}
 					builtIn.addAll(arithmetic(binaryFuncs.get(name), dest.toString(), arg1, arg2));
 				}
@@ -1,9 +1,39 @@
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import cs132.vapor.ast.VBuiltIn.Op;
+import cs132.vapor.ast.VaporProgram;
+import cs132.vapor.parser.VaporParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class MainTest {
     @Test public void testAppHasAGreeting() {
         VM2M classUnderTest = new VM2M();
         assertEquals(true, true);
     }
+
+    @Test public void testComparesPickSignednessAndOperandKind() throws Throwable {
+        VaporProgram program = VaporParser.run(new StringReader("func Main [in 0, out 0, local 0]\n"
+                + "  $t0 = LtS($t1 10)\n"
+                + "  $t0 = LtS($t1 $t2)\n"
+                + "  $t0 = Lt($t1 10)\n"
+                + "  $t0 = Lt($t1 $t2)\n"
+                + "  $t0 = Lt(3 $t2)\n"
+                + "  ret\n"), 1, 1,
+                Arrays.asList(Op.Add, Op.Sub, Op.MulS, Op.Eq, Op.Lt, Op.LtS, Op.PrintIntS, Op.HeapAllocZ, Op.Error),
+                false, new String[]{"v0", "v1", "a0", "a1", "a2", "a3", "t0", "t1", "t2", "t3", "t4", "t5", "t6",
+                        "t7", "s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7", "t8"}, true);
+        List<String> compares = new ArrayList<>();
+        for (String line : new TranslatorVisitor(program).mips) {
+            if (line.trim().startsWith("slt") || line.trim().startsWith("li $t9"))
+                compares.add(line.trim());
+        }
+        // Lt is unsigned, and only the immediate forms take an immediate
+        assertEquals(Arrays.asList("slti $t0 $t1 10", "slt $t0 $t1 $t2", "sltiu $t0 $t1 10", "sltu $t0 $t1 $t2",
+                "li $t9 3", "sltu $t0 $t9 $t2"), compares);
+    }
 }
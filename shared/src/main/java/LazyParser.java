@@ -0,0 +1,338 @@
+import syntaxtree.*;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * LazyParser runs the MiniJava parser in two passes. The first pass parses
+ * every declaration, method signatures and locals included, but only brace
+ * matches method bodies, so a declaration-only pass such as the context
+ * builder can run on the Goal it returns. The second pass replays the
+ * tokens of each recorded body through the parser and fills in the
+ * statements, the return expression and the closing tokens. The first pass
+ * can also hand every class to a consumer thread as soon as its closing
+ * brace has been read, so the context is built while the parse goes on.
+ *
+ * The generated parser keeps all of its state in static fields, so only one
+ * LazyParser may be in use at any time.
+ */
+public class LazyParser implements MiniJavaParserConstants {
+    private final List<DeferredBody> bodies = new ArrayList<>();
+    // When set, each finished class is handed over here, then the Goal itself
+    private BlockingQueue<Node> declarations = null;
+
+    /**
+     * The token range of a method body that has only been brace matched.
+     * The tokens stay linked after the first pass, so the body can be parsed
+     * without reading the input again.
+     */
+    private static class DeferredBody {
+        private final MethodDeclaration method;
+        // Last token before the first body statement
+        private final Token start;
+        // Closing brace of the method
+        private final Token end;
+
+        DeferredBody(MethodDeclaration method, Token start, Token end) {
+            this.method = method;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Points the parser at a new input
+     * @param in MiniJava source
+     */
+    public LazyParser(Reader in) {
+        // The parser may only be constructed once, later inputs reinitialize it
+        if (MiniJavaParser.token_source == null)
+            new MiniJavaParser(in);
+        else
+            MiniJavaParser.ReInit(in);
+    }
+
+    /**
+     * Parses a whole program, bodies included
+     * @param in MiniJava source
+     * @return The complete syntax tree
+     */
+    public static Goal parse(Reader in) throws ParseException {
+        LazyParser parser = new LazyParser(in);
+        Goal goal = parser.declarations();
+        parser.parseBodies();
+        return goal;
+    }
+
+    /**
+     * First pass, parses the program leaving every method body empty
+     * @return The syntax tree, with f8 of each method empty and f9 to f12 null
+     */
+    public Goal declarations() throws ParseException {
+        MainClass main = MiniJavaParser.MainClass();
+        publish(main);
+        NodeListOptional types = new NodeListOptional();
+        while (MiniJavaParser.getToken(1).kind == CLASS) {
+            TypeDeclaration type = typeDeclaration();
+            types.addNode(type);
+            publish(type);
+        }
+        types.nodes.trimToSize();
+        Token eof = expect(EOF);
+        // As the generated Goal() does
+        eof.beginColumn++;
+        eof.endColumn++;
+        Goal goal = new Goal(main, types, nodeToken(eof));
+        publish(goal);
+        return goal;
+    }
+
+    /**
+     * First pass, handing the MainClass and then every TypeDeclaration to
+     * consumer on a second thread, in source order. At most capacity classes
+     * wait for the consumer at any time. Parse errors take precedence over
+     * errors thrown by consumer.
+     * @param capacity Classes parsed ahead of the consumer
+     * @param consumer Run on each class, never on two at once
+     * @return The syntax tree, with f8 of each method empty and f9 to f12 null
+     */
+    public Goal pipelinedDeclarations(int capacity, Consumer<Node> consumer) throws ParseException {
+        BlockingQueue<Node> queue = new ArrayBlockingQueue<>(capacity);
+        Throwable[] failure = new Throwable[1];
+        Thread builder = new Thread(() -> {
+            try {
+                for (Node n = queue.take(); !(n instanceof Goal); n = queue.take()) {
+                    // Keep draining after a failure so the parser never blocks
+                    if (failure[0] != null)
+                        continue;
+                    try {
+                        consumer.accept(n);
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The parse failed
+            }
+        }, "declaration-consumer");
+        // A consumer left waiting must not keep the program alive
+        builder.setDaemon(true);
+        declarations = queue;
+        builder.start();
+        Goal goal = null;
+        try {
+            goal = declarations();
+        } finally {
+            declarations = null;
+            // Whatever stopped the parse, lexical errors included, the Goal
+            // that ends the consumer's loop never comes
+            if (goal == null)
+                builder.interrupt();
+        }
+        try {
+            builder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while building declarations");
+        }
+        if (failure[0] instanceof RuntimeException)
+            throw (RuntimeException) failure[0];
+        if (failure[0] instanceof Error)
+            throw (Error) failure[0];
+        if (failure[0] != null)
+            throw new IllegalStateException(failure[0]);
+        return goal;
+    }
+
+    /**
+     * Second pass, parses the method bodies left out by the first one
+     */
+    public void parseBodies() throws ParseException {
+        for (DeferredBody body : bodies) {
+            // Drops any lookahead left from an earlier position
+            MiniJavaParser.ReInit(new StringReader(""));
+            MiniJavaParser.token = body.start;
+            parseBody(body.method);
+            if (MiniJavaParser.token != body.end)
+                throw new ParseException("Method body ended before line " + body.end.beginLine);
+        }
+        bodies.clear();
+    }
+
+    /**
+     * Hands a finished declaration, or the Goal, to the consumer of a
+     * pipelined parse
+     * @param n The node finished
+     */
+    private void publish(Node n) throws ParseException {
+        if (declarations == null)
+            return;
+        try {
+            declarations.put(n);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while publishing a declaration");
+        }
+    }
+
+    /**
+     * f0 -> ClassDeclaration()
+     *       | ClassExtendsDeclaration()
+     */
+    private TypeDeclaration typeDeclaration() throws ParseException {
+        NodeToken classToken = token(CLASS);
+        Identifier name = MiniJavaParser.Identifier();
+        if (MiniJavaParser.getToken(1).kind == EXTENDS) {
+            NodeToken extendsToken = token(EXTENDS);
+            Identifier parent = MiniJavaParser.Identifier();
+            NodeToken open = token(LBRACE);
+            NodeListOptional fields = fields();
+            NodeListOptional methods = methods();
+            return new TypeDeclaration(new NodeChoice(new ClassExtendsDeclaration(classToken, name,
+                    extendsToken, parent, open, fields, methods, token(RBRACE)), 1));
+        }
+        NodeToken open = token(LBRACE);
+        NodeListOptional fields = fields();
+        NodeListOptional methods = methods();
+        return new TypeDeclaration(new NodeChoice(new ClassDeclaration(classToken, name, open, fields,
+                methods, token(RBRACE)), 0));
+    }
+
+    /**
+     * ( VarDeclaration() )* of a class
+     */
+    private NodeListOptional fields() throws ParseException {
+        NodeListOptional fields = new NodeListOptional();
+        for (int kind = MiniJavaParser.getToken(1).kind; kind != PUBLIC && kind != RBRACE;
+             kind = MiniJavaParser.getToken(1).kind) {
+            fields.addNode(MiniJavaParser.VarDeclaration());
+        }
+        fields.nodes.trimToSize();
+        return fields;
+    }
+
+    /**
+     * ( MethodDeclaration() )* of a class
+     */
+    private NodeListOptional methods() throws ParseException {
+        NodeListOptional methods = new NodeListOptional();
+        while (MiniJavaParser.getToken(1).kind == PUBLIC) {
+            methods.addNode(method());
+        }
+        methods.nodes.trimToSize();
+        return methods;
+    }
+
+    /**
+     * Parses a method up to its locals and records the body for later
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( FormalParameterList() )?
+     * f5 -> ")"
+     * f6 -> "{"
+     * f7 -> ( VarDeclaration() )*
+     */
+    private MethodDeclaration method() throws ParseException {
+        NodeToken publicToken = token(PUBLIC);
+        Type type = MiniJavaParser.Type();
+        Identifier name = MiniJavaParser.Identifier();
+        NodeToken open = token(LPAREN);
+        NodeOptional parameters = new NodeOptional();
+        if (MiniJavaParser.getToken(1).kind != RPAREN)
+            parameters.addNode(MiniJavaParser.FormalParameterList());
+        NodeToken close = token(RPAREN);
+        NodeToken openBody = token(LBRACE);
+        NodeListOptional locals = new NodeListOptional();
+        while (startsVarDeclaration()) {
+            locals.addNode(MiniJavaParser.VarDeclaration());
+        }
+        locals.nodes.trimToSize();
+        Token start = MiniJavaParser.token;
+        skipToMatchingBrace();
+        MethodDeclaration method = new MethodDeclaration(publicToken, type, name, open, parameters, close,
+                openBody, locals, new NodeListOptional(), null, null, null, null);
+        bodies.add(new DeferredBody(method, start, MiniJavaParser.token));
+        return method;
+    }
+
+    /**
+     * @return If the next tokens are a type followed by a name
+     */
+    private static boolean startsVarDeclaration() {
+        int kind = MiniJavaParser.getToken(1).kind;
+        return kind == INTEGER || kind == BOOLEAN
+                || kind == IDENTIFIER && MiniJavaParser.getToken(2).kind == IDENTIFIER;
+    }
+
+    /**
+     * Skips the remaining tokens of a method body, stopping at the closing
+     * brace that matches the one already read for the method
+     */
+    private static void skipToMatchingBrace() throws ParseException {
+        int depth = 1;
+        while (depth > 0) {
+            Token t = MiniJavaParser.getNextToken();
+            if (t.kind == LBRACE)
+                depth++;
+            else if (t.kind == RBRACE)
+                depth--;
+            else if (t.kind == EOF)
+                throw new ParseException("Unbalanced braces in method body at line " + t.beginLine);
+        }
+    }
+
+    /**
+     * Fills in the body of a method, the parser sitting just before it
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    private static void parseBody(MethodDeclaration method) throws ParseException {
+        NodeListOptional statements = new NodeListOptional();
+        while (MiniJavaParser.getToken(1).kind != RETURN) {
+            statements.addNode(MiniJavaParser.Statement());
+        }
+        statements.nodes.trimToSize();
+        method.f8 = statements;
+        method.f9 = token(RETURN);
+        method.f10 = MiniJavaParser.Expression();
+        method.f11 = token(SEMICOLON);
+        method.f12 = token(RBRACE);
+    }
+
+    /**
+     * @param kind Kind of the token expected next
+     * @return The token read
+     */
+    private static Token expect(int kind) throws ParseException {
+        Token t = MiniJavaParser.getNextToken();
+        if (t.kind != kind)
+            throw new ParseException("Encountered \"" + t.image + "\" at line " + t.beginLine + ", column "
+                    + t.beginColumn + ", was expecting " + tokenImage[kind]);
+        return t;
+    }
+
+    private static NodeToken token(int kind) throws ParseException {
+        return nodeToken(expect(kind));
+    }
+
+    /**
+     * Wraps a token as the generated parser does. JTBToolkit does the same,
+     * but it is an auxiliary class of MiniJavaParser.java, which javac
+     * warns about using from another file
+     * @param t Token just consumed
+     * @return The syntax tree node for it
+     */
+    private static NodeToken nodeToken(Token t) {
+        return new NodeToken(t.image.intern(), t.kind, t.beginLine, t.beginColumn, t.endLine, t.endColumn);
+    }
+}
@@ -1,5 +1,7 @@
+package symbols;
+
 import syntaxtree.*;
-import visitor.DepthFirstVisitor;
+import visitor.IterativeDepthFirst;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -7,8 +9,11 @@ import java.util.Map;
 /**
  * ContextVisitor is a DFS based visitor running through the MiniJava Parsed
  * AST to assign scoping of classes and methods with their variable types.
+ * It walks the tree iteratively, and never looks at method statements, so
+ * deferred method bodies stay unparsed. A class, method, member, parameter
+ * or local declared twice under one name is a DeclarationException.
  */
-public class ContextVisitor extends DepthFirstVisitor{
+public class ContextVisitor extends IterativeDepthFirst<Void, Void> {
     // Actual context
     public Map<String, VClass> classes = new HashMap<>();
     // State for current class to look through
@@ -48,28 +53,30 @@ public class ContextVisitor extends DepthFirstVisitor{
     }
 
     /**
-     * Prints out the Virtual Method Table
-     */
-    public void printVMTs() {
-        for(VClass _class : classes.values()) {
-            //if (!_class.className.equals("main"))
-            _class.printVMT();
-        }
-    }
-
-    /**
-     * f0 -> MainClass()
-     * f1 -> ( TypeDeclaration() )*
-     * f2 -> <EOF>
+     * Declarations never live inside statements or expressions, so those
+     * subtrees are skipped. Scoping state is set up as classes and methods
+     * are entered, before their members are visited.
      *
      * @param n
+     * @param argu
      */
     @Override
-    public void visit(Goal n) {
-        n.f0.accept(this);
-        for(Node _class : n.f1.nodes) {
-            _class.accept(this);
+    protected boolean enter(Node n, Void argu) throws DeclarationException {
+        if (n instanceof Statement || n instanceof Expression) {
+            return false;
+        }
+        if (n instanceof MainClass) {
+            enterMainClass((MainClass) n);
+        } else if (n instanceof ClassDeclaration) {
+            enterClass(((ClassDeclaration) n).f1.f0.toString());
+        } else if (n instanceof ClassExtendsDeclaration) {
+            ClassExtendsDeclaration extendsDeclaration = (ClassExtendsDeclaration) n;
+            enterClass(extendsDeclaration.f1.f0.toString());
+            setParent(extendsDeclaration.f3.f0.toString());
+        } else if (n instanceof MethodDeclaration) {
+            enterMethod((MethodDeclaration) n);
         }
+        return true;
     }
 
     /**
@@ -94,113 +101,51 @@ public class ContextVisitor extends DepthFirstVisitor{
      *
      * @param n
      */
-    @Override
-    public void visit(MainClass n) {
+    private void enterMainClass(MainClass n) {
         String className = n.f1.f0.toString();
         VMethod mainMethod = new VMethod("main");
+        mainMethod.isStatic = true;
         VClass main = new VClass(className);
+        main.declared = true;
         main.methods.add(mainMethod);
         classes.put(className, main);
         classVar = false;
         currentClass = main;
         currentMethod = mainMethod;
-        for(Node _var : n.f14.nodes) {
-            _var.accept(this);
-        }
     }
 
     /**
-     * f0 -> ClassDeclaration()
-     * | ClassExtendsDeclaration()
+     * Starts on a class declaration, with or without a parent. Its
+     * VarDeclarations are members until the first method is entered.
      *
-     * @param n
+     * @param className Name of the declared class
      */
-    @Override
-    public void visit(TypeDeclaration n) {
-        n.f0.accept(this);
-    }
-
-    /**
-     * f0 -> "class"
-     * f1 -> Identifier()
-     * f2 -> "{"
-     * f3 -> ( VarDeclaration() )*
-     * f4 -> ( MethodDeclaration() )*
-     * f5 -> "}"
-     *
-     * @param n
-     */
-    @Override
-    public void visit(ClassDeclaration n) {
-        String className = n.f1.f0.toString();
+    private void enterClass(String className) throws DeclarationException {
         // Work on dummy if it exists
         VClass curr = classes.get(className) != null ? classes.get(className) : new VClass(className);
+        if(curr.declared)
+            throw new DeclarationException("Duplicate class " + className);
+        curr.declared = true;
         classes.put(className, curr);
         currentClass = curr;
         classVar = true;
-        for(Node _members : n.f3.nodes) {
-            _members.accept(this);
-        }
-        classVar = false;
-        for(Node _methods : n.f4.nodes) {
-            _methods.accept(this);
-        }
     }
 
     /**
-     * f0 -> "class"
-     * f1 -> Identifier()
-     * f2 -> "extends"
-     * f3 -> Identifier()
-     * f4 -> "{"
-     * f5 -> ( VarDeclaration() )*
-     * f6 -> ( MethodDeclaration() )*
-     * f7 -> "}"
+     * Links the current class to its parent, which may not have been
+     * declared yet.
      *
-     * @param n
+     * @param parentClassName Name of the class being extended
      */
-    @Override
-    public void visit(ClassExtendsDeclaration n) {
-        String currClassName = n.f1.f0.toString();
-        String parentClassName = n.f3.f0.toString();
-        VClass curr = classes.get(currClassName) != null ? classes.get(currClassName) : new VClass(currClassName);
-        classes.put(currClassName, curr);
-        currentClass = curr;
+    private void setParent(String parentClassName) {
         if(classes.get(parentClassName) != null) {
             // Get real parent
-            curr.setParent(classes.get(parentClassName));
+            currentClass.setParent(classes.get(parentClassName));
         } else {
             // Store dummy parent
             VClass parent = new VClass(parentClassName);
             classes.put(parentClassName, parent);
-            curr.setParent(parent);
-        }
-        classVar = true;
-        for(Node _members : n.f5.nodes) {
-            _members.accept(this);
-        }
-        classVar = false;
-        for(Node _methods : n.f6.nodes) {
-            _methods.accept(this);
-        }
-    }
-
-    /**
-     * f0 -> Type()
-     * f1 -> Identifier()
-     * f2 -> ";"
-     *
-     * @param n
-     */
-    @Override
-    public void visit(VarDeclaration n) {
-        String variableName = n.f1.f0.toString();
-        if(classVar) {
-            currentClass.members.add(variableName);
-            currentClass.types.put(variableName, getType(n.f0));
-        } else {
-            currentMethod.locals.add(variableName);
-            currentMethod.localTypes.put(variableName, getType(n.f0));
+            currentClass.setParent(parent);
         }
     }
 
@@ -221,31 +166,39 @@ public class ContextVisitor extends DepthFirstVisitor{
      *
      * @param n
      */
-    @Override
-    public void visit(MethodDeclaration n) {
+    private void enterMethod(MethodDeclaration n) throws DeclarationException {
         String methodName = n.f2.f0.toString();
+        if(currentClass.getDeclaredMethod(methodName) != null)
+            throw new DeclarationException("Duplicate method " + methodName);
         VMethod curr = new VMethod(methodName);
         currentClass.methods.add(curr);
         currentMethod = curr;
         currentMethod.returnType = getType(n.f1);
-        n.f4.accept(this);
-        for(Node _local : n.f7.nodes) {
-            _local.accept(this);
-        }
+        classVar = false;
     }
 
     /**
-     * f0 -> FormalParameter()
-     * f1 -> ( FormalParameterRest() )*
+     * f0 -> Type()
+     * f1 -> Identifier()
+     * f2 -> ";"
      *
      * @param n
+     * @param argu
      */
     @Override
-    public void visit(FormalParameterList n) {
-        n.f0.accept(this);
-        for(Node _param : n.f1.nodes) {
-            _param.accept(this);
+    public Void visit(VarDeclaration n, Void argu) throws DeclarationException {
+        String variableName = n.f1.f0.toString();
+        if(classVar ? currentClass.types.containsKey(variableName)
+                : currentMethod.localTypes.containsKey(variableName))
+            throw new DeclarationException("Duplicate variable " + variableName);
+        if(classVar) {
+            currentClass.members.add(variableName);
+            currentClass.types.put(variableName, getType(n.f0));
+        } else {
+            currentMethod.locals.add(variableName);
+            currentMethod.localTypes.put(variableName, getType(n.f0));
         }
+        return null;
     }
 
     /**
@@ -253,22 +206,15 @@ public class ContextVisitor extends DepthFirstVisitor{
      * f1 -> Identifier()
      *
      * @param n
+     * @param argu
      */
     @Override
-    public void visit(FormalParameter n) {
+    public Void visit(FormalParameter n, Void argu) throws DeclarationException {
         String paramName = n.f1.f0.toString();
+        if(currentMethod.paramTypes.containsKey(paramName))
+            throw new DeclarationException("Duplicate parameter " + paramName);
         currentMethod.params.add(paramName);
         currentMethod.paramTypes.put(paramName, getType(n.f0));
-    }
-
-    /**
-     * f0 -> ","
-     * f1 -> FormalParameter()
-     *
-     * @param n
-     */
-    @Override
-    public void visit(FormalParameterRest n) {
-        n.f1.accept(this);
+        return null;
     }
 }
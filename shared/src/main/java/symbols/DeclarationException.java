@@ -0,0 +1,14 @@
+package symbols;
+
+/**
+ * Convenience wrapper for a runtime exception with messages about
+ * declarations no MiniJava program may have, such as a class declared
+ * twice or one that inherits from itself
+ */
+public class DeclarationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DeclarationException(String msg) {
+        super(msg);
+    }
+}
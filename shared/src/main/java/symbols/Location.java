@@ -0,0 +1,42 @@
+package symbols;
+
+/**
+ * Location is where a variable named in a method body lives: a local or a
+ * parameter of the method, held in a Vapor variable of the same name, or
+ * a field of the object, held at a byte offset from its pointer. It also
+ * carries the variable's class, so expressions reading it know what they
+ * evaluate to.
+ */
+public final class Location {
+    public enum Kind { LOCAL, PARAM, FIELD }
+
+    public final Kind kind;
+    public final String name;
+    // Byte offset from the object pointer, only meaningful for fields
+    public final int offset;
+    // Class of the variable, or null for int, int[] and boolean
+    public final VClass type;
+
+    private Location(Kind kind, String name, int offset, VClass type) {
+        this.kind = kind;
+        this.name = name;
+        this.offset = offset;
+        this.type = type;
+    }
+
+    static Location local(String name, VClass type) {
+        return new Location(Kind.LOCAL, name, -1, type);
+    }
+
+    static Location param(String name, VClass type) {
+        return new Location(Kind.PARAM, name, -1, type);
+    }
+
+    static Location field(String name, int offset, VClass type) {
+        return new Location(Kind.FIELD, name, offset, type);
+    }
+
+    public boolean isField() {
+        return kind == Kind.FIELD;
+    }
+}
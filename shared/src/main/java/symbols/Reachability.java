@@ -0,0 +1,27 @@
+package symbols;
+
+/**
+ * Reachability is what a whole program analysis found the program can run,
+ * starting from main. The SymbolTable uses it to leave methods nobody calls
+ * out of the virtual method tables, and classes nobody allocates without a
+ * table at all.
+ */
+public interface Reachability {
+    /**
+     * @param methodName Name of method in question
+     * @return Whether reachable code calls a method by that name
+     */
+    boolean isCalled(String methodName);
+
+    /**
+     * @param label Function label of a method, as in Class.method
+     * @return Whether the method can run
+     */
+    boolean isReachable(String label);
+
+    /**
+     * @param _class Class in question
+     * @return Whether reachable code allocates objects of the class
+     */
+    boolean isAllocated(VClass _class);
+}
@@ -0,0 +1,130 @@
+package symbols;
+
+import java.util.*;
+
+/**
+ * SymbolTable is the read only view of every class in the program. It is
+ * built once, after ContextVisitor has seen all declarations, and freezes
+ * the classes it is given: from then on their members, methods and types
+ * cannot change, and the class types of fields, parameters, locals and
+ * return values are resolved to the VClass they name. The type checker
+ * and the Vapor translator both read their classes from it.
+ *
+ * Given what the program can reach, methods no reachable code calls by
+ * name get no slot in the virtual method tables, and only the classes
+ * reachable code allocates get a table.
+ */
+public final class SymbolTable {
+    private final Map<String, VClass> classes;
+    // Direct subclasses of every class
+    private final Map<VClass, List<VClass>> subclasses = new HashMap<>();
+    // What the program can reach, or null to keep everything
+    private final Reachability reachable;
+
+    public SymbolTable(Map<String, VClass> classes) throws DeclarationException {
+        this(classes, null);
+    }
+
+    public SymbolTable(Map<String, VClass> classes, Reachability reachable) throws DeclarationException {
+        checkHierarchy(classes);
+        this.classes = Collections.unmodifiableMap(classes);
+        this.reachable = reachable;
+        for(VClass _class : classes.values()) {
+            _class.freeze(this);
+            subclasses.put(_class, new ArrayList<VClass>());
+        }
+        for(VClass _class : classes.values()) {
+            if(_class.hasParent())
+                subclasses.get(_class.getParent()).add(_class);
+        }
+    }
+
+    /**
+     * Ensures every class is declared and no class inherits from itself,
+     * so the classes can be laid out parents first
+     * @param classes Every class of the program, by name
+     */
+    private static void checkHierarchy(Map<String, VClass> classes) throws DeclarationException {
+        for(VClass _class : classes.values()) {
+            if(!_class.declared)
+                throw new DeclarationException("Class " + _class.className + " is never declared");
+            Set<VClass> ancestors = new HashSet<>();
+            for(VClass parent = _class.getParent(); parent != null; parent = parent.getParent()) {
+                if(parent == _class || !ancestors.add(parent))
+                    throw new DeclarationException("Inheritance cycle found at " + _class.className);
+            }
+        }
+    }
+
+    /**
+     * Gets the class with the given name
+     * @param className Name of class in question
+     * @return The class, or null if there is none
+     */
+    public VClass getClass(String className) {
+        return classes.get(className);
+    }
+
+    public Collection<VClass> getClasses() {
+        return classes.values();
+    }
+
+    /**
+     * @param methodName Name of method in question
+     * @return Whether calls by that name need a slot in the tables
+     */
+    public boolean isDispatched(String methodName) {
+        return reachable == null || reachable.isCalled(methodName);
+    }
+
+    /**
+     * @param label Function label of a method
+     * @return Whether the method can run, and so is translated
+     */
+    public boolean isReachable(String label) {
+        return reachable == null || reachable.isReachable(label);
+    }
+
+    /**
+     * Resolves a declared type to the class it names
+     * @param type Type as written in the declaration
+     * @return The class, or null for int, int[] and boolean
+     */
+    public VClass classOf(String type) {
+        return type == null ? null : classes.get(type);
+    }
+
+    /**
+     * Class hierarchy analysis of a call: the receiver may be an object of
+     * its static class or of any subclass, so the call has a single target
+     * when none of those override the method differently
+     * @param receiver Static class of the receiver
+     * @param methodName Name of the method called
+     * @return The function every possible receiver runs, or null if it
+     * depends on the receiver
+     */
+    public String uniqueTarget(VClass receiver, String methodName) {
+        String target = receiver.methodLabel(methodName);
+        Deque<VClass> pending = new ArrayDeque<>(subclasses.get(receiver));
+        while(!pending.isEmpty()) {
+            VClass subclass = pending.pop();
+            if(!target.equals(subclass.methodLabel(methodName)))
+                return null;
+            pending.addAll(subclasses.get(subclass));
+        }
+        return target;
+    }
+
+    /**
+     * Gets the classes that need a virtual method table
+     * @return Every class objects are made of
+     */
+    public List<VClass> tabledClasses() {
+        List<VClass> tabled = new ArrayList<>();
+        for(VClass _class : classes.values()) {
+            if(reachable == null || reachable.isAllocated(_class))
+                tabled.add(_class);
+        }
+        return tabled;
+    }
+}
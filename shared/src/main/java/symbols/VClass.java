@@ -0,0 +1,234 @@
+
+package symbols;
+
+import java.util.*;
+
+/**
+ * VClass represents the idea of a class as in MiniJava, holding all
+ * its member variables, type associations and methods. It can also
+ * be thought of as a node in a dependency graph as generated for
+ * inheritance.
+ */
+public class VClass {
+    private VClass parent = null;
+    public String className;
+    // Set once the class' own declaration is seen, not just its name
+    boolean declared = false;
+    public List<String> members = new ArrayList<>();
+    public Map<String, String> types = new HashMap<>();
+    public List<VMethod> methods = new ArrayList<>();
+    // Classes of the class typed members, resolved when frozen
+    private final Map<String, VClass> memberClasses = new HashMap<>();
+    // Layout, computed once when frozen
+    private boolean frozen = false;
+    private final Map<String, Integer> memberOffsets = new HashMap<>();
+    private final Map<String, Integer> methodSlots = new HashMap<>();
+    private List<String> allMembers;
+    private List<VMethod> vtable;
+    private List<String> vmt;
+    private int size;
+
+    public VClass(String className) {
+        this.className = className;
+    }
+
+    /**
+     * Gives the byte size of a class. The pointer to the class
+     * itself is 4 bytes, so its always with a 4 byte offset.
+     * @return byte size as multiples of 4
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Makes the class read only, resolves the class types of its members
+     * and methods, and lays out its members and virtual method table on
+     * top of its parent's. Done once by the SymbolTable, parents first.
+     * @param symbols Table the class belongs to
+     */
+    void freeze(SymbolTable symbols) {
+        if(frozen)
+            return;
+        frozen = true;
+        if(hasParent())
+            parent.freeze(symbols);
+        for(Map.Entry<String, String> member : types.entrySet()) {
+            VClass memberClass = symbols.classOf(member.getValue());
+            if(memberClass != null)
+                memberClasses.put(member.getKey(), memberClass);
+        }
+        members = Collections.unmodifiableList(members);
+        types = Collections.unmodifiableMap(types);
+        methods = Collections.unmodifiableList(methods);
+        layout(symbols);
+        for(VMethod method : methods) {
+            method.freeze(symbols, this);
+        }
+    }
+
+    /**
+     * Builds the member offsets and method slots. Inherited members and
+     * methods keep their place, and a member or method with the same name
+     * as an inherited one reuses its slot, overriding it. Methods no
+     * reachable code calls get no slot.
+     * @param symbols Table the class belongs to
+     */
+    private void layout(SymbolTable symbols) {
+        List<String> allMembers = new ArrayList<>();
+        List<VMethod> vtable = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        if(hasParent()) {
+            allMembers.addAll(parent.allMembers);
+            vtable.addAll(parent.vtable);
+            labels.addAll(parent.vmt);
+            memberOffsets.putAll(parent.memberOffsets);
+            methodSlots.putAll(parent.methodSlots);
+        }
+        for(String member : members) {
+            if(!memberOffsets.containsKey(member)) {
+                memberOffsets.put(member, 4 + 4*allMembers.size());
+                allMembers.add(member);
+            }
+        }
+        for(VMethod method : methods) {
+            // The static main is never dispatched
+            if(method.isStatic || !symbols.isDispatched(method.methodName))
+                continue;
+            String label = className + "." + method.methodName;
+            Integer slot = methodSlots.get(method.methodName);
+            if(slot == null) {
+                methodSlots.put(method.methodName, vtable.size());
+                vtable.add(method);
+                labels.add(label);
+            } else {
+                vtable.set(slot, method);
+                labels.set(slot, label);
+            }
+        }
+        this.allMembers = Collections.unmodifiableList(allMembers);
+        this.vtable = Collections.unmodifiableList(vtable);
+        this.vmt = Collections.unmodifiableList(labels);
+        this.size = 4 + 4*allMembers.size();
+    }
+
+    /**
+     * Gets the class of a member, looking through inherited members too
+     * @param member Name of member in question
+     * @return The class, or null if the member is not class typed
+     */
+    public VClass memberClass(String member) {
+        if(types.containsKey(member))
+            return memberClasses.get(member);
+        return hasParent() ? parent.memberClass(member) : null;
+    }
+
+    public VClass getParent() {
+        return parent;
+    }
+
+    public boolean hasParent() {
+        return this.parent != null;
+    }
+
+    public void setParent(VClass parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Gets method objects in virtual method table order, inherited ones
+     * included and overridden ones replaced
+     * @return List of methods as VMethods
+     */
+    public List<VMethod> getMethods() {
+        return vtable;
+    }
+
+    /**
+     * Gets the specific method if it exists, based on its name
+     * @param methodName Name of method in question
+     * @return The most derived implementation of the method
+     */
+    public VMethod getMethod(String methodName) {
+        Integer slot = methodSlots.get(methodName);
+        return slot == null ? null : vtable.get(slot);
+    }
+
+    /**
+     * Gives the byte offset of a method pointer in the virtual method table
+     * @param methodName Name of method in question
+     * @return Offset from the table pointer, or -1 if there is no such method
+     */
+    public int methodOffset(String methodName) {
+        Integer slot = methodSlots.get(methodName);
+        return slot == null ? -1 : 4*slot;
+    }
+
+    /**
+     * Gives the function a call to the method runs for objects of exactly
+     * this class
+     * @param methodName Name of method in question
+     * @return Function label, or null if there is no such method
+     */
+    public String methodLabel(String methodName) {
+        Integer slot = methodSlots.get(methodName);
+        return slot == null ? null : vmt.get(slot);
+    }
+
+    /**
+     * Gets a method declared by this class itself, ignoring inherited ones
+     * @param methodName Name of method in question
+     * @return The declared method, or null if the class does not declare it
+     */
+    public VMethod getDeclaredMethod(String methodName) {
+        for(VMethod method : methods) {
+            if(method.methodName.equals(methodName))
+                return method;
+        }
+        return null;
+    }
+
+    /**
+     * Gets member objects in layout order, inherited ones included
+     * @return List of members as Strings
+     */
+    public List<String> getMembers() {
+        return allMembers;
+    }
+
+    /**
+     * Gives the byte offset of a member in the object, past the VMT pointer
+     * @param member Name of member in question
+     * @return Offset from the object pointer, or -1 if there is no such member
+     */
+    public int memberOffset(String member) {
+        Integer offset = memberOffsets.get(member);
+        return offset == null ? -1 : offset;
+    }
+
+    /**
+     * Gets the class' virtual method table
+     * @return A function label per method slot
+     */
+    public List<String> vmt() {
+        return vmt;
+    }
+
+    /**
+     * Debugging function for pretty printing the class
+     */
+    public void printClass() {
+        System.out.println("CLASS NAME: " + className);
+        if(hasParent()) {
+            System.out.println("PARENT NAME: " + parent.className);
+        }
+        List<String> members = getMembers();
+        List<VMethod> methods = getMethods();
+        for(int i = 0; i < members.size(); i++) {
+            System.out.println("VAR " + (i+1) + ": " + members.get(i));
+        }
+        for(VMethod _method : methods) {
+            _method.printMethod();
+        }
+    }
+}
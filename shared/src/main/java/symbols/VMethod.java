@@ -0,0 +1,105 @@
+package symbols;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VMethod represents the idea of a method as in MiniJava, holding all
+ * its local variables, parameters and type associations. It is
+ * used for ease of scoping.
+ */
+public class VMethod {
+    public String methodName;
+    public List<String> params = new ArrayList<>();
+    public List<String> locals = new ArrayList<>();
+    public Map<String, String> localTypes = new HashMap<>();
+    public Map<String, String> paramTypes = new HashMap<>();
+    public String returnType;
+    // Only the main method is static, and it is never dispatched
+    public boolean isStatic = false;
+    // Resolved when frozen
+    private VClass returnClass;
+    private Map<String, Location> locations;
+
+    public VMethod(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Makes the method read only, resolves the class types of its
+     * variables and return value, and builds the location of every name
+     * its body can use. Done once by the SymbolTable, after the owning
+     * class is laid out.
+     * @param symbols Table the method belongs to
+     * @param owner Class declaring the method
+     */
+    void freeze(SymbolTable symbols, VClass owner) {
+        returnClass = symbols.classOf(returnType);
+        Map<String, Location> locations = new HashMap<>();
+        // Locals shadow params, which shadow fields
+        for(String member : owner.getMembers()) {
+            locations.put(member, Location.field(member, owner.memberOffset(member), owner.memberClass(member)));
+        }
+        for(String param : params) {
+            locations.put(param, Location.param(param, symbols.classOf(paramTypes.get(param))));
+        }
+        for(String local : locals) {
+            locations.put(local, Location.local(local, symbols.classOf(localTypes.get(local))));
+        }
+        this.locations = Collections.unmodifiableMap(locations);
+        params = Collections.unmodifiableList(params);
+        locals = Collections.unmodifiableList(locals);
+        paramTypes = Collections.unmodifiableMap(paramTypes);
+        localTypes = Collections.unmodifiableMap(localTypes);
+    }
+
+    /**
+     * Gets the class returned by the method
+     * @return The class, or null if the method does not return an object
+     */
+    public VClass returnClass() {
+        return returnClass;
+    }
+
+    /**
+     * Finds where a name used in the method body lives
+     * @param variable Name of variable in question
+     * @return Its location, or null if nothing in scope has that name
+     */
+    public Location locate(String variable) {
+        return locations.get(variable);
+    }
+
+    /**
+     * Debugging function for pretty printing the method
+     */
+    public void printMethod() {
+        System.out.println("METHOD NAME: " + methodName);
+        for(int i = 0; i < params.size(); i++) {
+            System.out.println("PARAM " + (i+1) + ": " + params.get(i));
+        }
+        for(int i = 0; i < locals.size(); i++) {
+            System.out.println("LOCAL " + (i+1) + ": " + locals.get(i));
+        }
+    }
+
+    // Equality for a method is based on its name in this project
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if ((o instanceof VMethod)) {
+            return methodName.equals(((VMethod) o).methodName);
+        }
+        return false;
+    }
+
+    // Hashing for a method is based on its name in this project
+    @Override
+    public int hashCode() {
+        return 31 * this.methodName.hashCode();
+    }
+}
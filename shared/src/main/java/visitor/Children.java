@@ -0,0 +1,211 @@
+package visitor;
+
+import syntaxtree.*;
+
+/**
+ * Children lists the children of a node in field order, f0 first, without
+ * reflection. Missing optional nodes show up as null entries.
+ */
+final class Children implements GJNoArguVisitor<Node[]> {
+    static final Children INSTANCE = new Children();
+    private static final Node[] NONE = new Node[0];
+
+    private Children() {
+    }
+
+    private static Node[] elements(NodeListInterface list) {
+        Node[] children = new Node[list.size()];
+        for (int i = 0; i < children.length; i++)
+            children[i] = list.elementAt(i);
+        return children;
+    }
+
+    public Node[] visit(NodeList n) {
+        return elements(n);
+    }
+
+    public Node[] visit(NodeListOptional n) {
+        return elements(n);
+    }
+
+    public Node[] visit(NodeOptional n) {
+        return n.present() ? new Node[] { n.node } : NONE;
+    }
+
+    public Node[] visit(NodeSequence n) {
+        return elements(n);
+    }
+
+    public Node[] visit(NodeToken n) {
+        return NONE;
+    }
+
+    public Node[] visit(Goal n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(MainClass n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5, n.f6, n.f7, n.f8, n.f9, n.f10, n.f11, n.f12,
+                n.f13, n.f14, n.f15, n.f16, n.f17 };
+    }
+
+    public Node[] visit(TypeDeclaration n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(ClassDeclaration n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5 };
+    }
+
+    public Node[] visit(ClassExtendsDeclaration n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5, n.f6, n.f7 };
+    }
+
+    public Node[] visit(VarDeclaration n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(MethodDeclaration n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5, n.f6, n.f7, n.f8, n.f9, n.f10, n.f11, n.f12 };
+    }
+
+    public Node[] visit(FormalParameterList n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(FormalParameter n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(FormalParameterRest n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(Type n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(ArrayType n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(BooleanType n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(IntegerType n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(Statement n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(Block n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(AssignmentStatement n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3 };
+    }
+
+    public Node[] visit(ArrayAssignmentStatement n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5, n.f6 };
+    }
+
+    public Node[] visit(IfStatement n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5, n.f6 };
+    }
+
+    public Node[] visit(WhileStatement n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4 };
+    }
+
+    public Node[] visit(PrintStatement n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4 };
+    }
+
+    public Node[] visit(Expression n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(AndExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(CompareExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(PlusExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(MinusExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(TimesExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(ArrayLookup n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3 };
+    }
+
+    public Node[] visit(ArrayLength n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+
+    public Node[] visit(MessageSend n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4, n.f5 };
+    }
+
+    public Node[] visit(ExpressionList n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(ExpressionRest n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(PrimaryExpression n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(IntegerLiteral n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(TrueLiteral n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(FalseLiteral n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(Identifier n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(ThisExpression n) {
+        return new Node[] { n.f0 };
+    }
+
+    public Node[] visit(ArrayAllocationExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3, n.f4 };
+    }
+
+    public Node[] visit(AllocationExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2, n.f3 };
+    }
+
+    public Node[] visit(NotExpression n) {
+        return new Node[] { n.f0, n.f1 };
+    }
+
+    public Node[] visit(BracketExpression n) {
+        return new Node[] { n.f0, n.f1, n.f2 };
+    }
+}
@@ -0,0 +1,658 @@
+package visitor;
+
+import syntaxtree.*;
+
+import java.util.*;
+
+/**
+ * IterativeDepthFirst walks the AST with an explicit work stack instead of
+ * recursing through accept, so deeply nested expressions and long statement
+ * lists cannot overflow the call stack. Start a walk with traverse.
+ *
+ * The GJVisitor methods act as post order callbacks: when visit(n, argu) runs,
+ * every child of n has been visited, and the result for field fi is available
+ * through result(i), or through results(i) when fi is a list or optional node.
+ * The default for each node is the result of its first child that produced one.
+ * enter is the pre order hook and may prune a subtree, while afterChild runs
+ * between children for nodes that need state set up part way through.
+ *
+ * Only nodes with children of their own get a frame on the stack: tokens
+ * are passed over, and a choice stands for the node it holds.
+ */
+public class IterativeDepthFirst<R, A> implements GJVisitor<R, A> {
+
+    /**
+     * Results of the elements of a list or optional node
+     */
+    private static final class Many<R> {
+        final List<R> values = new ArrayList<>();
+    }
+
+    /**
+     * A node on the work stack, with its children and the results seen so far
+     */
+    private static final class Frame {
+        final Node node;
+        final Node[] children;
+        final Object[] results;
+        // Index of the next child to visit
+        int next = 0;
+        // Auto nodes collect their children's results instead of dispatching
+        final boolean auto;
+
+        Frame(Node node, Node[] children, boolean auto) {
+            this.node = node;
+            this.children = children;
+            this.results = new Object[children.length];
+            this.auto = auto;
+        }
+    }
+
+    // Frame whose node is currently being dispatched
+    private Frame current;
+
+    /**
+     * Visits the whole subtree below root, returning the result of root.
+     * @param root Node to start from
+     * @param argu Argument handed to every callback
+     * @return Result of visiting root
+     */
+    public R traverse(Node root, A argu) {
+        Frame saved = current;
+        Deque<Frame> stack = new ArrayDeque<>();
+        Object rootResult = null;
+        Frame rootFrame = push(chosen(root), stack, argu);
+        if (rootFrame == null) {
+            current = saved;
+            return null;
+        }
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.next < frame.children.length) {
+                Node child = chosen(frame.children[frame.next]);
+                if (child == null || child instanceof NodeToken || push(child, stack, argu) == null) {
+                    // Nothing to do for this child
+                    childDone(frame, null, argu);
+                }
+                continue;
+            }
+            stack.pop();
+            Object result = finish(frame, argu);
+            if (stack.isEmpty()) {
+                rootResult = result;
+            } else {
+                childDone(stack.peek(), result, argu);
+            }
+        }
+        current = saved;
+        return rootResult instanceof Many ? null : cast(rootResult);
+    }
+
+    /**
+     * Pre order hook, run before any child of n is visited.
+     * @param n Node being entered
+     * @param argu Traversal argument
+     * @return false to skip n and its whole subtree
+     */
+    protected boolean enter(Node n, A argu) {
+        return true;
+    }
+
+    /**
+     * Runs after child fi of n has been visited, and before the next one.
+     * @param n Parent node
+     * @param index Field number of the child just finished
+     * @param argu Traversal argument
+     */
+    protected void afterChild(Node n, int index, A argu) {
+    }
+
+    /**
+     * Result of field fi of the node currently being visited.
+     * @param index Field number
+     * @return The child's result, or null for tokens, lists and pruned children
+     */
+    protected R result(int index) {
+        Object result = current.results[index];
+        return result instanceof Many ? null : cast(result);
+    }
+
+    /**
+     * Results of the elements of list or optional field fi of the node
+     * currently being visited.
+     * @param index Field number
+     * @return Element results in source order
+     */
+    @SuppressWarnings("unchecked")
+    protected List<R> results(int index) {
+        Object result = current.results[index];
+        if (result instanceof Many)
+            return ((Many<R>) result).values;
+        return result == null ? Collections.<R>emptyList() : Collections.singletonList(cast(result));
+    }
+
+    /**
+     * Result handed up when no callback sets one: the first child result.
+     * @return First non null child result of the current node
+     */
+    protected R firstResult() {
+        for (Object result : current.results) {
+            if (result != null && !(result instanceof Many))
+                return cast(result);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R cast(Object result) {
+        return (R) result;
+    }
+
+    /**
+     * @return The node a choice holds, through any nested choices, or the
+     * node itself if it is not a choice
+     */
+    private static Node chosen(Node node) {
+        while (node instanceof NodeChoice)
+            node = ((NodeChoice) node).choice;
+        return node;
+    }
+
+    /**
+     * Creates the frame for a node and runs the pre order hook.
+     * @return The frame pushed, or null if the node was pruned
+     */
+    private Frame push(Node node, Deque<Frame> stack, A argu) {
+        boolean auto = node instanceof NodeListInterface || node instanceof NodeOptional;
+        if (!auto && !enter(node, argu))
+            return null;
+        Frame frame = new Frame(node, node.accept(Children.INSTANCE), auto);
+        stack.push(frame);
+        return frame;
+    }
+
+    /**
+     * Records a finished child in its parent frame and moves on.
+     */
+    private void childDone(Frame frame, Object result, A argu) {
+        int index = frame.next++;
+        frame.results[index] = result;
+        if (!frame.auto) {
+            Frame saved = current;
+            current = frame;
+            afterChild(frame.node, index, argu);
+            current = saved;
+        }
+    }
+
+    /**
+     * Computes the result of a frame whose children are all done.
+     */
+    private Object finish(Frame frame, A argu) {
+        if (frame.auto) {
+            Many<R> many = new Many<>();
+            for (Object result : frame.results)
+                many.values.add(result instanceof Many ? null : cast(result));
+            return many;
+        }
+        Frame saved = current;
+        current = frame;
+        R result = frame.node.accept(this, argu);
+        current = saved;
+        return result;
+    }
+
+    //
+    // Auto class visitors are handled by the traversal itself
+    //
+
+    public R visit(NodeList n, A argu) {
+        return null;
+    }
+
+    public R visit(NodeListOptional n, A argu) {
+        return null;
+    }
+
+    public R visit(NodeOptional n, A argu) {
+        return null;
+    }
+
+    public R visit(NodeSequence n, A argu) {
+        return null;
+    }
+
+    public R visit(NodeToken n, A argu) {
+        return null;
+    }
+
+    //
+    // Post order callbacks, defaulting to the first child result
+    //
+
+    /**
+     * f0 -> MainClass()
+     * f1 -> ( TypeDeclaration() )*
+     * f2 -> <EOF>
+     */
+    public R visit(Goal n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> "public"
+     * f4 -> "static"
+     * f5 -> "void"
+     * f6 -> "main"
+     * f7 -> "("
+     * f8 -> "String"
+     * f9 -> "["
+     * f10 -> "]"
+     * f11 -> Identifier()
+     * f12 -> ")"
+     * f13 -> "{"
+     * f14 -> ( VarDeclaration() )*
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
+     */
+    public R visit(MainClass n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> ClassDeclaration()
+     *       | ClassExtendsDeclaration()
+     */
+    public R visit(TypeDeclaration n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> ( VarDeclaration() )*
+     * f4 -> ( MethodDeclaration() )*
+     * f5 -> "}"
+     */
+    public R visit(ClassDeclaration n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "extends"
+     * f3 -> Identifier()
+     * f4 -> "{"
+     * f5 -> ( VarDeclaration() )*
+     * f6 -> ( MethodDeclaration() )*
+     * f7 -> "}"
+     */
+    public R visit(ClassExtendsDeclaration n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Type()
+     * f1 -> Identifier()
+     * f2 -> ";"
+     */
+    public R visit(VarDeclaration n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( FormalParameterList() )?
+     * f5 -> ")"
+     * f6 -> "{"
+     * f7 -> ( VarDeclaration() )*
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    public R visit(MethodDeclaration n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> FormalParameter()
+     * f1 -> ( FormalParameterRest() )*
+     */
+    public R visit(FormalParameterList n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Type()
+     * f1 -> Identifier()
+     */
+    public R visit(FormalParameter n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> ","
+     * f1 -> FormalParameter()
+     */
+    public R visit(FormalParameterRest n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> ArrayType()
+     *       | BooleanType()
+     *       | IntegerType()
+     *       | Identifier()
+     */
+    public R visit(Type n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "int"
+     * f1 -> "["
+     * f2 -> "]"
+     */
+    public R visit(ArrayType n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "boolean"
+     */
+    public R visit(BooleanType n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "int"
+     */
+    public R visit(IntegerType n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Block()
+     *       | AssignmentStatement()
+     *       | ArrayAssignmentStatement()
+     *       | IfStatement()
+     *       | WhileStatement()
+     *       | PrintStatement()
+     */
+    public R visit(Statement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "{"
+     * f1 -> ( Statement() )*
+     * f2 -> "}"
+     */
+    public R visit(Block n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "="
+     * f2 -> Expression()
+     * f3 -> ";"
+     */
+    public R visit(AssignmentStatement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "["
+     * f2 -> Expression()
+     * f3 -> "]"
+     * f4 -> "="
+     * f5 -> Expression()
+     * f6 -> ";"
+     */
+    public R visit(ArrayAssignmentStatement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "if"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     * f5 -> "else"
+     * f6 -> Statement()
+     */
+    public R visit(IfStatement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "while"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     */
+    public R visit(WhileStatement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "System.out.println"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> ";"
+     */
+    public R visit(PrintStatement n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> AndExpression()
+     *       | CompareExpression()
+     *       | PlusExpression()
+     *       | MinusExpression()
+     *       | TimesExpression()
+     *       | ArrayLookup()
+     *       | ArrayLength()
+     *       | MessageSend()
+     *       | PrimaryExpression()
+     */
+    public R visit(Expression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "&&"
+     * f2 -> PrimaryExpression()
+     */
+    public R visit(AndExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "<"
+     * f2 -> PrimaryExpression()
+     */
+    public R visit(CompareExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "+"
+     * f2 -> PrimaryExpression()
+     */
+    public R visit(PlusExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "-"
+     * f2 -> PrimaryExpression()
+     */
+    public R visit(MinusExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "*"
+     * f2 -> PrimaryExpression()
+     */
+    public R visit(TimesExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "["
+     * f2 -> PrimaryExpression()
+     * f3 -> "]"
+     */
+    public R visit(ArrayLookup n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> "length"
+     */
+    public R visit(ArrayLength n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> PrimaryExpression()
+     * f1 -> "."
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( ExpressionList() )?
+     * f5 -> ")"
+     */
+    public R visit(MessageSend n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> Expression()
+     * f1 -> ( ExpressionRest() )*
+     */
+    public R visit(ExpressionList n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> ","
+     * f1 -> Expression()
+     */
+    public R visit(ExpressionRest n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> IntegerLiteral()
+     *       | TrueLiteral()
+     *       | FalseLiteral()
+     *       | Identifier()
+     *       | ThisExpression()
+     *       | ArrayAllocationExpression()
+     *       | AllocationExpression()
+     *       | NotExpression()
+     *       | BracketExpression()
+     */
+    public R visit(PrimaryExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> <INTEGER_LITERAL>
+     */
+    public R visit(IntegerLiteral n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "true"
+     */
+    public R visit(TrueLiteral n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "false"
+     */
+    public R visit(FalseLiteral n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> <IDENTIFIER>
+     */
+    public R visit(Identifier n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "this"
+     */
+    public R visit(ThisExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "new"
+     * f1 -> "int"
+     * f2 -> "["
+     * f3 -> Expression()
+     * f4 -> "]"
+     */
+    public R visit(ArrayAllocationExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "new"
+     * f1 -> Identifier()
+     * f2 -> "("
+     * f3 -> ")"
+     */
+    public R visit(AllocationExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "!"
+     * f1 -> Expression()
+     */
+    public R visit(NotExpression n, A argu) {
+        return firstResult();
+    }
+
+    /**
+     * f0 -> "("
+     * f1 -> Expression()
+     * f2 -> ")"
+     */
+    public R visit(BracketExpression n, A argu) {
+        return firstResult();
+    }
+}